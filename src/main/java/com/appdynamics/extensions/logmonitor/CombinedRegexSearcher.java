@@ -0,0 +1,213 @@
+package com.appdynamics.extensions.logmonitor;
+
+import com.appdynamics.extensions.logmonitor.regex.JdkRegexEngine;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Searches a line for several regex search patterns of a log in a single pass, with
+ * one alternation of all of them, instead of running each pattern over the whole line.
+ *
+ * <p>The alternation finds the next position at which any of the patterns matches.
+ * The alternative that matched is counted, and the patterns after it are tried at that
+ * position only, as the ones before it cannot match there. The search then goes on
+ * from the next position at which a pattern may count a match, i.e. past the matches
+ * of all patterns that matched there. This gives the same counts as running
+ * {@link Matcher#find()} per pattern: matches of a pattern do not overlap, while the
+ * matches of different patterns may.</p>
+ *
+ * <p>The matcher is per instance, so concurrent searches each need their own instance,
+ * see {@link #CombinedRegexSearcher(CombinedRegexSearcher)}.</p>
+ *
+ * @author Satish Muddam
+ */
+public class CombinedRegexSearcher {
+
+    private static final Logger LOGGER = Logger.getLogger(CombinedRegexSearcher.class);
+
+    /**
+     * Back references and named groups would refer to other groups once combined, \G
+     * to the previous match of the alternation, and a comment could swallow the
+     * alternatives that follow
+     */
+    private static final Pattern UNSUPPORTED_CONSTRUCTS =
+            Pattern.compile("\\\\[1-9]|\\\\k<|\\\\G|\\(\\?<[a-zA-Z]|\\(\\?[idmsuU-]*x");
+
+    /**
+     * A pattern starting with an unbounded repetition, e.g. .*Exception or \w+, matches
+     * again at each position within its own match. The alternation would find these
+     * matches one position after the other, each time scanning ahead again.
+     */
+    private static final Pattern LEADING_REPETITION = Pattern.compile(
+            "^(?:\\(\\?[a-zA-Z-]*\\)|\\((?:\\?:)?)*(?:\\\\[^QE]|\\[(?:\\\\.|[^\\]])+\\]|[^\\\\(\\[|])" +
+                    "(?:[*+]|\\{\\d+,\\d*\\})");
+
+    private final List<SearchPattern> searchPatterns;
+
+    private final Pattern combinedPattern;
+
+    /**
+     * Per pattern, the group of the combined pattern it is wrapped in
+     */
+    private final int[] groups;
+
+    private final Matcher combinedMatcher;
+
+    /**
+     * Per pattern, the position from which it may match again in the line
+     */
+    private final int[] nextStarts;
+
+    /**
+     * @param searchPatterns the patterns to search, all of which must be supported
+     * @throws PatternSyntaxException if the patterns cannot be combined
+     * @see #isSupported(SearchPattern)
+     */
+    public CombinedRegexSearcher(List<SearchPattern> searchPatterns) {
+        this.searchPatterns = searchPatterns;
+        this.groups = new int[searchPatterns.size()];
+
+        StringBuilder combined = new StringBuilder();
+        int group = 1;
+
+        for (int i = 0; i < searchPatterns.size(); i++) {
+            Pattern pattern = searchPatterns.get(i).getPattern();
+
+            if (i > 0) {
+                combined.append('|');
+            }
+
+            // inline flags only apply within the group
+            combined.append('(').append(pattern.pattern()).append(')');
+
+            groups[i] = group;
+            group += 1 + pattern.matcher("").groupCount();
+        }
+
+        this.combinedPattern = Pattern.compile(combined.toString());
+        this.combinedMatcher = combinedPattern.matcher("");
+        this.nextStarts = new int[searchPatterns.size()];
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Combined [%s] patterns into [%s]",
+                    searchPatterns.size(), combinedPattern.pattern()));
+        }
+    }
+
+    /**
+     * Shares the combined pattern of the given searcher, with its own matcher
+     */
+    public CombinedRegexSearcher(CombinedRegexSearcher combinedRegexSearcher) {
+        this.searchPatterns = combinedRegexSearcher.searchPatterns;
+        this.combinedPattern = combinedRegexSearcher.combinedPattern;
+        this.groups = combinedRegexSearcher.groups;
+        this.combinedMatcher = combinedPattern.matcher("");
+        this.nextStarts = new int[searchPatterns.size()];
+    }
+
+    /**
+     * @return true if the pattern can be part of a combined pattern, which is matched
+     * by java.util.regex, so not if it selected another engine. Flags are only supported
+     * inline, e.g. (?i) for a case insensitive search string, as these stay within the
+     * group of the pattern.
+     */
+    public static boolean isSupported(SearchPattern searchPattern) {
+        Pattern pattern = searchPattern.getPattern();
+        String regex = pattern.pattern();
+
+        if (!JdkRegexEngine.NAME.equals(searchPattern.getCompiledRegex().getEngineName())) {
+            return false;
+        }
+
+        if (pattern.flags() != Pattern.compile(regex).flags()) {
+            return false;
+        }
+
+        // a quote left open would also quote the alternatives that follow
+        return !UNSUPPORTED_CONSTRUCTS.matcher(regex).find() && !LEADING_REPETITION.matcher(regex).find() &&
+                regex.lastIndexOf("\\Q") <= regex.lastIndexOf("\\E");
+    }
+
+    public List<SearchPattern> getSearchPatterns() {
+        return searchPatterns;
+    }
+
+    /**
+     * Finds the matches of the patterns in the line, in a single pass over it
+     */
+    public void search(CharSequence stringToCheck, LineSearcher lineSearcher, LogMetrics logMetrics) {
+        for (int i = 0; i < nextStarts.length; i++) {
+            nextStarts[i] = 0;
+        }
+
+        Matcher matcher = combinedMatcher.reset(stringToCheck);
+        int length = stringToCheck.length();
+        int from = 0;
+
+        while (from <= length && matcher.find(from)) {
+            int position = matcher.start();
+            int matched = getMatchedPattern(matcher);
+
+            if (position >= nextStarts[matched]) {
+                count(matched, position, matcher.end(groups[matched]), matcher.group(groups[matched]),
+                        lineSearcher, logMetrics);
+            }
+
+            for (int i = matched + 1; i < searchPatterns.size(); i++) {
+                if (position < nextStarts[i]) {
+                    continue;
+                }
+
+                SearchPattern searchPattern = searchPatterns.get(i);
+                Matcher patternMatcher = searchPattern.getMatcher(stringToCheck);
+                patternMatcher.region(position, length);
+
+                if (patternMatcher.lookingAt()) {
+                    count(i, position, patternMatcher.end(), patternMatcher.group(), lineSearcher, logMetrics);
+                }
+            }
+
+            from = getNextFrom(position);
+        }
+    }
+
+    /**
+     * @return the first position after the given one at which a pattern may count a
+     * match, as the patterns that matched at the position may only match again from
+     * the end of their match
+     */
+    private int getNextFrom(int position) {
+        int nextFrom = Integer.MAX_VALUE;
+
+        for (int nextStart : nextStarts) {
+            nextFrom = Math.min(nextFrom, Math.max(nextStart, position + 1));
+        }
+
+        return nextFrom;
+    }
+
+    private int getMatchedPattern(Matcher matcher) {
+        for (int i = 0; i < groups.length; i++) {
+            if (matcher.start(groups[i]) >= 0) {
+                return i;
+            }
+        }
+
+        throw new IllegalStateException("No pattern matched in " + combinedPattern.pattern());
+    }
+
+    /**
+     * As with {@link Matcher#find()}, the pattern may match again from the end of the
+     * match, or from the next position after an empty match
+     */
+    private void count(int pattern, int start, int end, String match,
+                       LineSearcher lineSearcher, LogMetrics logMetrics) {
+        nextStarts[pattern] = end > start ? end : end + 1;
+        lineSearcher.incrementWordCount(searchPatterns.get(pattern), match, logMetrics);
+    }
+
+}
@@ -19,8 +19,82 @@ public final class Constants {
 	
 	public static final String FILESIZE_METRIC_NAME = "File size (Bytes)";
 	
+	public static final String OVERSIZED_LINES_METRIC_NAME = "Oversized Lines";
+	
+	public static final String THROTTLED_TIME_METRIC_NAME = "Throttled Time (ms)";
+	
+	public static final String PREFILTER = "Prefilter";
+	
+	public static final String PREFILTER_LINES_CHECKED_METRIC_NAME = "Lines Checked";
+	
+	public static final String PREFILTER_CANDIDATE_LINES_METRIC_NAME = "Candidate Lines";
+	
+	public static final String FILE = "File";
+	
 	public static final int DEFAULT_NO_OF_THREADS = 3;
 	
 	public static final int THREAD_TIMEOUT = 60;
 	
+	public static final int DEFAULT_SCAN_TIME_BUDGET_IN_SECONDS = 50;
+	
+	public static final int DEADLINE_CHECK_INTERVAL = 256;
+	
+	public static final int MIN_LITERALS_FOR_AUTOMATON = 2;
+	
+	public static final int MIN_REGEXES_FOR_COMBINED_PATTERN = 2;
+	
+	public static final String DEFAULT_ENCODING = "UTF-8";
+	
+	public static final int DEFAULT_READ_BUFFER_SIZE = 64 * 1024;
+	
+	public static final int LINE_START_READ_BUFFER_SIZE = 8 * 1024;
+	
+	public static final int COMPRESSED_READ_BUFFER_SIZE = 1024 * 1024;
+	
+	public static final long MEMORY_MAPPED_THRESHOLD = 32L * 1024 * 1024;
+	
+	public static final long MEMORY_MAPPED_REGION_SIZE = 64L * 1024 * 1024;
+	
+	public static final int DEFAULT_MAX_LINE_LENGTH_IN_KB = 1024;
+	
+	public static final int OVERSIZED_LINE_OVERLAP = 8 * 1024;
+	
+	public static final long PARALLEL_SCAN_THRESHOLD = 128L * 1024 * 1024;
+	
+	public static final long PARALLEL_SCAN_CHUNK_SIZE = 16L * 1024 * 1024;
+	
+	/**
+	 * Time past the scan deadline a chunk before a completed one may take to finish, within
+	 * the margin between the scan time budget and THREAD_TIMEOUT
+	 */
+	public static final int CHUNK_FINISH_GRACE_IN_SECONDS = 5;
+	
+	public static final int DEFAULT_CATCH_UP_TAIL_IN_MB = 16;
+	
+	public static final int TIMESTAMP_SEARCH_LENGTH = 256;
+	
+	public static final int FINGERPRINT_HEAD_SIZE = 4 * 1024;
+	
+	public static final int FINGERPRINT_TAIL_SIZE = 1024;
+	
+	public static final int MAX_ROTATED_FILE_CANDIDATES = 5;
+	
+	public static final int MAX_FILES_PER_TASK = 64;
+	
+	public static final long DIRECTORY_MTIME_GRANULARITY_IN_MILLIS = 2000;
+	
+	public static final int DEFAULT_MAX_DIRECTORY_DEPTH = 10;
+	
+	public static final int TAIL_PASS_TIME_BUDGET_IN_SECONDS = 5;
+	
+	public static final long TAIL_MIN_INTERVAL_IN_MILLIS = 500;
+	
+	public static final long TAIL_MAX_INTERVAL_IN_MILLIS = 15000;
+	
+	public static final long TAIL_TARGET_BYTES_PER_PASS = 1024 * 1024;
+	
+	public static final double GROWTH_RATE_SMOOTHING = 0.3;
+	
+	public static final long TAIL_NOTIFICATION_DELAY_IN_MILLIS = 200;
+	
 }
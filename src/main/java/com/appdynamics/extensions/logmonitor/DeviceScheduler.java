@@ -0,0 +1,164 @@
+package com.appdynamics.extensions.logmonitor;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Groups tasks by the device their files are on, so that each device is read by
+ * at most a given no of threads. Tasks of a device are split into that many lanes,
+ * each running its tasks one after the other in path order, so a spinning disk or
+ * network mount is read sequentially rather than by all threads at once, and the
+ * other threads are free for the other devices.
+ *
+ * <p>Lanes are returned round robin across devices, so that when there are more lanes
+ * than threads, the first lanes picked up cover as many devices as possible.</p>
+ *
+ * @author Satish Muddam
+ */
+public class DeviceScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger(DeviceScheduler.class);
+
+    private static final String UNKNOWN_DEVICE = "";
+
+    private static final Comparator<LogMonitorTask> PATH_ORDER = new Comparator<LogMonitorTask>() {
+        public int compare(LogMonitorTask task1, LogMonitorTask task2) {
+            return task1.getLocation().getPath().compareTo(task2.getLocation().getPath());
+        }
+    };
+
+    /**
+     * @param threadsPerDevice the no of lanes per device
+     * @return the lanes to submit instead of the tasks
+     */
+    public static List<Callable<LogMetrics>> createLanes(List<LogMonitorTask> tasks, int threadsPerDevice) {
+        Map<String, List<LogMonitorTask>> tasksByDevice = groupByDevice(tasks);
+        List<List<Callable<LogMetrics>>> lanesByDevice = new ArrayList<List<Callable<LogMetrics>>>();
+        int maxLanes = 0;
+
+        for (Map.Entry<String, List<LogMonitorTask>> deviceTasks : tasksByDevice.entrySet()) {
+            List<LogMonitorTask> sortedTasks = deviceTasks.getValue();
+            Collections.sort(sortedTasks, PATH_ORDER);
+
+            int noOfLanes = Math.min(threadsPerDevice, sortedTasks.size());
+            List<Callable<LogMetrics>> lanes = new ArrayList<Callable<LogMetrics>>();
+
+            // contiguous ranges of paths, e.g. the files of a directory, stay in one lane
+            for (int i = 0; i < noOfLanes; i++) {
+                lanes.add(new DeviceLane(sortedTasks.subList(sortedTasks.size() * i / noOfLanes,
+                        sortedTasks.size() * (i + 1) / noOfLanes)));
+            }
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Device [%s] has [%s] tasks in [%s] lanes",
+                        deviceTasks.getKey(), sortedTasks.size(), noOfLanes));
+            }
+
+            lanesByDevice.add(lanes);
+            maxLanes = Math.max(maxLanes, noOfLanes);
+        }
+
+        List<Callable<LogMetrics>> lanes = new ArrayList<Callable<LogMetrics>>();
+
+        for (int i = 0; i < maxLanes; i++) {
+            for (List<Callable<LogMetrics>> deviceLanes : lanesByDevice) {
+                if (i < deviceLanes.size()) {
+                    lanes.add(deviceLanes.get(i));
+                }
+            }
+        }
+
+        return lanes;
+    }
+
+    private static Map<String, List<LogMonitorTask>> groupByDevice(List<LogMonitorTask> tasks) {
+        Map<String, List<LogMonitorTask>> tasksByDevice = new LinkedHashMap<String, List<LogMonitorTask>>();
+        // the file store is looked up once per directory
+        Map<String, String> devices = new HashMap<String, String>();
+
+        for (LogMonitorTask task : tasks) {
+            File directory = task.getLocation().getAbsoluteFile();
+
+            if (!directory.isDirectory()) {
+                directory = directory.getParentFile();
+            }
+
+            String device = devices.get(directory.getPath());
+
+            if (device == null) {
+                device = getDevice(directory.toPath());
+                devices.put(directory.getPath(), device);
+            }
+
+            List<LogMonitorTask> deviceTasks = tasksByDevice.get(device);
+
+            if (deviceTasks == null) {
+                deviceTasks = new ArrayList<LogMonitorTask>();
+                tasksByDevice.put(device, deviceTasks);
+            }
+
+            deviceTasks.add(task);
+        }
+
+        return tasksByDevice;
+    }
+
+    /**
+     * @return the name of the file store, i.e. the device or the remote file system,
+     * shared by all mount points of the same device
+     */
+    private static String getDevice(Path path) {
+        try {
+            FileStore fileStore = Files.getFileStore(path);
+            return fileStore.name();
+
+        } catch (IOException ex) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Unable to find the device of " + path, ex);
+            }
+
+            return UNKNOWN_DEVICE;
+        }
+    }
+
+    /**
+     * Runs its tasks one after the other and adds up their counts
+     */
+    private static class DeviceLane implements Callable<LogMetrics> {
+
+        private final List<LogMonitorTask> tasks;
+
+        private DeviceLane(List<LogMonitorTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        public LogMetrics call() {
+            LogMetrics logMetrics = new LogMetrics();
+
+            for (LogMonitorTask task : tasks) {
+                try {
+                    logMetrics.merge(task.call());
+
+                } catch (Exception ex) {
+                    LOGGER.error("Task execution failed. ", ex);
+                }
+            }
+
+            return logMetrics;
+        }
+    }
+
+}
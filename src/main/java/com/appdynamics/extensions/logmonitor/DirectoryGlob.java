@@ -0,0 +1,204 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.Constants.DEFAULT_MAX_DIRECTORY_DEPTH;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.resolvePath;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.IOCase;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The log directory and name of a {@link Log} with wildcards in its directories,
+ * e.g. /var/log/apps/*&#47;instance-*&#47;app.log, or ** for any number of directories,
+ * e.g. /var/log/apps/**&#47;app.log.
+ *
+ * <p>The path is split into a base directory without wildcards, the directory
+ * patterns below it and the file name pattern. A directory is matched against the
+ * patterns one name at a time, tracking the patterns reached so far, so that
+ * directories which cannot lead to a match are not walked.</p>
+ *
+ * @author Satish Muddam
+ */
+public class DirectoryGlob {
+
+    private static final String RECURSIVE_WILDCARD = "**";
+
+    private final File baseDirectory;
+
+    private final String[] directoryPatterns;
+
+    private final String fileNamePattern;
+
+    private final int maxDepth;
+
+    private DirectoryGlob(File baseDirectory, String[] directoryPatterns, String fileNamePattern,
+                          int maxDepth) {
+        this.baseDirectory = baseDirectory;
+        this.directoryPatterns = directoryPatterns;
+        this.fileNamePattern = fileNamePattern;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * @return true if the log directory or a directory in the log name has wildcards
+     */
+    public static boolean isGlob(Log log) {
+        List<String> names = splitPath(log.getLogDirectory() + "/" + log.getLogName());
+
+        // the last name is the file name
+        for (String name : names.subList(0, Math.max(0, names.size() - 1))) {
+            if (isWildcard(name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public static DirectoryGlob parse(Log log) {
+        List<String> names = splitPath(log.getLogDirectory() + "/" + log.getLogName());
+        String fileNamePattern = names.remove(names.size() - 1);
+
+        int base = 0;
+
+        while (base < names.size() && !isWildcard(names.get(base))) {
+            base++;
+        }
+
+        String basePath = StringUtils.join(names.subList(0, base), File.separator);
+
+        if (log.getLogDirectory().trim().startsWith("/") || log.getLogDirectory().trim().startsWith("\\")) {
+            basePath = File.separator + basePath;
+
+        } else if (basePath.isEmpty()) {
+            basePath = ".";
+        }
+
+        List<String> directoryPatterns = names.subList(base, names.size());
+        int maxDepth = log.getMaxDirectoryDepth() != null ?
+                log.getMaxDirectoryDepth() : DEFAULT_MAX_DIRECTORY_DEPTH;
+
+        return new DirectoryGlob(new File(resolvePath(basePath)),
+                directoryPatterns.toArray(new String[directoryPatterns.size()]),
+                fileNamePattern, maxDepth);
+    }
+
+    public File getBaseDirectory() {
+        return baseDirectory;
+    }
+
+    public String getFileNamePattern() {
+        return fileNamePattern;
+    }
+
+    /**
+     * @return how many directories below the base directory are walked at most
+     */
+    public int getMaxDepth() {
+        for (String pattern : directoryPatterns) {
+            if (RECURSIVE_WILDCARD.equals(pattern)) {
+                return maxDepth;
+            }
+        }
+
+        return Math.min(maxDepth, directoryPatterns.length);
+    }
+
+    /**
+     * @return identifies the directories matched, to share them between logs
+     */
+    public String getKey() {
+        return baseDirectory.getAbsolutePath() + File.separator +
+                StringUtils.join(directoryPatterns, File.separator) + ":" + getMaxDepth();
+    }
+
+    /**
+     * @return the patterns reached at the base directory
+     */
+    public BitSet getInitialState() {
+        BitSet state = new BitSet();
+        state.set(0);
+        return skipRecursiveWildcards(state);
+    }
+
+    /**
+     * @return the patterns reached at the sub directory with the given name, empty
+     * if neither it nor its sub directories can match
+     */
+    public BitSet getNextState(BitSet state, String name) {
+        BitSet nextState = new BitSet();
+
+        for (int i = state.nextSetBit(0); i >= 0 && i < directoryPatterns.length; i = state.nextSetBit(i + 1)) {
+            String pattern = directoryPatterns[i];
+
+            if (RECURSIVE_WILDCARD.equals(pattern)) {
+                nextState.set(i);
+
+            } else if (FilenameUtils.wildcardMatch(name, pattern, IOCase.SYSTEM)) {
+                nextState.set(i + 1);
+            }
+        }
+
+        return skipRecursiveWildcards(nextState);
+    }
+
+    /**
+     * @return true if a directory in this state matches all patterns
+     */
+    public boolean isMatch(BitSet state) {
+        return state.get(directoryPatterns.length);
+    }
+
+    /**
+     * @return true if a sub directory of a directory in this state can match
+     */
+    public boolean canDescend(BitSet state) {
+        int first = state.nextSetBit(0);
+        return first >= 0 && first < directoryPatterns.length;
+    }
+
+    /**
+     * @return the path of the file relative to the base directory, with / separators
+     */
+    public String relativize(File file) {
+        String path = baseDirectory.getAbsoluteFile().toPath().normalize()
+                .relativize(file.getAbsoluteFile().toPath().normalize()).toString();
+        return path.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * ** also matches no directory at all
+     */
+    private BitSet skipRecursiveWildcards(BitSet state) {
+        for (int i = 0; i < directoryPatterns.length; i++) {
+            if (state.get(i) && RECURSIVE_WILDCARD.equals(directoryPatterns[i])) {
+                state.set(i + 1);
+            }
+        }
+
+        return state;
+    }
+
+    private static boolean isWildcard(String name) {
+        return name.indexOf('*') >= 0 || name.indexOf('?') >= 0;
+    }
+
+    private static List<String> splitPath(String path) {
+        List<String> names = new ArrayList<String>();
+
+        for (String name : path.trim().split("[/\\\\]+")) {
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+
+        return names;
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.Constants.DIRECTORY_MTIME_GRANULARITY_IN_MILLIS;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The names of the files in a directory, with their last modified time once it
+ * has been asked for. It is kept up to date from the events of a watch key if the
+ * directory could be registered with a watch service. Otherwise it is listed again
+ * whenever the directory modified time changes, and last modified times are not
+ * kept as appending to a file does not change it.
+ *
+ * @author Satish Muddam
+ */
+public class DirectoryListing {
+
+    private static final Logger LOGGER = Logger.getLogger(DirectoryListing.class);
+
+    private static final long UNKNOWN = -1;
+
+    private final File directory;
+
+    private WatchKey watchKey;
+
+    private Map<String, Long> lastModifiedTimes;
+
+    private long directoryLastModified;
+
+    private long listedAt;
+
+    DirectoryListing(File directory, WatchKey watchKey) {
+        this.directory = directory;
+        this.watchKey = watchKey;
+    }
+
+    /**
+     * @return a listing of the directory which is not kept up to date
+     * @throws FileNotFoundException if the directory does not exist
+     */
+    public static DirectoryListing list(File directory) throws FileNotFoundException {
+        DirectoryListing listing = new DirectoryListing(directory, null);
+        listing.refresh();
+        return listing;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return the names of the files in the directory, no file is stat-ed
+     */
+    public synchronized List<String> getNames() {
+        return new ArrayList<String>(lastModifiedTimes.keySet());
+    }
+
+    /**
+     * @return the last modified time of the file, only read from the file system
+     * if unknown or changed since it was last read
+     */
+    public synchronized long lastModified(String name) {
+        Long lastModified = lastModifiedTimes.get(name);
+
+        if (lastModified == null || lastModified == UNKNOWN) {
+            lastModified = new File(directory, name).lastModified();
+
+            if (watchKey != null && lastModifiedTimes.containsKey(name)) {
+                lastModifiedTimes.put(name, lastModified);
+            }
+        }
+
+        return lastModified;
+    }
+
+    /**
+     * Applies the changes since the last refresh
+     *
+     * @throws FileNotFoundException if the directory does not exist anymore
+     */
+    synchronized void refresh() throws FileNotFoundException {
+        if (lastModifiedTimes == null) {
+            listAll();
+            return;
+        }
+
+        if (watchKey != null) {
+            if (!applyWatchEvents()) {
+                listAll();
+            }
+
+            return;
+        }
+
+        long lastModified = directory.lastModified();
+
+        // a change in the same tick as the previous listing would not change the time
+        if (lastModified != directoryLastModified ||
+                listedAt - directoryLastModified < DIRECTORY_MTIME_GRANULARITY_IN_MILLIS) {
+            listAll();
+        }
+    }
+
+    synchronized void cancel() {
+        if (watchKey != null) {
+            watchKey.cancel();
+            watchKey = null;
+        }
+    }
+
+    /**
+     * @return false if events were lost and the directory must be listed again
+     */
+    private boolean applyWatchEvents() {
+        boolean complete = true;
+
+        for (WatchEvent<?> event : watchKey.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                complete = false;
+                continue;
+            }
+
+            String name = ((Path) event.context()).toString();
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                lastModifiedTimes.remove(name);
+
+            } else {
+                lastModifiedTimes.put(name, UNKNOWN);
+            }
+        }
+
+        if (!watchKey.reset()) {
+            LOGGER.info(String.format("Directory [%s] is no longer watched", directory.getPath()));
+            watchKey = null;
+            return false;
+        }
+
+        return complete;
+    }
+
+    private void listAll() throws FileNotFoundException {
+        long lastModified = directory.lastModified();
+        String[] names = directory.list();
+
+        if (names == null) {
+            throw new FileNotFoundException(
+                    String.format("Directory [%s] not found. Ensure it is a directory.",
+                            directory.getPath()));
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Listed [%s] files in [%s]", names.length, directory.getPath()));
+        }
+
+        Map<String, Long> listedTimes = new HashMap<String, Long>(names.length * 2);
+
+        for (String name : names) {
+            listedTimes.put(name, UNKNOWN);
+        }
+
+        lastModifiedTimes = listedTimes;
+        directoryLastModified = lastModified;
+        listedAt = System.currentTimeMillis();
+    }
+
+}
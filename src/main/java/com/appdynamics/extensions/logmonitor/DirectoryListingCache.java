@@ -0,0 +1,238 @@
+package com.appdynamics.extensions.logmonitor;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a {@link DirectoryListing} per monitored directory between runs, so a
+ * directory with many files is not listed and stat-ed again by every log in every
+ * run. Logs in the same directory share its listing, and logs with the same
+ * {@link DirectoryGlob} share the {@link DirectoryTree} walked for it.
+ *
+ * <p>Directories are registered with a watch service if the file system supports
+ * it, and otherwise fall back to comparing the directory modified time.</p>
+ *
+ * <p>Directories and globs no longer used, e.g. directories matching a glob that
+ * have been removed, are dropped by {@link #evictUnused()} at the end of each run.</p>
+ *
+ * @author Satish Muddam
+ */
+public class DirectoryListingCache {
+
+    private static final Logger LOGGER = Logger.getLogger(DirectoryListingCache.class);
+
+    private final ConcurrentMap<String, DirectoryListing> listings =
+            new ConcurrentHashMap<String, DirectoryListing>();
+
+    private final ConcurrentMap<String, DirectoryTree> trees =
+            new ConcurrentHashMap<String, DirectoryTree>();
+
+    /**
+     * The generation each listing and tree was last used in, see {@link #evictUnused()}
+     */
+    private final ConcurrentMap<String, Long> listingsLastUsed = new ConcurrentHashMap<String, Long>();
+
+    private final ConcurrentMap<String, Long> treesLastUsed = new ConcurrentHashMap<String, Long>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private WatchService watchService;
+
+    private boolean watchServiceUnavailable;
+
+    public DirectoryListingCache() {
+    }
+
+    /**
+     * @param watchService the watch service to register the directories with
+     */
+    DirectoryListingCache(WatchService watchService) {
+        this.watchService = watchService;
+    }
+
+    /**
+     * @return the up to date listing of the directory
+     * @throws FileNotFoundException if the directory does not exist
+     */
+    public DirectoryListing getListing(File directory) throws FileNotFoundException {
+        String key = directory.getAbsoluteFile().toPath().normalize().toString();
+        listingsLastUsed.put(key, generation.get());
+        DirectoryListing listing = listings.get(key);
+
+        if (listing == null) {
+            DirectoryListing newListing = new DirectoryListing(directory, register(directory));
+            listing = listings.putIfAbsent(key, newListing);
+
+            if (listing == null) {
+                listing = newListing;
+
+            } else {
+                newListing.cancel();
+            }
+        }
+
+        drainWatchService();
+
+        try {
+            listing.refresh();
+
+        } catch (FileNotFoundException ex) {
+            listing.cancel();
+            listings.remove(key, listing);
+            listingsLastUsed.remove(key);
+            throw ex;
+        }
+
+        return listing;
+    }
+
+    /**
+     * @return the directories matching the glob, only walking the parts of the
+     * tree that changed since the last call
+     * @throws FileNotFoundException if the base directory does not exist
+     */
+    public List<File> getMatchingDirectories(DirectoryGlob glob) throws FileNotFoundException {
+        treesLastUsed.put(glob.getKey(), generation.get());
+        DirectoryTree tree = trees.get(glob.getKey());
+
+        if (tree == null) {
+            DirectoryTree newTree = new DirectoryTree(glob);
+            tree = trees.putIfAbsent(glob.getKey(), newTree);
+
+            if (tree == null) {
+                tree = newTree;
+            }
+        }
+
+        return tree.findMatchingDirectories();
+    }
+
+    /**
+     * Drops the listings and trees not used since the previous call, and stops
+     * watching their directories
+     */
+    public synchronized void evictUnused() {
+        long currentGeneration = generation.getAndIncrement();
+        int noOfEvicted = 0;
+
+        for (Iterator<Map.Entry<String, DirectoryListing>> iterator = listings.entrySet().iterator();
+             iterator.hasNext(); ) {
+            Map.Entry<String, DirectoryListing> entry = iterator.next();
+
+            if (isUnused(listingsLastUsed, entry.getKey(), currentGeneration)) {
+                entry.getValue().cancel();
+                iterator.remove();
+                noOfEvicted++;
+            }
+        }
+
+        for (Iterator<String> iterator = trees.keySet().iterator(); iterator.hasNext(); ) {
+            if (isUnused(treesLastUsed, iterator.next(), currentGeneration)) {
+                iterator.remove();
+                noOfEvicted++;
+            }
+        }
+
+        if (noOfEvicted > 0 && LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Evicted [%s] directory listings and trees no longer used", noOfEvicted));
+        }
+    }
+
+    /**
+     * Stops watching all directories
+     */
+    public synchronized void close() {
+        for (DirectoryListing listing : listings.values()) {
+            listing.cancel();
+        }
+
+        listings.clear();
+        trees.clear();
+        listingsLastUsed.clear();
+        treesLastUsed.clear();
+
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+            }
+
+            watchService = null;
+        }
+    }
+
+    private boolean isUnused(ConcurrentMap<String, Long> lastUsed, String key, long currentGeneration) {
+        Long lastUsedGeneration = lastUsed.get(key);
+
+        if (lastUsedGeneration == null || lastUsedGeneration < currentGeneration) {
+            lastUsed.remove(key, lastUsedGeneration);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Empties the queue of signalled keys. The events of a key are taken from the key
+     * itself when its listing is refreshed, but each time a key is signalled it is also
+     * queued on the watch service, where it would pile up if never taken.
+     */
+    private synchronized void drainWatchService() {
+        if (watchService == null) {
+            return;
+        }
+
+        try {
+            while (watchService.poll() != null) {
+            }
+
+        } catch (ClosedWatchServiceException ex) {
+            watchService = null;
+        }
+    }
+
+    /**
+     * @return the watch key of the directory, or null if it cannot be watched
+     */
+    private synchronized WatchKey register(File directory) {
+        if (watchServiceUnavailable || !directory.isDirectory()) {
+            return null;
+        }
+
+        try {
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+            }
+
+            return directory.toPath().register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+
+        } catch (UnsupportedOperationException ex) {
+            LOGGER.info("Watch service not supported, directories are listed again when modified");
+            watchServiceUnavailable = true;
+
+        } catch (IOException ex) {
+            LOGGER.warn(String.format("Unable to watch directory [%s], it is listed again when modified",
+                    directory.getPath()), ex);
+        }
+
+        return null;
+    }
+
+}
@@ -0,0 +1,176 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.Constants.DIRECTORY_MTIME_GRANULARITY_IN_MILLIS;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The directories below the base directory of a {@link DirectoryGlob} that can lead
+ * to a match, kept between runs. In each run every known directory is only stat-ed,
+ * and listed again if its modified time changed, i.e. a sub directory may have been
+ * added or removed. New sub directories are walked from there, in parallel on a
+ * fork-join pool and no deeper than the maximum depth of the glob.
+ *
+ * @author Satish Muddam
+ */
+public class DirectoryTree {
+
+    private static final Logger LOGGER = Logger.getLogger(DirectoryTree.class);
+
+    private static final ForkJoinPool WALK_POOL = new ForkJoinPool();
+
+    private final DirectoryGlob glob;
+
+    private final Node root;
+
+    public DirectoryTree(DirectoryGlob glob) {
+        this.glob = glob;
+        this.root = new Node(glob.getBaseDirectory(), glob.getInitialState(), 0);
+    }
+
+    /**
+     * @return the directories matching the glob
+     * @throws FileNotFoundException if the base directory does not exist
+     */
+    public synchronized List<File> findMatchingDirectories() throws FileNotFoundException {
+        if (!root.directory.isDirectory()) {
+            throw new FileNotFoundException(
+                    String.format("Directory [%s] not found. Ensure it is a directory.",
+                            root.directory.getPath()));
+        }
+
+        WALK_POOL.invoke(new RefreshTask(root));
+
+        List<File> directories = new ArrayList<File>();
+        collectMatches(root, directories);
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Found [%s] directories matching [%s]",
+                    directories.size(), glob.getKey()));
+        }
+
+        return directories;
+    }
+
+    private void collectMatches(Node node, List<File> directories) {
+        if (glob.isMatch(node.state)) {
+            directories.add(node.directory);
+        }
+
+        for (Node child : node.children.values()) {
+            collectMatches(child, directories);
+        }
+    }
+
+    private static class Node {
+
+        private final File directory;
+
+        private final BitSet state;
+
+        private final int depth;
+
+        private Map<String, Node> children = Collections.emptyMap();
+
+        // names which could match but are not directories, so they are not stat-ed again
+        private Set<String> files = Collections.emptySet();
+
+        private long lastModified = -1;
+
+        private long listedAt;
+
+        private Node(File directory, BitSet state, int depth) {
+            this.directory = directory;
+            this.state = state;
+            this.depth = depth;
+        }
+    }
+
+    private class RefreshTask extends RecursiveAction {
+
+        private static final long serialVersionUID = -3417915374432045152L;
+
+        private final Node node;
+
+        private RefreshTask(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        protected void compute() {
+            if (node.depth < glob.getMaxDepth() && glob.canDescend(node.state)) {
+                listIfModified();
+            }
+
+            List<RefreshTask> subtasks = new ArrayList<RefreshTask>(node.children.size());
+
+            for (Node child : node.children.values()) {
+                subtasks.add(new RefreshTask(child));
+            }
+
+            invokeAll(subtasks);
+        }
+
+        private void listIfModified() {
+            long lastModified = node.directory.lastModified();
+
+            // a change in the same tick as the previous listing would not change the time
+            if (lastModified == node.lastModified &&
+                    node.listedAt - lastModified >= DIRECTORY_MTIME_GRANULARITY_IN_MILLIS) {
+                return;
+            }
+
+            String[] names = node.directory.list();
+            Map<String, Node> children = new HashMap<String, Node>();
+            Set<String> files = new HashSet<String>();
+
+            for (String name : names != null ? names : new String[0]) {
+                Node child = node.children.get(name);
+
+                if (child != null) {
+                    children.put(name, child);
+                    continue;
+                }
+
+                if (node.files.contains(name)) {
+                    files.add(name);
+                    continue;
+                }
+
+                BitSet nextState = glob.getNextState(node.state, name);
+
+                if (nextState.isEmpty()) {
+                    continue;
+                }
+
+                File file = new File(node.directory, name);
+
+                if (file.isDirectory()) {
+                    children.put(name, new Node(file, nextState, node.depth + 1));
+
+                } else {
+                    files.add(name);
+                }
+            }
+
+            node.children = children;
+            node.files = files;
+            node.lastModified = lastModified;
+            node.listedAt = System.currentTimeMillis();
+        }
+    }
+
+}
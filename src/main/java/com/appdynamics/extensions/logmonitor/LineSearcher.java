@@ -0,0 +1,454 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.Constants.DEADLINE_CHECK_INTERVAL;
+import static com.appdynamics.extensions.logmonitor.Constants.METRIC_PATH_SEPARATOR;
+import static com.appdynamics.extensions.logmonitor.Constants.MIN_LITERALS_FOR_AUTOMATON;
+import static com.appdynamics.extensions.logmonitor.Constants.MIN_REGEXES_FOR_COMBINED_PATTERN;
+import static com.appdynamics.extensions.logmonitor.Constants.OVERSIZED_LINES_METRIC_NAME;
+import static com.appdynamics.extensions.logmonitor.Constants.OVERSIZED_LINE_OVERLAP;
+import static com.appdynamics.extensions.logmonitor.Constants.PREFILTER;
+import static com.appdynamics.extensions.logmonitor.Constants.PREFILTER_CANDIDATE_LINES_METRIC_NAME;
+import static com.appdynamics.extensions.logmonitor.Constants.PREFILTER_LINES_CHECKED_METRIC_NAME;
+import static com.appdynamics.extensions.logmonitor.Constants.SEARCH_STRING;
+import static com.appdynamics.extensions.logmonitor.Constants.THROTTLED_TIME_METRIC_NAME;
+
+import com.appdynamics.extensions.logmonitor.reader.LineView;
+import com.appdynamics.extensions.logmonitor.reader.LogReader;
+import com.appdynamics.extensions.logmonitor.regex.RegexMatcher;
+import org.apache.commons.lang.WordUtils;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Counts the occurrences of a log's search patterns in a line.
+ *
+ * <p>Oversized lines arrive as overlapping segments, see {@link LineView#isSegment()}.
+ * A match is counted in the segment it starts in, where the first half of the
+ * overlap belongs to the previous segment and the second half to the next one. The
+ * previous segment's half also serves as look-behind context. Matches of up to half
+ * the overlap in length are therefore counted exactly once, even if they span a
+ * segment boundary.</p>
+ *
+ * <p>When a log has several plain string patterns, these are searched for all at once
+ * by a {@link LiteralSearcher}. Likewise the regex patterns are searched for in a single
+ * pass by a {@link CombinedRegexSearcher}, except for the few that cannot be combined,
+ * which are run one by one.</p>
+ *
+ * <p>A regex is only run on the lines containing its {@link RequiredLiteral}, and the
+ * combined regex only if any of its patterns may match. The lines checked and the
+ * candidate lines left are counted per pattern, and reported once per scan if asked
+ * for, see {@link #setReportPrefilterCounts(boolean)}.</p>
+ *
+ * <p>An instance keeps per-line state for segments, so concurrent scans each need
+ * their own instance, see {@link #LineSearcher(LineSearcher)}.</p>
+ *
+ * @author Satish Muddam
+ */
+public class LineSearcher {
+
+    private static final Logger LOGGER = Logger.getLogger(LineSearcher.class);
+
+    private List<SearchPattern> searchPatterns;
+
+    /**
+     * The patterns searched for one by one
+     */
+    private List<SearchPattern> regexPatterns;
+
+    private LiteralSearcher literalSearcher;
+
+    private CombinedRegexSearcher combinedRegexSearcher;
+
+    private String logMetricPrefix;
+
+    private String oversizedLinesMetricName;
+
+    private String throttledTimeMetricName;
+
+    private ResourceGovernor resourceGovernor;
+
+    /**
+     * The regex patterns followed by the combined ones, see {@link #getPrefilterIndex(int, boolean)}
+     */
+    private List<SearchPattern> prefilteredPatterns;
+
+    private String[] prefilterMetricPrefixes;
+
+    private long[] linesChecked;
+
+    private long[] candidateLines;
+
+    private boolean reportPrefilterCounts;
+
+    /**
+     * Per pattern, the index in the next segment from which to continue searching
+     */
+    private int[] resumePositions;
+
+    /**
+     * @param searchPatterns the log's compiled search patterns
+     * @param logNamePrefix  the log's display name followed by the metric path separator
+     */
+    public LineSearcher(List<SearchPattern> searchPatterns, String logNamePrefix) {
+        this.searchPatterns = searchPatterns;
+        this.logMetricPrefix = logNamePrefix + SEARCH_STRING + METRIC_PATH_SEPARATOR;
+        this.oversizedLinesMetricName = logNamePrefix + OVERSIZED_LINES_METRIC_NAME;
+        this.throttledTimeMetricName = logNamePrefix + THROTTLED_TIME_METRIC_NAME;
+        this.resumePositions = new int[searchPatterns.size()];
+
+        List<SearchPattern> literalPatterns = new ArrayList<SearchPattern>();
+        this.regexPatterns = new ArrayList<SearchPattern>();
+
+        for (SearchPattern searchPattern : searchPatterns) {
+            if (LiteralSearcher.isSupported(searchPattern)) {
+                literalPatterns.add(searchPattern);
+
+            } else {
+                regexPatterns.add(searchPattern);
+            }
+        }
+
+        if (literalPatterns.size() >= MIN_LITERALS_FOR_AUTOMATON) {
+            this.literalSearcher = new LiteralSearcher(literalPatterns, logMetricPrefix);
+
+        } else {
+            this.regexPatterns = searchPatterns;
+        }
+
+        combineRegexPatterns();
+        initPrefilterCounts(logNamePrefix);
+    }
+
+    /**
+     * Shares the compiled patterns of the given searcher, with its own state
+     */
+    public LineSearcher(LineSearcher lineSearcher) {
+        this.searchPatterns = lineSearcher.searchPatterns;
+        this.logMetricPrefix = lineSearcher.logMetricPrefix;
+        this.oversizedLinesMetricName = lineSearcher.oversizedLinesMetricName;
+        this.throttledTimeMetricName = lineSearcher.throttledTimeMetricName;
+        this.resourceGovernor = lineSearcher.resourceGovernor;
+        this.resumePositions = new int[searchPatterns.size()];
+        this.regexPatterns = lineSearcher.regexPatterns;
+        this.literalSearcher = lineSearcher.literalSearcher != null ?
+                new LiteralSearcher(lineSearcher.literalSearcher) : null;
+        this.combinedRegexSearcher = lineSearcher.combinedRegexSearcher != null ?
+                new CombinedRegexSearcher(lineSearcher.combinedRegexSearcher) : null;
+        this.reportPrefilterCounts = lineSearcher.reportPrefilterCounts;
+        this.prefilteredPatterns = lineSearcher.prefilteredPatterns;
+        this.prefilterMetricPrefixes = lineSearcher.prefilterMetricPrefixes;
+        this.linesChecked = new long[prefilteredPatterns.size()];
+        this.candidateLines = new long[prefilteredPatterns.size()];
+    }
+
+    private void initPrefilterCounts(String logNamePrefix) {
+        this.prefilteredPatterns = new ArrayList<SearchPattern>(regexPatterns);
+
+        if (combinedRegexSearcher != null) {
+            prefilteredPatterns.addAll(combinedRegexSearcher.getSearchPatterns());
+        }
+
+        this.prefilterMetricPrefixes = new String[prefilteredPatterns.size()];
+        this.linesChecked = new long[prefilteredPatterns.size()];
+        this.candidateLines = new long[prefilteredPatterns.size()];
+
+        for (int i = 0; i < prefilteredPatterns.size(); i++) {
+            SearchPattern searchPattern = prefilteredPatterns.get(i);
+
+            if (searchPattern.getRequiredLiteral() != null) {
+                prefilterMetricPrefixes[i] = logNamePrefix + PREFILTER + METRIC_PATH_SEPARATOR +
+                        searchPattern.getDisplayName() + METRIC_PATH_SEPARATOR;
+
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug(String.format("Prefiltering [%s] with [%s]",
+                            searchPattern.getPattern().pattern(), searchPattern.getRequiredLiteral().getLiteral()));
+                }
+            }
+        }
+    }
+
+    private void combineRegexPatterns() {
+        List<SearchPattern> combinedPatterns = new ArrayList<SearchPattern>();
+        List<SearchPattern> otherPatterns = new ArrayList<SearchPattern>();
+
+        for (SearchPattern searchPattern : regexPatterns) {
+            if (CombinedRegexSearcher.isSupported(searchPattern)) {
+                combinedPatterns.add(searchPattern);
+
+            } else {
+                otherPatterns.add(searchPattern);
+            }
+        }
+
+        if (combinedPatterns.size() < MIN_REGEXES_FOR_COMBINED_PATTERN) {
+            return;
+        }
+
+        try {
+            combinedRegexSearcher = new CombinedRegexSearcher(combinedPatterns);
+            regexPatterns = otherPatterns;
+
+        } catch (PatternSyntaxException ex) {
+            LOGGER.warn("Unable to combine the search patterns, these are searched one by one", ex);
+        }
+    }
+
+    /**
+     * Sets the governor the scans report their reads and CPU time to, and are
+     * throttled by. Without it the scans are not limited.
+     */
+    public void setResourceGovernor(ResourceGovernor resourceGovernor) {
+        this.resourceGovernor = resourceGovernor;
+    }
+
+    /**
+     * Sets whether the scans report, per regex with a required literal, the lines it
+     * was checked against and the candidate lines the regex was run on
+     */
+    public void setReportPrefilterCounts(boolean reportPrefilterCounts) {
+        this.reportPrefilterCounts = reportPrefilterCounts;
+    }
+
+    /**
+     * Searches the lines of the reader from its current position until its end, or
+     * until the deadline has passed. The scan only stops at line boundaries, so the
+     * returned position can be used as the file pointer to resume from.
+     *
+     * @param deadline time in millis after which the scan stops
+     */
+    public ScanResult scan(LogReader logReader, long deadline) throws IOException {
+        return scan(logReader, Collections.singletonList(this),
+                new long[]{logReader.getFilePointer()}, deadline).get(0);
+    }
+
+    /**
+     * Same as {@link #scan(LogReader, long)}, but reads the lines once for the searchers
+     * of several logs of the same file. Each searcher only searches the lines from its
+     * start position, which must be at or after the reader's position. The scan is
+     * throttled by the governor of the first searcher.
+     *
+     * @param startPositions per searcher, the offset of the first line to search
+     * @return per searcher, the result of the scan
+     */
+    public static List<ScanResult> scan(LogReader logReader, List<LineSearcher> lineSearchers,
+                                        long[] startPositions, long deadline) throws IOException {
+        LogMetrics[] logMetrics = new LogMetrics[lineSearchers.size()];
+
+        for (int i = 0; i < logMetrics.length; i++) {
+            logMetrics[i] = new LogMetrics();
+        }
+
+        long position = logReader.getFilePointer();
+
+        if (System.currentTimeMillis() >= deadline) {
+            return getScanResults(logMetrics, startPositions, position, false);
+        }
+
+        ResourceGovernor governor = lineSearchers.get(0).resourceGovernor;
+        governor = governor != null && governor.isLimited() ? governor : null;
+
+        long throttledPosition = position;
+        long throttledCpuTime = governor != null ? ResourceGovernor.getCurrentThreadCpuTime() : 0;
+        long throttledTime = 0;
+
+        int linesSinceDeadlineCheck = 0;
+        CharSequence currentLine = null;
+        boolean complete = true;
+
+        while ((currentLine = logReader.readLineView()) != null) {
+            // position is the start of the line, also for the segments of an oversized line
+            for (int i = 0; i < logMetrics.length; i++) {
+                if (position >= startPositions[i]) {
+                    lineSearchers.get(i).incrementWordCountIfSearchStringMatched(currentLine, logMetrics[i]);
+                }
+            }
+
+            if (logReader.isAtLineBoundary()) {
+                position = logReader.getFilePointer();
+
+                if (++linesSinceDeadlineCheck >= DEADLINE_CHECK_INTERVAL) {
+                    linesSinceDeadlineCheck = 0;
+
+                    if (governor != null) {
+                        long cpuTime = ResourceGovernor.getCurrentThreadCpuTime();
+                        throttledTime += governor.throttle(position - throttledPosition,
+                                cpuTime - throttledCpuTime, deadline);
+
+                        throttledPosition = position;
+                        throttledCpuTime = cpuTime;
+                    }
+
+                    if (System.currentTimeMillis() >= deadline) {
+                        complete = false;
+                        break;
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < logMetrics.length; i++) {
+            lineSearchers.get(i).addPrefilterCounts(logMetrics[i]);
+        }
+
+        if (governor != null) {
+            // what was read since the last check is paid for by the next scan
+            governor.throttle(position - throttledPosition,
+                    ResourceGovernor.getCurrentThreadCpuTime() - throttledCpuTime, 0);
+
+            for (int i = 0; i < logMetrics.length; i++) {
+                logMetrics[i].add(lineSearchers.get(i).throttledTimeMetricName, BigInteger.valueOf(throttledTime));
+            }
+        }
+
+        return getScanResults(logMetrics, startPositions, position, complete);
+    }
+
+    /**
+     * A searcher whose start position was not reached resumes from it
+     */
+    private static List<ScanResult> getScanResults(LogMetrics[] logMetrics, long[] startPositions,
+                                                   long position, boolean complete) {
+        List<ScanResult> scanResults = new ArrayList<ScanResult>(logMetrics.length);
+
+        for (int i = 0; i < logMetrics.length; i++) {
+            scanResults.add(new ScanResult(logMetrics[i], Math.max(position, startPositions[i]), complete));
+        }
+
+        return scanResults;
+    }
+
+    public void incrementWordCountIfSearchStringMatched(CharSequence stringToCheck,
+                                                         LogMetrics logMetrics) {
+
+        if (stringToCheck instanceof LineView && ((LineView) stringToCheck).isSegment()) {
+            incrementWordCountInSegment((LineView) stringToCheck, logMetrics);
+            return;
+        }
+
+        if (literalSearcher != null) {
+            literalSearcher.search(stringToCheck, logMetrics);
+        }
+
+        if (combinedRegexSearcher != null) {
+            List<SearchPattern> combinedPatterns = combinedRegexSearcher.getSearchPatterns();
+            boolean mayMatch = false;
+
+            // all are checked, so that their counts are complete
+            for (int i = 0; i < combinedPatterns.size(); i++) {
+                mayMatch |= mayMatch(combinedPatterns.get(i), getPrefilterIndex(i, true), stringToCheck);
+            }
+
+            if (mayMatch) {
+                combinedRegexSearcher.search(stringToCheck, this, logMetrics);
+            }
+        }
+
+        for (int i = 0; i < regexPatterns.size(); i++) {
+            SearchPattern searchPattern = regexPatterns.get(i);
+
+            if (!mayMatch(searchPattern, getPrefilterIndex(i, false), stringToCheck)) {
+                continue;
+            }
+
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Searching for [%s]", searchPattern.getPattern().pattern()));
+            }
+
+            RegexMatcher matcher = searchPattern.getRegexMatcher(stringToCheck);
+
+            while (matcher.find()) {
+                incrementWordCount(searchPattern, matcher.group(), logMetrics);
+            }
+        }
+    }
+
+    private boolean mayMatch(SearchPattern searchPattern, int prefilterIndex, CharSequence stringToCheck) {
+        if (searchPattern.getRequiredLiteral() == null) {
+            return true;
+        }
+
+        linesChecked[prefilterIndex]++;
+
+        if (!searchPattern.mayMatch(stringToCheck)) {
+            return false;
+        }
+
+        candidateLines[prefilterIndex]++;
+        return true;
+    }
+
+    private int getPrefilterIndex(int index, boolean combined) {
+        return combined ? regexPatterns.size() + index : index;
+    }
+
+    /**
+     * Adds the prefilter counts since the last call to the metrics, if reported
+     */
+    private void addPrefilterCounts(LogMetrics logMetrics) {
+        for (int i = 0; i < prefilterMetricPrefixes.length; i++) {
+            if (linesChecked[i] == 0) {
+                continue;
+            }
+
+            if (reportPrefilterCounts) {
+                logMetrics.add(prefilterMetricPrefixes[i] + PREFILTER_LINES_CHECKED_METRIC_NAME,
+                        BigInteger.valueOf(linesChecked[i]));
+                logMetrics.add(prefilterMetricPrefixes[i] + PREFILTER_CANDIDATE_LINES_METRIC_NAME,
+                        BigInteger.valueOf(candidateLines[i]));
+            }
+
+            linesChecked[i] = 0;
+            candidateLines[i] = 0;
+        }
+    }
+
+    private void incrementWordCountInSegment(LineView segment, LogMetrics logMetrics) {
+        boolean firstSegment = segment.getOverlap() == 0;
+
+        if (firstSegment) {
+            logMetrics.add(oversizedLinesMetricName);
+        }
+
+        int countFrom = segment.getOverlap() / 2;
+        int countTo = segment.isLastSegment() ?
+                segment.length() : segment.length() - OVERSIZED_LINE_OVERLAP / 2;
+
+        for (int i = 0; i < searchPatterns.size(); i++) {
+            SearchPattern searchPattern = searchPatterns.get(i);
+
+            int searchFrom = firstSegment ? 0 : Math.max(countFrom, resumePositions[i]);
+            int lastMatchEnd = searchFrom;
+
+            RegexMatcher matcher = searchPattern.getRegexMatcher(segment);
+            boolean found = matcher.find(searchFrom);
+
+            while (found && matcher.start() < countTo) {
+                incrementWordCount(searchPattern, matcher.group(), logMetrics);
+                lastMatchEnd = matcher.end();
+                found = matcher.find();
+            }
+
+            // the next segment starts with the last OVERSIZED_LINE_OVERLAP chars of this one
+            resumePositions[i] = lastMatchEnd - (segment.length() - OVERSIZED_LINE_OVERLAP);
+        }
+    }
+
+    void incrementWordCount(SearchPattern searchPattern, String match, LogMetrics logMetrics) {
+        String word = match.trim();
+
+        if (searchPattern.getCaseSensitive()) {
+
+            logMetrics.add(logMetricPrefix + searchPattern.getDisplayName() + METRIC_PATH_SEPARATOR + word);
+
+        } else {
+            logMetrics.add(logMetricPrefix + searchPattern.getDisplayName() + METRIC_PATH_SEPARATOR + WordUtils.capitalizeFully(word));
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.createPattern;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the compiled {@link LineSearcher} of each log, so its patterns, the automaton
+ * of its plain words and its combined regex are compiled once rather than by every
+ * task. Searchers are keyed by the search strings and the names of their metrics, so
+ * a log whose search strings changed gets a new one, while the searchers of the
+ * previous config are dropped by {@link #retainAll(List)}.
+ *
+ * <p>The cached searchers are templates without a resource governor, each scan
+ * searching with a copy of its own, see {@link LineSearcher#LineSearcher(LineSearcher)}.</p>
+ *
+ * @author Satish Muddam
+ */
+public class LineSearcherCache {
+
+    private final ConcurrentMap<List<Object>, LineSearcher> lineSearchers =
+            new ConcurrentHashMap<List<Object>, LineSearcher>();
+
+    /**
+     * @param logNamePrefix the prefix of the log's metrics
+     * @return the compiled searcher of the log's search strings
+     */
+    public LineSearcher get(Log log, String logNamePrefix) {
+        List<Object> key = getKey(log, logNamePrefix);
+        LineSearcher lineSearcher = lineSearchers.get(key);
+
+        if (lineSearcher == null) {
+            LineSearcher newLineSearcher = compile(log, logNamePrefix);
+            lineSearcher = lineSearchers.putIfAbsent(key, newLineSearcher);
+
+            if (lineSearcher == null) {
+                lineSearcher = newLineSearcher;
+            }
+        }
+
+        return lineSearcher;
+    }
+
+    /**
+     * Drops the searchers of the logs not in the given ones, e.g. of search strings
+     * changed or removed from the config
+     */
+    public void retainAll(List<Log> logs) {
+        Set<List<Object>> keys = new HashSet<List<Object>>();
+
+        for (Log log : logs) {
+            keys.add(getKey(log, LogMonitorTask.getLogNamePrefix(log)));
+        }
+
+        lineSearchers.keySet().retainAll(keys);
+    }
+
+    /**
+     * @return a new searcher of the log's search strings
+     */
+    public static LineSearcher compile(Log log, String logNamePrefix) {
+        LineSearcher lineSearcher = new LineSearcher(createPattern(log.getSearchStrings()), logNamePrefix);
+        lineSearcher.setReportPrefilterCounts(Boolean.TRUE.equals(log.getPrefilterMetrics()));
+        return lineSearcher;
+    }
+
+    /**
+     * @return what the compiled searcher depends on
+     */
+    private List<Object> getKey(Log log, String logNamePrefix) {
+        List<Object> key = new ArrayList<Object>();
+        key.add(logNamePrefix);
+        key.add(Boolean.TRUE.equals(log.getPrefilterMetrics()));
+
+        for (SearchString searchString : log.getSearchStrings()) {
+            key.add(searchString.getDisplayName());
+            key.add(searchString.getPattern());
+            key.add(searchString.getMatchExactString());
+            key.add(searchString.getCaseSensitive());
+            key.add(searchString.getEngine());
+        }
+
+        return key;
+    }
+
+}
@@ -0,0 +1,366 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.Constants.METRIC_PATH_SEPARATOR;
+
+import org.apache.commons.lang.WordUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Searches a line for all the literal search patterns of a log at once, with an
+ * Aho-Corasick automaton, instead of running one regex per pattern over the line.
+ *
+ * <p>The automaton is built on the literals with ASCII letters lower cased, which is
+ * how java.util.regex matches case insensitive patterns by default. Case sensitive
+ * literals are then compared as they are, and exact strings must be surrounded by
+ * whitespace or the start or end of the line, as their regex requires. As with
+ * {@link java.util.regex.Matcher#find()}, occurrences of a pattern do not overlap, so
+ * the counts are the same as from the pattern's regex.</p>
+ *
+ * <p>The automaton is shared, while the per-line state is per instance, so concurrent
+ * searches each need their own instance, see {@link #LiteralSearcher(LiteralSearcher)}.</p>
+ *
+ * @author Satish Muddam
+ */
+public class LiteralSearcher {
+
+    private static final int ROOT = 0;
+
+    private static final int NO_STATE = -1;
+
+    private static final int ASCII_SIZE = 128;
+
+    private final List<SearchPattern> searchPatterns;
+
+    private final String[] metricPrefixes;
+
+    private final String[] metricNames;
+
+    /**
+     * Per state, its transitions sorted by char, except for the ASCII transitions of
+     * the root which are looked up directly
+     */
+    private final char[][] labels;
+
+    private final int[][] targets;
+
+    private final int[] rootTargets;
+
+    private final int[] failures;
+
+    /**
+     * Per state, the patterns ending in it, including those of its failure states
+     */
+    private final int[][] outputs;
+
+    /**
+     * Per pattern, the end of its last occurrence counted in the line
+     */
+    private final int[] lastMatchEnds;
+
+    private final int[] lastMatchLines;
+
+    private int line;
+
+    /**
+     * @param searchPatterns the patterns to search, all of which must be supported
+     * @param logMetricPrefix the prefix of the search string metrics of the log
+     * @see #isSupported(SearchPattern)
+     */
+    public LiteralSearcher(List<SearchPattern> searchPatterns, String logMetricPrefix) {
+        this.searchPatterns = searchPatterns;
+        this.metricPrefixes = new String[searchPatterns.size()];
+        this.metricNames = new String[searchPatterns.size()];
+
+        List<Map<Character, Integer>> trie = new ArrayList<Map<Character, Integer>>();
+        List<List<Integer>> trieOutputs = new ArrayList<List<Integer>>();
+        trie.add(new HashMap<Character, Integer>());
+        trieOutputs.add(new ArrayList<Integer>());
+
+        for (int i = 0; i < searchPatterns.size(); i++) {
+            SearchPattern searchPattern = searchPatterns.get(i);
+            String literal = searchPattern.getLiteral();
+            int state = ROOT;
+
+            for (int j = 0; j < literal.length(); j++) {
+                Character c = toLowerAscii(literal.charAt(j));
+                Integer next = trie.get(state).get(c);
+
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<Character, Integer>());
+                    trieOutputs.add(new ArrayList<Integer>());
+                    trie.get(state).put(c, next);
+                }
+
+                state = next;
+            }
+
+            trieOutputs.get(state).add(i);
+
+            String word = searchPattern.getCaseSensitive() ? literal : WordUtils.capitalizeFully(literal);
+            metricPrefixes[i] = logMetricPrefix + searchPattern.getDisplayName() + METRIC_PATH_SEPARATOR;
+            metricNames[i] = metricPrefixes[i] + word;
+        }
+
+        int noOfStates = trie.size();
+        this.labels = new char[noOfStates][];
+        this.targets = new int[noOfStates][];
+        this.rootTargets = new int[ASCII_SIZE];
+        this.failures = new int[noOfStates];
+        this.outputs = new int[noOfStates][];
+
+        for (int state = 0; state < noOfStates; state++) {
+            compileTransitions(state, trie.get(state));
+        }
+
+        computeFailures(trie, trieOutputs);
+
+        this.lastMatchEnds = new int[searchPatterns.size()];
+        this.lastMatchLines = new int[searchPatterns.size()];
+    }
+
+    /**
+     * Shares the automaton of the given searcher, with its own state
+     */
+    public LiteralSearcher(LiteralSearcher literalSearcher) {
+        this.searchPatterns = literalSearcher.searchPatterns;
+        this.metricPrefixes = literalSearcher.metricPrefixes;
+        this.metricNames = literalSearcher.metricNames;
+        this.labels = literalSearcher.labels;
+        this.targets = literalSearcher.targets;
+        this.rootTargets = literalSearcher.rootTargets;
+        this.failures = literalSearcher.failures;
+        this.outputs = literalSearcher.outputs;
+        this.lastMatchEnds = new int[searchPatterns.size()];
+        this.lastMatchLines = new int[searchPatterns.size()];
+    }
+
+    /**
+     * @return true if the pattern is a plain string the automaton can search for
+     */
+    public static boolean isSupported(SearchPattern searchPattern) {
+        String literal = searchPattern.getLiteral();
+
+        if (literal == null || literal.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < literal.length(); i++) {
+            if (Character.isSurrogate(literal.charAt(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    public List<SearchPattern> getSearchPatterns() {
+        return searchPatterns;
+    }
+
+    /**
+     * Counts the occurrences of the patterns in the line, in a single pass over it
+     */
+    public void search(CharSequence stringToCheck, LogMetrics logMetrics) {
+        // a new line number resets the last match ends
+        line++;
+
+        int state = ROOT;
+        int length = stringToCheck.length();
+
+        for (int i = 0; i < length; i++) {
+            state = nextState(state, toLowerAscii(stringToCheck.charAt(i)));
+            int[] stateOutputs = outputs[state];
+
+            for (int j = 0; j < stateOutputs.length; j++) {
+                countMatch(stringToCheck, stateOutputs[j], i + 1, logMetrics);
+            }
+        }
+    }
+
+    /**
+     * Occurrences of a pattern are reported in the order they start, as they all have
+     * the same length
+     */
+    private void countMatch(CharSequence stringToCheck, int pattern, int end, LogMetrics logMetrics) {
+        SearchPattern searchPattern = searchPatterns.get(pattern);
+        String literal = searchPattern.getLiteral();
+        int start = end - literal.length();
+
+        if (lastMatchLines[pattern] == line && start < lastMatchEnds[pattern]) {
+            return;
+        }
+
+        boolean sameCase = regionEquals(stringToCheck, start, literal);
+
+        if (searchPattern.getCaseSensitive() && !sameCase) {
+            return;
+        }
+
+        if (searchPattern.isMatchExactString() &&
+                !(isStartBoundary(stringToCheck, start) && isEndBoundary(stringToCheck, end))) {
+            return;
+        }
+
+        lastMatchLines[pattern] = line;
+        lastMatchEnds[pattern] = end;
+
+        if (sameCase) {
+            logMetrics.add(metricNames[pattern]);
+
+        } else {
+            String word = stringToCheck.subSequence(start, end).toString().trim();
+            logMetrics.add(metricPrefixes[pattern] + WordUtils.capitalizeFully(word));
+        }
+    }
+
+    private int nextState(int state, char c) {
+        while (true) {
+            int next = getTarget(state, c);
+
+            if (next != NO_STATE) {
+                return next;
+            }
+
+            if (state == ROOT) {
+                return ROOT;
+            }
+
+            state = failures[state];
+        }
+    }
+
+    private int getTarget(int state, char c) {
+        if (state == ROOT && c < ASCII_SIZE) {
+            return rootTargets[c];
+        }
+
+        int index = Arrays.binarySearch(labels[state], c);
+        return index >= 0 ? targets[state][index] : NO_STATE;
+    }
+
+    private void compileTransitions(int state, Map<Character, Integer> transitions) {
+        char[] stateLabels = new char[transitions.size()];
+        int i = 0;
+
+        for (Character c : transitions.keySet()) {
+            stateLabels[i++] = c;
+        }
+
+        Arrays.sort(stateLabels);
+
+        int[] stateTargets = new int[stateLabels.length];
+
+        for (i = 0; i < stateLabels.length; i++) {
+            stateTargets[i] = transitions.get(stateLabels[i]);
+        }
+
+        labels[state] = stateLabels;
+        targets[state] = stateTargets;
+
+        if (state == ROOT) {
+            Arrays.fill(rootTargets, NO_STATE);
+
+            for (i = 0; i < stateLabels.length; i++) {
+                if (stateLabels[i] < ASCII_SIZE) {
+                    rootTargets[stateLabels[i]] = stateTargets[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Breadth first, so that the failure state of a state, which is shallower, is
+     * complete when the state is reached
+     */
+    private void computeFailures(List<Map<Character, Integer>> trie, List<List<Integer>> trieOutputs) {
+        Queue<Integer> queue = new LinkedList<Integer>();
+        failures[ROOT] = ROOT;
+        outputs[ROOT] = toArray(trieOutputs.get(ROOT));
+
+        for (Integer child : trie.get(ROOT).values()) {
+            failures[child] = ROOT;
+            queue.add(child);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            List<Integer> stateOutputs = trieOutputs.get(state);
+            stateOutputs.addAll(trieOutputs.get(failures[state]));
+            outputs[state] = toArray(stateOutputs);
+
+            for (Map.Entry<Character, Integer> transition : trie.get(state).entrySet()) {
+                int child = transition.getValue();
+                int failure = failures[state];
+
+                while (failure != ROOT && !trie.get(failure).containsKey(transition.getKey())) {
+                    failure = failures[failure];
+                }
+
+                Integer failureTarget = trie.get(failure).get(transition.getKey());
+                failures[child] = failureTarget != null ? failureTarget : ROOT;
+                queue.add(child);
+            }
+        }
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+
+        return array;
+    }
+
+    private static boolean regionEquals(CharSequence stringToCheck, int start, String literal) {
+        for (int i = 0; i < literal.length(); i++) {
+            if (stringToCheck.charAt(start + i) != literal.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Same as (?&lt;=\s|^)
+     */
+    private static boolean isStartBoundary(CharSequence stringToCheck, int start) {
+        return start == 0 || isWhitespace(stringToCheck.charAt(start - 1));
+    }
+
+    /**
+     * Same as (?=\s|$), where $ also matches before a line terminator ending the input
+     */
+    private static boolean isEndBoundary(CharSequence stringToCheck, int end) {
+        int length = stringToCheck.length();
+
+        if (end == length || isWhitespace(stringToCheck.charAt(end))) {
+            return true;
+        }
+
+        char c = stringToCheck.charAt(end);
+        return end == length - 1 && (c == '\u0085' || c == '\u2028' || c == '\u2029');
+    }
+
+    /**
+     * Same as \s, i.e. [ \t\n\x0B\f\r]
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+}
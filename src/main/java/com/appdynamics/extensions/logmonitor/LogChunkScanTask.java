@@ -0,0 +1,275 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.Constants.CHUNK_FINISH_GRACE_IN_SECONDS;
+import static com.appdynamics.extensions.logmonitor.reader.LogReaderFactory.alignToLineStart;
+import static com.appdynamics.extensions.logmonitor.reader.LogReaderFactory.createLogReader;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.closeLogReader;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.exceptions.FileException;
+import com.appdynamics.extensions.logmonitor.reader.LogReader;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans the byte range [start, end) of a log file in chunks of the chunk size, split at
+ * line boundaries. The chunks are handed out in file order to one worker per thread of
+ * the pool, and each chunk is read by its own reader into its own {@link LogMetrics}.
+ * <p>
+ * Workers stop at the deadline and start no chunk after it. As only a contiguous range
+ * from <code>start</code> can be committed, a chunk left incomplete before one that did
+ * complete is finished past the deadline, so the finished chunk is kept. With chunks
+ * handed out in order, this is at most one chunk per worker, finished in parallel.
+ * Finishing is still bounded, by {@link com.appdynamics.extensions.logmonitor.Constants#CHUNK_FINISH_GRACE_IN_SECONDS}
+ * past the deadline, so a throttled scan cannot outlast the task's timeout.
+ * What was scanned of the chunks after the first incomplete one is dropped; those lines
+ * are scanned again from the returned position.
+ *
+ * @author Satish Muddam
+ */
+public class LogChunkScanTask extends RecursiveTask<ScanResult> {
+
+    private static final long serialVersionUID = 5270426393211316405L;
+
+    private static final Logger LOGGER = Logger.getLogger(LogChunkScanTask.class);
+
+    private static final ForkJoinPool SCAN_POOL = new ForkJoinPool();
+
+    private final File file;
+
+    private final Log log;
+
+    private final LineSearcher lineSearcher;
+
+    private final long start;
+
+    private final long end;
+
+    private final long chunkSize;
+
+    private final long deadline;
+
+    /**
+     * The start of each chunk, followed by the end of the last one
+     */
+    private long[] boundaries;
+
+    private ScanResult[] results;
+
+    private final AtomicInteger nextChunk = new AtomicInteger();
+
+    public LogChunkScanTask(File file, Log log, LineSearcher lineSearcher,
+                            long start, long end, long chunkSize, long deadline) {
+        this.file = file;
+        this.log = log;
+        this.lineSearcher = lineSearcher;
+        this.start = start;
+        this.end = end;
+        this.chunkSize = chunkSize;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Scans [start, end) on the shared fork-join pool and waits for all chunks to complete.
+     * <code>start</code> must be at the beginning of a line.
+     */
+    public static ScanResult scan(File file, Log log, LineSearcher lineSearcher,
+                                  long start, long end, long chunkSize, long deadline) {
+        return SCAN_POOL.invoke(new LogChunkScanTask(file, log, lineSearcher,
+                start, end, chunkSize, deadline));
+    }
+
+    @Override
+    protected ScanResult compute() {
+        try {
+            boundaries = split();
+            results = new ScanResult[boundaries.length - 1];
+
+            ForkJoinPool pool = getPool();
+            int noOfWorkers = Math.min(results.length, pool != null ? pool.getParallelism() : 1);
+            List<ChunkWorker> workers = new ArrayList<ChunkWorker>();
+
+            for (int i = 0; i < noOfWorkers; i++) {
+                workers.add(new ChunkWorker());
+            }
+
+            invokeAll(workers);
+            finishChunksBeforeLastComplete();
+
+            return mergeContiguousResults();
+
+        } catch (IOException ex) {
+            throw new FileException(String.format("Unable to scan [%s] from [%s] to [%s]",
+                    file.getPath(), start, end), ex);
+        }
+    }
+
+    /**
+     * Scans [from, to) until the given deadline with a reader of its own
+     */
+    protected ScanResult scanChunk(long from, long to, long deadline) throws IOException {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Scanning [%s] from [%s] to [%s]", file.getPath(), from, to));
+        }
+
+        LogReader logReader = null;
+
+        try {
+            logReader = createLogReader(file, log, to - from);
+            logReader.seek(from);
+            logReader.setEndOffset(to);
+
+            return new LineSearcher(lineSearcher).scan(logReader, deadline);
+
+        } finally {
+            closeLogReader(logReader);
+        }
+    }
+
+    private long[] split() throws IOException {
+        List<Long> chunkStarts = new ArrayList<Long>();
+        long chunkStart = start;
+        chunkStarts.add(chunkStart);
+
+        while (end - chunkStart > chunkSize) {
+            long chunkEnd = alignToLineStart(file, log, chunkStart + chunkSize);
+
+            if (chunkEnd >= end) {
+                break;
+            }
+
+            chunkStarts.add(chunkEnd);
+            chunkStart = chunkEnd;
+        }
+
+        long[] chunkBoundaries = new long[chunkStarts.size() + 1];
+
+        for (int i = 0; i < chunkStarts.size(); i++) {
+            chunkBoundaries[i] = chunkStarts.get(i);
+        }
+
+        chunkBoundaries[chunkStarts.size()] = end;
+        return chunkBoundaries;
+    }
+
+    private void finishChunksBeforeLastComplete() {
+        int lastComplete = -1;
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null && results[i].isComplete()) {
+                lastComplete = i;
+            }
+        }
+
+        List<ChunkFinisher> finishers = new ArrayList<ChunkFinisher>();
+
+        for (int i = 0; i < lastComplete; i++) {
+            if (results[i] == null || !results[i].isComplete()) {
+                finishers.add(new ChunkFinisher(i));
+            }
+        }
+
+        if (!finishers.isEmpty()) {
+            LOGGER.info(String.format("Finishing [%s] chunks of [%s] past the deadline to keep the [%s] " +
+                    "chunks scanned after them", finishers.size(), file.getPath(), lastComplete + 1));
+            invokeAll(finishers);
+        }
+    }
+
+    private ScanResult mergeContiguousResults() {
+        LogMetrics logMetrics = new LogMetrics();
+        long position = start;
+
+        for (ScanResult result : results) {
+            if (result == null) {
+                return new ScanResult(logMetrics, position, false);
+            }
+
+            logMetrics.merge(result.getLogMetrics());
+            position = result.getPosition();
+
+            if (!result.isComplete()) {
+                return new ScanResult(logMetrics, position, false);
+            }
+        }
+
+        return new ScanResult(logMetrics, position, true);
+    }
+
+    /**
+     * @return the deadline for finishing the chunks before a completed one
+     */
+    private long getFinishDeadline() {
+        long grace = TimeUnit.SECONDS.toMillis(CHUNK_FINISH_GRACE_IN_SECONDS);
+        return deadline > Long.MAX_VALUE - grace ? Long.MAX_VALUE : deadline + grace;
+    }
+
+    /**
+     * Scans the next chunk not yet handed out until all are, or the deadline has passed
+     */
+    private class ChunkWorker extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void compute() {
+            while (System.currentTimeMillis() < deadline) {
+                int chunk = nextChunk.getAndIncrement();
+
+                if (chunk >= results.length) {
+                    break;
+                }
+
+                try {
+                    results[chunk] = scanChunk(boundaries[chunk], boundaries[chunk + 1], deadline);
+
+                } catch (IOException ex) {
+                    throw new FileException(String.format("Unable to scan [%s] from [%s] to [%s]",
+                            file.getPath(), boundaries[chunk], boundaries[chunk + 1]), ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scans the rest of a chunk until the finish deadline
+     */
+    private class ChunkFinisher extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int chunk;
+
+        private ChunkFinisher(int chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            ScanResult scanned = results[chunk];
+            long from = scanned != null ? scanned.getPosition() : boundaries[chunk];
+
+            try {
+                ScanResult rest = scanChunk(from, boundaries[chunk + 1], getFinishDeadline());
+                LogMetrics logMetrics = scanned != null ? scanned.getLogMetrics() : new LogMetrics();
+                logMetrics.merge(rest.getLogMetrics());
+
+                results[chunk] = new ScanResult(logMetrics, rest.getPosition(), rest.isComplete());
+
+            } catch (IOException ex) {
+                throw new FileException(String.format("Unable to scan [%s] from [%s] to [%s]",
+                        file.getPath(), from, boundaries[chunk + 1]), ex);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.DirectoryGlob.isGlob;
+import static com.appdynamics.extensions.logmonitor.reader.CompressedLogReader.isCompressed;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.resolvePath;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.exceptions.FileException;
+import org.apache.commons.io.filefilter.WildcardFileFilter;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the files to monitor for a {@link Log}, i.e. the files in its log directory
+ * matching its log name, which may contain wildcards. The log directory may be a
+ * {@link DirectoryGlob}, in which case the files are looked for in each matching directory.
+ *
+ * @author Satish Muddam
+ */
+public class LogFileLocator {
+
+    /**
+     * @return the log directory with a trailing file separator
+     */
+    public static String resolveDirPath(Log log) {
+        String resolvedPath = resolvePath(log.getLogDirectory());
+
+        if (!resolvedPath.endsWith(File.separator)) {
+            resolvedPath = resolvedPath + File.separator;
+        }
+
+        return resolvedPath;
+    }
+
+    /**
+     * @return true if the log has a file per directory matching its glob, or all
+     * files matching its name, to monitor instead of a single file
+     */
+    public static boolean isMultiFileLog(Log log) {
+        return Boolean.TRUE.equals(log.getMonitorAllMatchingFiles()) || isGlob(log);
+    }
+
+    /**
+     * @return the name the files of the log must match in their directory
+     */
+    public static String getFileNamePattern(Log log) {
+        return isGlob(log) ? DirectoryGlob.parse(log).getFileNamePattern() : log.getLogName();
+    }
+
+    /**
+     * @return the most recently modified file matching the log name
+     * @throws FileNotFoundException if the directory or a matching file does not exist
+     * @throws FileException         if the file cannot be read
+     */
+    public static File findLatestLogFile(Log log) throws FileNotFoundException {
+        return findLatestLogFile(log, null);
+    }
+
+    /**
+     * @param directoryListingCache the cache to list the directory from, or null to list it now
+     * @return the most recently modified file matching the log name
+     * @throws FileNotFoundException if the directory or a matching file does not exist
+     * @throws FileException         if the file cannot be read
+     */
+    public static File findLatestLogFile(Log log, DirectoryListingCache directoryListingCache)
+            throws FileNotFoundException {
+        DirectoryListing listing = getListing(new File(resolveDirPath(log)), directoryListingCache);
+        List<String> names = findLogFileNames(listing, log.getLogName());
+
+        if (names.isEmpty()) {
+            throw new FileNotFoundException(
+                    String.format("Unable to find any file with name [%s] in [%s]",
+                            log.getLogName(), resolveDirPath(log)));
+        }
+
+        File latestFile = findLatestLogFile(listing, names);
+
+        if (!latestFile.canRead()) {
+            throw new FileException(
+                    String.format("Unable to read file [%s]", latestFile.getPath()));
+        }
+
+        return latestFile;
+    }
+
+    /**
+     * @return all files matching the log name
+     * @throws FileNotFoundException if the directory or a matching file does not exist
+     */
+    public static List<File> findLogFiles(Log log) throws FileNotFoundException {
+        return findLogFiles(log, null);
+    }
+
+    /**
+     * @param directoryListingCache the cache to list the directory from, or null to list it now
+     * @return all files matching the log name, in all directories matching its glob
+     * @throws FileNotFoundException if the directory or a matching file does not exist
+     */
+    public static List<File> findLogFiles(Log log, DirectoryListingCache directoryListingCache)
+            throws FileNotFoundException {
+        String fileNamePattern = getFileNamePattern(log);
+        List<File> files = new ArrayList<File>();
+
+        for (File directory : findLogDirectories(log, directoryListingCache)) {
+            for (String name : findLogFileNames(getListing(directory, directoryListingCache), fileNamePattern)) {
+                files.add(new File(directory, name));
+            }
+        }
+
+        if (files.isEmpty()) {
+            throw new FileNotFoundException(
+                    String.format("Unable to find any file with name [%s] in [%s]",
+                            log.getLogName(), log.getLogDirectory()));
+        }
+
+        return files;
+    }
+
+    /**
+     * @param directoryListingCache the cache to list the directories from, or null to list them now
+     * @return the files to monitor of a multi file log, i.e. all matching files or
+     * the most recently modified matching file of each directory matching its glob
+     * @throws FileNotFoundException if the directory or a matching file does not exist
+     * @see #isMultiFileLog(Log)
+     */
+    public static List<File> findMonitoredFiles(Log log, DirectoryListingCache directoryListingCache)
+            throws FileNotFoundException {
+        if (Boolean.TRUE.equals(log.getMonitorAllMatchingFiles())) {
+            return findLogFiles(log, directoryListingCache);
+        }
+
+        String fileNamePattern = getFileNamePattern(log);
+        List<File> files = new ArrayList<File>();
+
+        for (File directory : findLogDirectories(log, directoryListingCache)) {
+            DirectoryListing listing = getListing(directory, directoryListingCache);
+            List<String> names = findLogFileNames(listing, fileNamePattern);
+
+            if (!names.isEmpty()) {
+                files.add(findLatestLogFile(listing, names));
+            }
+        }
+
+        if (files.isEmpty()) {
+            throw new FileNotFoundException(
+                    String.format("Unable to find any file with name [%s] in [%s]",
+                            log.getLogName(), log.getLogDirectory()));
+        }
+
+        return files;
+    }
+
+    /**
+     * @return the log directory, or the directories matching its glob
+     * @throws FileNotFoundException if the directory, or the base directory of the glob, does not exist
+     */
+    public static List<File> findLogDirectories(Log log, DirectoryListingCache directoryListingCache)
+            throws FileNotFoundException {
+        if (!isGlob(log)) {
+            return Collections.singletonList(new File(resolveDirPath(log)));
+        }
+
+        DirectoryGlob glob = DirectoryGlob.parse(log);
+
+        return directoryListingCache != null ? directoryListingCache.getMatchingDirectories(glob) :
+                new DirectoryTree(glob).findMatchingDirectories();
+    }
+
+    private static DirectoryListing getListing(File directory, DirectoryListingCache directoryListingCache)
+            throws FileNotFoundException {
+        return directoryListingCache != null ? directoryListingCache.getListing(directory) :
+                DirectoryListing.list(directory);
+    }
+
+    private static File findLatestLogFile(DirectoryListing listing, List<String> names) {
+        String latestName = null;
+        long lastModified = Long.MIN_VALUE;
+
+        for (String name : names) {
+            long nameLastModified = listing.lastModified(name);
+
+            if (nameLastModified > lastModified) {
+                latestName = name;
+                lastModified = nameLastModified;
+            }
+        }
+
+        return new File(listing.getDirectory(), latestName);
+    }
+
+    private static List<String> findLogFileNames(DirectoryListing listing, String fileNamePattern) {
+        WildcardFileFilter fileFilter = new WildcardFileFilter(fileNamePattern);
+        File directory = listing.getDirectory();
+        List<String> names = new ArrayList<String>();
+
+        for (String name : listing.getNames()) {
+            // rotated archives are only read to catch up, see RotatedFileLocator
+            if (fileFilter.accept(directory, name) && !isCompressed(name)) {
+                names.add(name);
+            }
+        }
+
+        return names;
+    }
+
+}
@@ -1,5 +1,7 @@
 package com.appdynamics.extensions.logmonitor;
 
+import static com.appdynamics.extensions.logmonitor.Constants.FILESIZE_METRIC_NAME;
+
 import java.math.BigInteger;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -35,6 +37,33 @@ public class LogMetrics {
 		this.metrics.putAll(metrics);
 	}
 	
+	/**
+	 * Adds the values of the given metrics to the values of this one
+	 */
+	public void merge(LogMetrics logMetrics) {
+		for (Map.Entry<String, BigInteger> metric : logMetrics.getMetrics().entrySet()) {
+			BigInteger value = metrics.get(metric.getKey());
+			add(metric.getKey(), value != null ? value.add(metric.getValue()) : metric.getValue());
+		}
+	}
+	
+	/**
+	 * Adds the counts of the given metrics to the counts of this one, and takes
+	 * their file sizes, which are not counts but the latest value
+	 */
+	public void accumulate(LogMetrics logMetrics) {
+		for (Map.Entry<String, BigInteger> metric : logMetrics.getMetrics().entrySet()) {
+			BigInteger value = metrics.get(metric.getKey());
+			
+			if (value == null || metric.getKey().endsWith(FILESIZE_METRIC_NAME)) {
+				add(metric.getKey(), metric.getValue());
+				
+			} else {
+				add(metric.getKey(), value.add(metric.getValue()));
+			}
+		}
+	}
+	
 	public Map<String, BigInteger> getMetrics() {
 		return this.metrics;
 	}
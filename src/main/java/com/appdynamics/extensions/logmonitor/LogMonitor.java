@@ -3,8 +3,13 @@ package com.appdynamics.extensions.logmonitor;
 import static com.appdynamics.extensions.logmonitor.Constants.CONFIG_ARG;
 import static com.appdynamics.extensions.logmonitor.Constants.DEFAULT_METRIC_PATH;
 import static com.appdynamics.extensions.logmonitor.Constants.DEFAULT_NO_OF_THREADS;
+import static com.appdynamics.extensions.logmonitor.Constants.DEFAULT_SCAN_TIME_BUDGET_IN_SECONDS;
+import static com.appdynamics.extensions.logmonitor.Constants.MAX_FILES_PER_TASK;
 import static com.appdynamics.extensions.logmonitor.Constants.METRIC_PATH_SEPARATOR;
 import static com.appdynamics.extensions.logmonitor.Constants.THREAD_TIMEOUT;
+import static com.appdynamics.extensions.logmonitor.LogFileLocator.findLatestLogFile;
+import static com.appdynamics.extensions.logmonitor.LogFileLocator.findMonitoredFiles;
+import static com.appdynamics.extensions.logmonitor.LogFileLocator.isMultiFileLog;
 import static com.appdynamics.extensions.logmonitor.config.LogConfigValidator.validate;
 import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.convertValueToZeroIfNullOrNegative;
 import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.resolvePath;
@@ -12,6 +17,7 @@ import static com.appdynamics.extensions.yml.YmlReader.readFromFile;
 
 import com.appdynamics.extensions.logmonitor.config.Configuration;
 import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.exceptions.FileException;
 import com.appdynamics.extensions.logmonitor.processors.FilePointerProcessor;
 import com.singularity.ee.agent.systemagent.api.AManagedMonitor;
 import com.singularity.ee.agent.systemagent.api.MetricWriter;
@@ -21,10 +27,16 @@ import com.singularity.ee.agent.systemagent.api.exception.TaskExecutionException
 import org.apache.commons.lang.StringUtils;
 import org.apache.log4j.Logger;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
@@ -44,6 +56,14 @@ public class LogMonitor extends AManagedMonitor {
 
     private volatile FilePointerProcessor filePointerProcessor;
 
+    private final DirectoryListingCache directoryListingCache = new DirectoryListingCache();
+
+    private final LineSearcherCache lineSearcherCache = new LineSearcherCache();
+
+    private final ResourceGovernor resourceGovernor = new ResourceGovernor();
+
+    private LogTailer logTailer;
+
     public LogMonitor() {
         LOGGER.info(String.format("Using Log Monitor Version [%s]",
                 getImplementationVersion()));
@@ -69,12 +89,33 @@ public class LogMonitor extends AManagedMonitor {
                 if (!logs.isEmpty()) {
                     int noOfThreads = config.getNoOfThreads() > 0 ?
                             config.getNoOfThreads() : DEFAULT_NO_OF_THREADS;
+
+                    resourceGovernor.setLimits(config.getMaxReadMBPerSecond(), config.getMaxCpuPercent());
+
+                    // the search strings are compiled again only when changed in the config,
+                    // while tailing they are kept by the tailer
+                    lineSearcherCache.retainAll(config.isTailContinuously() ? Collections.<Log>emptyList() : logs);
+
+                    if (config.isTailContinuously()) {
+                        LogMetrics logMetrics = getTailedMetrics(logs, noOfThreads);
+                        uploadMetrics(logMetrics, getMetricPrefix(config));
+
+                        return new TaskOutput("Log Monitoring task successfully completed");
+                    }
+
+                    // in case tailing was switched off, what it counted is reported as well
+                    LogMetrics logMetrics = stopTailing();
                     threadPool = Executors.newFixedThreadPool(noOfThreads);
 
+                    long deadline = System.currentTimeMillis() +
+                            TimeUnit.SECONDS.toMillis(getScanTimeBudget(config));
+
                     CompletionService<LogMetrics> logMonitorTasks =
-                            createConcurrentTasks(threadPool, logs);
+                            new ExecutorCompletionService<LogMetrics>(threadPool);
+                    int noOfTasks = submitTasks(logMonitorTasks,
+                            createTasks(logs, noOfThreads, deadline), config.getThreadsPerDevice());
 
-                    LogMetrics logMetrics = collectMetrics(logMonitorTasks, logs.size());
+                    logMetrics.accumulate(collectMetrics(logMonitorTasks, noOfTasks));
                     uploadMetrics(logMetrics, getMetricPrefix(config));
 
                     filePointerProcessor.updateFilePointerFile();
@@ -89,24 +130,195 @@ public class LogMonitor extends AManagedMonitor {
                 if (threadPool != null && !threadPool.isShutdown()) {
                     threadPool.shutdown();
                 }
+
+                // directories no longer monitored are not kept and watched forever
+                directoryListingCache.evictUnused();
             }
         }
 
         throw new TaskExecutionException("Log Monitoring task completed with failures.");
     }
 
-    private CompletionService<LogMetrics> createConcurrentTasks(ExecutorService threadPool,
-                                                                List<Log> logs) {
+    /**
+     * Takes the matches counted by the tailer since the previous run. The tailer is
+     * started on the first run, and restarted when the config changed, in which case
+     * the matches counted by the previous one are included.
+     */
+    private synchronized LogMetrics getTailedMetrics(List<Log> logs, int noOfThreads) {
+        LogMetrics logMetrics = new LogMetrics();
+
+        if (logTailer != null &&
+                !logTailer.getConfigKey().equals(LogTailer.getConfigKey(logs, noOfThreads))) {
+            LOGGER.info("Config changed, restarting the log tailer");
+            logMetrics.accumulate(stopTailing());
+        }
+
+        if (logTailer == null) {
+            logTailer = new LogTailer(logs, noOfThreads, filePointerProcessor, directoryListingCache);
+            logTailer.setResourceGovernor(resourceGovernor);
+            logTailer.start();
+        }
 
-        CompletionService<LogMetrics> logMonitorTasks =
-                new ExecutorCompletionService<LogMetrics>(threadPool);
+        logMetrics.accumulate(logTailer.snapshot());
+        return logMetrics;
+    }
+
+    /**
+     * @return the matches counted by the tailer since the previous run, empty if not tailing
+     */
+    private synchronized LogMetrics stopTailing() {
+        if (logTailer == null) {
+            return new LogMetrics();
+        }
+
+        logTailer.stop();
+        LogMetrics logMetrics = logTailer.snapshot();
+        logTailer = null;
+
+        return logMetrics;
+    }
+
+    /**
+     * @param threadsPerDevice the max no of tasks reading from the same device at once,
+     *                         0 to run all tasks concurrently
+     * @return the no of tasks submitted
+     */
+    private int submitTasks(CompletionService<LogMetrics> logMonitorTasks,
+                            List<LogMonitorTask> tasks, int threadsPerDevice) {
+        if (threadsPerDevice <= 0) {
+            for (LogMonitorTask task : tasks) {
+                logMonitorTasks.submit(task);
+            }
+
+            return tasks.size();
+        }
+
+        List<Callable<LogMetrics>> lanes = DeviceScheduler.createLanes(tasks, threadsPerDevice);
+
+        for (Callable<LogMetrics> lane : lanes) {
+            logMonitorTasks.submit(lane);
+        }
+
+        return lanes.size();
+    }
+
+    private List<LogMonitorTask> createTasks(List<Log> logs, int noOfThreads, long deadline) {
+        List<LogMonitorTask> tasks = new ArrayList<LogMonitorTask>();
+        Map<String, LogMonitorTask> sharedFileTasks = new HashMap<String, LogMonitorTask>();
 
         for (Log log : logs) {
-            LogMonitorTask task = new LogMonitorTask(filePointerProcessor, log);
-            logMonitorTasks.submit(task);
+            List<List<File>> batches = isMultiFileLog(log) ? getFileBatches(log, noOfThreads) : null;
+            // the tasks of a log share its limits
+            ResourceGovernor logGovernor = resourceGovernor.newLogGovernor(log);
+
+            if (batches == null) {
+                LogMonitorTask task = new LogMonitorTask(filePointerProcessor, log);
+                task.setDeadline(deadline);
+                task.setDirectoryListingCache(directoryListingCache);
+                task.setResourceGovernor(logGovernor);
+                task.setLineSearcherCache(lineSearcherCache);
+
+                // logs of the same file are searched by the task of the first one
+                LogMonitorTask sharedFileTask = getSharedFileTask(sharedFileTasks, log, task);
+
+                if (sharedFileTask != null) {
+                    sharedFileTask.addSharingTask(task);
+
+                } else {
+                    tasks.add(task);
+                }
+
+                continue;
+            }
+
+            for (List<File> batch : batches) {
+                LogMonitorTask task = new LogMonitorTask(filePointerProcessor, log);
+                task.setDeadline(deadline);
+                task.setFiles(batch);
+                task.setDirectoryListingCache(directoryListingCache);
+                task.setResourceGovernor(logGovernor);
+                task.setLineSearcherCache(lineSearcherCache);
+                tasks.add(task);
+            }
+        }
+
+        return tasks;
+    }
+
+    /**
+     * @return the task already searching the file of the single file log, or null if
+     * none, in which case the given task becomes the one for the file
+     */
+    private LogMonitorTask getSharedFileTask(Map<String, LogMonitorTask> sharedFileTasks,
+                                             Log log, LogMonitorTask task) {
+        if (isMultiFileLog(log)) {
+            return null;
+        }
+
+        try {
+            String sharedFileKey = LogMonitorTask.getSharedFileKey(log,
+                    findLatestLogFile(log, directoryListingCache));
+            LogMonitorTask sharedFileTask = sharedFileTasks.get(sharedFileKey);
+
+            if (sharedFileTask == null) {
+                sharedFileTasks.put(sharedFileKey, task);
+            }
+
+            return sharedFileTask;
+
+        } catch (IOException ex) {
+            // the task reports the error
+            return null;
+
+        } catch (FileException ex) {
+            // e.g. the file cannot be read, which the task reports as well
+            return null;
         }
+    }
+
+    /**
+     * Splits the files of a multi file log into batches, enough
+     * to keep all threads busy, but of up to {@link Constants#MAX_FILES_PER_TASK}
+     * files so that many small files do not each become a task.
+     *
+     * @return the batches, or null if the files cannot be listed, in which case
+     * the task reports the error
+     */
+    private List<List<File>> getFileBatches(Log log, int noOfThreads) {
+        List<File> files;
+
+        try {
+            files = findMonitoredFiles(log, directoryListingCache);
+
+        } catch (FileNotFoundException ex) {
+            return null;
+        }
+
+        // files of the same directory end up in the same batch
+        files = new ArrayList<File>(files);
+        Collections.sort(files);
+
+        int batchSize = (files.size() + noOfThreads - 1) / noOfThreads;
+        batchSize = Math.max(1, Math.min(batchSize, MAX_FILES_PER_TASK));
+
+        List<List<File>> batches = new ArrayList<List<File>>();
+
+        for (int i = 0; i < files.size(); i += batchSize) {
+            batches.add(files.subList(i, Math.min(i + batchSize, files.size())));
+        }
+
+        return batches;
+    }
+
+    /**
+     * Tasks must stop scanning before {@link Constants#THREAD_TIMEOUT} or their metrics
+     * and file pointers are lost, so the budget is capped below it.
+     */
+    private int getScanTimeBudget(Configuration config) {
+        int scanTimeBudget = config.getScanTimeBudgetInSeconds() > 0 ?
+                config.getScanTimeBudgetInSeconds() : DEFAULT_SCAN_TIME_BUDGET_IN_SECONDS;
 
-        return logMonitorTasks;
+        return Math.min(scanTimeBudget, DEFAULT_SCAN_TIME_BUDGET_IN_SECONDS);
     }
 
     private List<Log> getValidLogConfigs(Configuration config) {
@@ -132,7 +344,8 @@ public class LogMonitor extends AManagedMonitor {
             try {
                 LogMetrics collectedMetrics =
                         parallelTasks.take().get(THREAD_TIMEOUT, TimeUnit.SECONDS);
-                metrics.addAll(collectedMetrics.getMetrics());
+                // tasks sharing a log add up their counts
+                metrics.merge(collectedMetrics);
 
             } catch (InterruptedException e) {
                 LOGGER.error("Task interrupted. ", e);
@@ -1,29 +1,46 @@
 package com.appdynamics.extensions.logmonitor;
 
+import static com.appdynamics.extensions.logmonitor.Constants.DEFAULT_CATCH_UP_TAIL_IN_MB;
+import static com.appdynamics.extensions.logmonitor.Constants.DEFAULT_SCAN_TIME_BUDGET_IN_SECONDS;
+import static com.appdynamics.extensions.logmonitor.Constants.FILE;
 import static com.appdynamics.extensions.logmonitor.Constants.FILESIZE_METRIC_NAME;
 import static com.appdynamics.extensions.logmonitor.Constants.METRIC_PATH_SEPARATOR;
-import static com.appdynamics.extensions.logmonitor.Constants.SEARCH_STRING;
-import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.closeRandomAccessFile;
-import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.createPattern;
-import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.resolvePath;
+import static com.appdynamics.extensions.logmonitor.Constants.PARALLEL_SCAN_CHUNK_SIZE;
+import static com.appdynamics.extensions.logmonitor.Constants.PARALLEL_SCAN_THRESHOLD;
+import static com.appdynamics.extensions.logmonitor.DirectoryGlob.isGlob;
+import static com.appdynamics.extensions.logmonitor.LogFileLocator.findLatestLogFile;
+import static com.appdynamics.extensions.logmonitor.LogFileLocator.findMonitoredFiles;
+import static com.appdynamics.extensions.logmonitor.LogFileLocator.getFileNamePattern;
+import static com.appdynamics.extensions.logmonitor.LogFileLocator.isMultiFileLog;
+import static com.appdynamics.extensions.logmonitor.LogFileLocator.resolveDirPath;
+import static com.appdynamics.extensions.logmonitor.RotatedFileLocator.findRotatedFile;
+import static com.appdynamics.extensions.logmonitor.reader.CompressedLogReader.isCompressed;
+import static com.appdynamics.extensions.logmonitor.reader.LogReaderFactory.alignToLineStart;
+import static com.appdynamics.extensions.logmonitor.reader.LogReaderFactory.createCompressedLogReader;
+import static com.appdynamics.extensions.logmonitor.reader.LogReaderFactory.createLogReader;
+import static com.appdynamics.extensions.logmonitor.reader.TimestampSeeker.parseStartFrom;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.closeLogReader;
 
 import com.appdynamics.extensions.logmonitor.config.Log;
-import com.appdynamics.extensions.logmonitor.exceptions.FileException;
+import com.appdynamics.extensions.logmonitor.processors.FileFingerprint;
 import com.appdynamics.extensions.logmonitor.processors.FilePointer;
 import com.appdynamics.extensions.logmonitor.processors.FilePointerProcessor;
-import org.apache.commons.io.filefilter.WildcardFileFilter;
+import com.appdynamics.extensions.logmonitor.reader.LogReader;
+import com.appdynamics.extensions.logmonitor.reader.TimestampSeeker;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.WordUtils;
 import org.apache.log4j.Logger;
-import org.bitbucket.kienerj.OptimizedRandomAccessFile;
 
 import java.io.File;
-import java.io.FileFilter;
-import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.regex.Matcher;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Florencio Sarmiento
@@ -37,187 +54,746 @@ public class LogMonitorTask implements Callable<LogMetrics> {
 
     private Log log;
 
+    private long deadline;
+
+    private List<File> files;
+
+    private DirectoryListingCache directoryListingCache;
+
+    private ResourceGovernor resourceGovernor;
+
+    private LineSearcherCache lineSearcherCache;
+
+    private LineSearcher compiledLineSearcher;
+
+    private List<LogMonitorTask> sharingTasks = new ArrayList<LogMonitorTask>();
+
     public LogMonitorTask(FilePointerProcessor filePointerProcessor, Log log) {
         this.filePointerProcessor = filePointerProcessor;
         this.log = log;
     }
 
+    /**
+     * Sets the time in millis by which the task should have returned. Once it has
+     * passed, the task stops at the next line boundary and saves the position reached
+     * so the rest of the file is processed in the following run. Defaults to
+     * {@link Constants#DEFAULT_SCAN_TIME_BUDGET_IN_SECONDS} after the task starts.
+     */
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Restricts the task to some of the files of a multi file log, so these can be
+     * split across tasks. By default all its files are listed by the task itself.
+     *
+     * @see LogFileLocator#isMultiFileLog(Log)
+     */
+    public void setFiles(List<File> files) {
+        this.files = files;
+    }
+
+    /**
+     * Sets the cache the log directory is listed from, shared with the other tasks.
+     * Without it the directory is listed by the task itself.
+     */
+    public void setDirectoryListingCache(DirectoryListingCache directoryListingCache) {
+        this.directoryListingCache = directoryListingCache;
+    }
+
+    /**
+     * Sets the cache the compiled search strings are taken from, so that they are not
+     * compiled again by every task. Without it the task compiles them itself.
+     */
+    public void setLineSearcherCache(LineSearcherCache lineSearcherCache) {
+        this.lineSearcherCache = lineSearcherCache;
+    }
+
+    /**
+     * Sets the governor limiting the reads and CPU of the log, shared with the other
+     * tasks of the log. Without it the task is not limited.
+     *
+     * @see ResourceGovernor#newLogGovernor(Log)
+     */
+    public void setResourceGovernor(ResourceGovernor resourceGovernor) {
+        this.resourceGovernor = resourceGovernor;
+    }
+
+    /**
+     * Has this task also search the file for the log of the given task, so that the
+     * file is read once for both. The logs must be single file logs resolving to the
+     * same file, and read it the same way, see {@link #getSharedFileKey(Log, File)}.
+     * Each log keeps its own file pointer and metrics.
+     */
+    public void addSharingTask(LogMonitorTask task) {
+        sharingTasks.add(task);
+    }
+
+    /**
+     * @return the key of the physical file of a log, equal for the logs whose file can
+     * be read once for all of them
+     */
+    public static String getSharedFileKey(Log log, File file) throws IOException {
+        return file.getCanonicalPath() + ":" + log.getEncoding() + ":" + log.getReaderType() + ":" +
+                log.getMaxLineLengthInKB() + ":" + log.getMaxReadMBPerSecond() + ":" + log.getMaxCpuPercent();
+    }
+
+    /**
+     * @return the first file of the task, or the directory of its log if its files
+     * are listed by the task itself
+     */
+    public File getLocation() {
+        if (files != null && !files.isEmpty()) {
+            return files.get(0);
+        }
+
+        return isGlob(log) ? DirectoryGlob.parse(log).getBaseDirectory() : new File(resolveDirPath(log));
+    }
+
     public LogMetrics call() throws Exception {
-        String dirPath = resolveDirPath(log.getLogDirectory());
+        if (deadline <= 0) {
+            deadline = System.currentTimeMillis() +
+                    TimeUnit.SECONDS.toMillis(DEFAULT_SCAN_TIME_BUDGET_IN_SECONDS);
+        }
+
         LOGGER.info("Log monitor task started...");
 
-        LogMetrics logMetrics = new LogMetrics();
-        OptimizedRandomAccessFile randomAccessFile = null;
+        if (isMultiFileLog(log)) {
+            return processFiles(files != null ? files : findMonitoredFiles(log, directoryListingCache));
+        }
 
-        long curFilePointer = 0;
+        File file = findLatestLogFile(log, directoryListingCache);
 
-        try {
-            File file = getLogFile(dirPath);
-            randomAccessFile = new OptimizedRandomAccessFile(file, "r");
-            long fileSize = randomAccessFile.length();
-            String dynamicLogPath = dirPath + log.getLogName();
-            curFilePointer = getCurrentFilePointer(dynamicLogPath, file.getPath(), fileSize);
-            List<SearchPattern> searchPatterns = createPattern(log.getSearchStrings());
+        if (!sharingTasks.isEmpty()) {
+            return processSharedFile(file);
+        }
 
-            LOGGER.info(String.format("Processing log file [%s], starting from [%s]",
-                    file.getPath(), curFilePointer));
+        return processFile(file, getDynamicLogPath());
+    }
 
-            randomAccessFile.seek(curFilePointer);
+    /**
+     * @return the key of the file pointer of a single file log
+     */
+    private String getDynamicLogPath() {
+        return resolveDirPath(log) + log.getLogName();
+    }
 
-            String currentLine = null;
+    /**
+     * @return a searcher with its own state. The patterns are only compiled, or taken
+     * from the cache, once a file has something new to read.
+     */
+    private LineSearcher newLineSearcher() {
+        if (compiledLineSearcher == null) {
+            compiledLineSearcher = lineSearcherCache != null ?
+                    lineSearcherCache.get(log, getLogNamePrefix()) :
+                    LineSearcherCache.compile(log, getLogNamePrefix());
+        }
 
-            while ((currentLine = randomAccessFile.readLine()) != null) {
-                incrementWordCountIfSearchStringMatched(searchPatterns, currentLine, logMetrics);
-                curFilePointer = randomAccessFile.getFilePointer();
-            }
+        LineSearcher lineSearcher = new LineSearcher(compiledLineSearcher);
+        lineSearcher.setResourceGovernor(resourceGovernor);
+        return lineSearcher;
+    }
+
+    /**
+     * Processes each file with its own file pointer. Counts are added up for the log,
+     * and also reported per file if enabled. A file that cannot be read is skipped.
+     * <p>
+     * When monitoring all matching files, the file pointer is keyed by the file path.
+     * Otherwise there is one file per directory matching the glob, and the file pointer
+     * is keyed by the directory and log name so that it follows the file on rotation.
+     */
+    private LogMetrics processFiles(List<File> files) {
+        LogMetrics logMetrics = new LogMetrics();
+        boolean monitorAllMatchingFiles = Boolean.TRUE.equals(log.getMonitorAllMatchingFiles());
+        String fileNamePattern = getFileNamePattern(log);
 
-            if (LOGGER.isDebugEnabled() && logMetrics.getMetrics().isEmpty()) {
-                LOGGER.debug("No word metrics to upload, no matches found!");
+        for (File file : files) {
+            try {
+                String dynamicLogPath = monitorAllMatchingFiles ? file.getPath() :
+                        file.getParent() + File.separator + fileNamePattern;
+                LogMetrics fileMetrics = processFile(file, dynamicLogPath);
+                logMetrics.merge(fileMetrics);
+
+                if (Boolean.TRUE.equals(log.getPerFileMetrics())) {
+                    logMetrics.merge(getPerFileMetrics(file, fileMetrics));
+                }
+
+            } catch (Exception ex) {
+                LOGGER.error(String.format("Unable to process log file [%s]", file.getPath()), ex);
             }
+        }
 
-            logMetrics.add(getLogNamePrefix() + FILESIZE_METRIC_NAME, BigInteger.valueOf(fileSize));
+        return logMetrics;
+    }
 
-            setNewFilePointer(dynamicLogPath, file.getPath(), curFilePointer);
+    private LogMetrics getPerFileMetrics(File file, LogMetrics fileMetrics) {
+        String logNamePrefix = getLogNamePrefix();
+        // files in different directories of a glob may have the same name
+        String fileName = isGlob(log) ? DirectoryGlob.parse(log).relativize(file) : file.getName();
+        String fileNamePrefix = logNamePrefix + FILE + METRIC_PATH_SEPARATOR +
+                fileName + METRIC_PATH_SEPARATOR;
 
-            LOGGER.info(String.format("Sucessfully processed log file [%s]",
-                    file.getPath()));
+        LogMetrics perFileMetrics = new LogMetrics();
 
-        } finally {
-            closeRandomAccessFile(randomAccessFile);
+        for (Map.Entry<String, BigInteger> metric : fileMetrics.getMetrics().entrySet()) {
+            perFileMetrics.add(fileNamePrefix + metric.getKey().substring(logNamePrefix.length()),
+                    metric.getValue());
         }
 
-        return logMetrics;
+        return perFileMetrics;
+    }
+
+    /**
+     * @param dynamicLogPath the key of the file pointer
+     */
+    private LogMetrics processFile(File file, String dynamicLogPath) throws IOException {
+        List<LogMonitorTask> tasks = new ArrayList<LogMonitorTask>();
+        tasks.add(this);
+
+        return processFile(file, dynamicLogPath, tasks);
+    }
+
+    /**
+     * Processes the file for the logs of the given tasks, which share its file pointer
+     * and are read as one. This task must be the first of them.
+     */
+    private LogMetrics processFile(File file, String dynamicLogPath, List<LogMonitorTask> tasks)
+            throws IOException {
+        FileScan fileScan = startFileScan(file, dynamicLogPath, tasks);
+
+        if (!fileScan.done) {
+            finishFileScan(fileScan, scan(file, newLineSearchers(tasks), fileScan.start, fileScan.fileSize));
+        }
+
+        return fileScan.getLogMetrics();
     }
 
-    private File getLogFile(String dirPath) throws FileNotFoundException {
-        File directory = new File(dirPath);
-        File logFile = null;
+    /**
+     * Reads the file once for the logs of this task and of the tasks sharing it, each
+     * from its own file pointer. The scan starts at the file pointer furthest behind,
+     * and each log only searches the lines from its own file pointer. What each file
+     * pointer has to do on its own, i.e. finishing a rotated file, seeking to startFrom
+     * or catching up on a backlog, is still done separately for that file pointer.
+     * <p>
+     * Logs of the same directory and log name share their file pointer, see
+     * {@link #getDynamicLogPath()}. These are handled as one from the file pointer, so
+     * that what one of them reads, e.g. of a rotated file, is read for all of them.
+     */
+    private LogMetrics processSharedFile(File file) throws IOException {
+        LogMetrics logMetrics = new LogMetrics();
+
+        Map<String, List<LogMonitorTask>> filePointerTasks = new LinkedHashMap<String, List<LogMonitorTask>>();
+        List<LogMonitorTask> tasks = new ArrayList<LogMonitorTask>();
+        tasks.add(this);
+        tasks.addAll(sharingTasks);
+
+        for (LogMonitorTask task : tasks) {
+            // all logs are processed within the time budget of this task
+            task.deadline = deadline;
+
+            List<LogMonitorTask> keyTasks = filePointerTasks.get(task.getDynamicLogPath());
+
+            if (keyTasks == null) {
+                keyTasks = new ArrayList<LogMonitorTask>();
+                filePointerTasks.put(task.getDynamicLogPath(), keyTasks);
+            }
+
+            keyTasks.add(task);
+        }
+
+        List<FileScan> fileScans = new ArrayList<FileScan>();
 
-        if (directory.isDirectory()) {
-            FileFilter fileFilter = new WildcardFileFilter(log.getLogName());
-            File[] files = directory.listFiles(fileFilter);
+        for (List<LogMonitorTask> keyTasks : filePointerTasks.values()) {
+            LogMonitorTask task = keyTasks.get(0);
 
-            if (files != null && files.length > 0) {
-                logFile = getLatestFile(files);
+            try {
+                File taskFile = task == this ? file : findLatestLogFile(task.log, directoryListingCache);
 
-                if (!logFile.canRead()) {
-                    throw new FileException(
-                            String.format("Unable to read file [%s]", logFile.getPath()));
+                if (!isSamePhysicalFile(taskFile, file)) {
+                    // the file was rotated since the tasks were grouped
+                    logMetrics.merge(task.processFile(taskFile, task.getDynamicLogPath(), keyTasks));
+                    continue;
                 }
 
-            } else {
-                throw new FileNotFoundException(
-                        String.format("Unable to find any file with name [%s] in [%s]",
-                                log.getLogName(), dirPath));
+                FileScan fileScan = task.startFileScan(file, task.getDynamicLogPath(), keyTasks);
+
+                if (fileScan.done) {
+                    logMetrics.merge(fileScan.getLogMetrics());
+
+                } else {
+                    fileScans.add(fileScan);
+                }
+
+            } catch (Exception ex) {
+                LOGGER.error(String.format("Unable to process log [%s] of log file [%s]",
+                        task.getLogNamePrefix(), file.getPath()), ex);
+            }
+        }
+
+        if (fileScans.isEmpty()) {
+            return logMetrics;
+        }
+
+        long start = Long.MAX_VALUE;
+        long end = 0;
+
+        for (FileScan fileScan : fileScans) {
+            start = Math.min(start, fileScan.start);
+            end = Math.max(end, fileScan.fileSize);
+        }
+
+        List<List<ScanResult>> scanResults;
+
+        if (fileScans.size() == 1 || end - start >= PARALLEL_SCAN_THRESHOLD) {
+            // a large range is scanned in parallel chunks for each file pointer instead
+            scanResults = new ArrayList<List<ScanResult>>();
+
+            for (FileScan fileScan : fileScans) {
+                scanResults.add(fileScan.tasks.get(0).scan(file, newLineSearchers(fileScan.tasks),
+                        fileScan.start, fileScan.fileSize));
             }
 
         } else {
-            throw new FileNotFoundException(
-                    String.format("Directory [%s] not found. Ensure it is a directory.",
-                            dirPath));
+            scanResults = scanShared(file, fileScans, start, end);
         }
 
-        return logFile;
+        for (int i = 0; i < fileScans.size(); i++) {
+            FileScan fileScan = fileScans.get(i);
+
+            try {
+                fileScan.tasks.get(0).finishFileScan(fileScan, scanResults.get(i));
+                logMetrics.merge(fileScan.getLogMetrics());
+
+            } catch (Exception ex) {
+                LOGGER.error(String.format("Unable to process log [%s] of log file [%s]",
+                        fileScan.tasks.get(0).getLogNamePrefix(), file.getPath()), ex);
+            }
+        }
+
+        return logMetrics;
     }
 
-    private String resolveDirPath(String confDirPath) {
-        String resolvedPath = resolvePath(confDirPath);
+    /**
+     * @return per file scan, the results of its logs
+     */
+    private List<List<ScanResult>> scanShared(File file, List<FileScan> fileScans, long start, long end)
+            throws IOException {
+        List<LineSearcher> lineSearchers = new ArrayList<LineSearcher>();
+        List<Long> startPositions = new ArrayList<Long>();
+
+        for (FileScan fileScan : fileScans) {
+            for (LogMonitorTask task : fileScan.tasks) {
+                lineSearchers.add(task.newLineSearcher());
+                startPositions.add(fileScan.start);
+            }
+        }
+
+        LOGGER.info(String.format("Processing log file [%s] once for [%s] logs, starting from [%s]",
+                file.getPath(), lineSearchers.size(), start));
+
+        List<ScanResult> results = scan(file, lineSearchers, toArray(startPositions), start, end);
+        List<List<ScanResult>> scanResults = new ArrayList<List<ScanResult>>();
+        int i = 0;
 
-        if (!resolvedPath.endsWith(File.separator)) {
-            resolvedPath = resolvedPath + File.separator;
+        for (FileScan fileScan : fileScans) {
+            scanResults.add(results.subList(i, i + fileScan.tasks.size()));
+            i += fileScan.tasks.size();
         }
 
-        return resolvedPath;
+        return scanResults;
     }
 
-    private File getLatestFile(File[] files) {
-        File latestFile = null;
-        long lastModified = Long.MIN_VALUE;
+    /**
+     * Works out where to scan the file from, handling rotation, startFrom and
+     * catching up, for the logs of the given tasks which share the file pointer. The
+     * settings of the log of this task, which must be the first of them, apply. The
+     * scan is done if there is nothing to scan, or if the rest of a rotated file is
+     * still to be read.
+     */
+    private FileScan startFileScan(File file, String dynamicLogPath, List<LogMonitorTask> tasks)
+            throws IOException {
 
-        for (File file : files) {
-            if (file.lastModified() > lastModified) {
-                latestFile = file;
-                lastModified = file.lastModified();
+        FileScan fileScan = new FileScan(file, dynamicLogPath, tasks);
+
+        long fileSize = file.length();
+        boolean firstSight = !filePointerProcessor.hasFilePointer(dynamicLogPath);
+        FilePointer filePointer = filePointerProcessor.getFilePointer(dynamicLogPath, file.getPath());
+
+        long curFilePointer = filePointer.getLastReadPosition().get();
+        long backlogStart = filePointer.getBacklogStartPosition().get();
+        long backlogEnd = filePointer.getBacklogEndPosition().get();
+
+        fileScan.fileSize = fileSize;
+
+        if (backlogStart >= backlogEnd && isUnchanged(filePointer, file, curFilePointer)) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Log file [%s] not modified since it was last read", file.getPath()));
             }
+
+            fileScan.addFileSize(fileSize);
+            fileScan.done = true;
+            return fileScan;
         }
 
-        return latestFile;
-    }
+        if (!isSameFile(filePointer, file, fileSize, curFilePointer)) {
+
+            File rotatedFile = curFilePointer > 0 ? findRotatedFile(filePointer, file, directoryListingCache) : null;
 
-    private long getCurrentFilePointer(String dynamicLogPath,
-                                       String actualLogPath, long fileSize) {
+            if (rotatedFile != null) {
+                // the same for all logs, as read by one reader
+                ScanResult rotatedFileResult = fileScan.merge(scanRotatedFile(rotatedFile,
+                        newLineSearchers(tasks), curFilePointer));
 
-        FilePointer filePointer =
-                filePointerProcessor.getFilePointer(dynamicLogPath, actualLogPath);
+                if (!rotatedFileResult.isComplete()) {
+                    // the new file is only started once the rotated one is finished,
+                    // which is found again by its fingerprint in the next run
+                    FileFingerprint fingerprint = isCompressed(rotatedFile) ? null :
+                            createFingerprint(rotatedFile, rotatedFileResult.getPosition());
 
-        long currentPosition = filePointer.getLastReadPosition().get();
+                    fileScan.addFileSize(fileSize);
+                    filePointerProcessor.updateFilePointer(dynamicLogPath, filePointer.getFilename(),
+                            rotatedFileResult.getPosition(), 0, 0,
+                            fingerprint != null ? fingerprint : filePointer.getFingerprint());
 
-        if (isFilenameChanged(filePointer.getFilename(), actualLogPath) ||
-                isLogRotated(fileSize, currentPosition)) {
+                    fileScan.done = true;
+                    return fileScan;
+                }
+            }
 
             if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug("Filename has either changed or rotated, resetting position to 0");
+                LOGGER.debug("Log file has been rotated, replaced or truncated, resetting position to 0");
+            }
+
+            curFilePointer = 0;
+            backlogStart = 0;
+            backlogEnd = 0;
+        }
+
+        if (firstSight && StringUtils.isNotBlank(log.getStartFrom())) {
+            long startFrom = parseStartFrom(log.getStartFrom(), System.currentTimeMillis());
+            curFilePointer = new TimestampSeeker(file, log).seek(startFrom, fileSize);
+
+            LOGGER.info(String.format("Log file [%s] not seen before, starting from [%s] for [%s]",
+                    file.getPath(), curFilePointer, log.getStartFrom()));
+        }
+
+        long catchUpThreshold = getCatchUpThreshold();
+
+        if (catchUpThreshold > 0 && backlogStart >= backlogEnd &&
+                fileSize - curFilePointer > catchUpThreshold) {
+            long tailStart = alignToLineStart(file, log, fileSize - getCatchUpTail());
+
+            if (tailStart > curFilePointer) {
+                LOGGER.info(String.format("Log file [%s] is [%s] bytes behind, scanning from [%s] first " +
+                        "and catching up from [%s] afterwards", file.getPath(), fileSize - curFilePointer,
+                        tailStart, curFilePointer));
+
+                backlogStart = curFilePointer;
+                backlogEnd = tailStart;
+                curFilePointer = tailStart;
             }
+        }
 
-            currentPosition = 0;
+        LOGGER.info(String.format("Processing log file [%s], starting from [%s]",
+                file.getPath(), curFilePointer));
+
+        fileScan.start = curFilePointer;
+        fileScan.backlogStart = backlogStart;
+        fileScan.backlogEnd = backlogEnd;
+
+        return fileScan;
+    }
+
+    /**
+     * Takes the results of scanning the file from the start of the file scan, then
+     * scans the backlog with the time left and saves the file pointer
+     *
+     * @param scanResults per log of the file scan
+     */
+    private void finishFileScan(FileScan fileScan, List<ScanResult> scanResults) throws IOException {
+        File file = fileScan.file;
+        long backlogStart = fileScan.backlogStart;
+        long backlogEnd = fileScan.backlogEnd;
+
+        ScanResult scanResult = fileScan.merge(scanResults);
+        long curFilePointer = scanResult.getPosition();
+
+        // the older data only gets what is left of the time budget
+        if (scanResult.isComplete() && backlogStart < backlogEnd) {
+            ScanResult backlogResult = fileScan.merge(scan(file, newLineSearchers(fileScan.tasks),
+                    backlogStart, backlogEnd));
+
+            backlogStart = backlogResult.getPosition();
+
+            if (backlogResult.isComplete()) {
+                backlogStart = 0;
+                backlogEnd = 0;
+            }
+
+            scanResult = backlogResult;
+        }
+
+        if (!scanResult.isComplete()) {
+            LOGGER.info(String.format("Time budget reached for log file [%s] at [%s] of [%s], " +
+                    "the rest will be processed in the next run", file.getPath(), scanResult.getPosition(),
+                    fileScan.fileSize));
+        }
+
+        if (LOGGER.isDebugEnabled() && fileScan.getLogMetrics().getMetrics().isEmpty()) {
+            LOGGER.debug("No word metrics to upload, no matches found!");
         }
 
-        return currentPosition;
+        fileScan.addFileSize(fileScan.fileSize);
+
+        filePointerProcessor.updateFilePointer(fileScan.dynamicLogPath, file.getPath(),
+                curFilePointer, backlogStart, backlogEnd, createFingerprint(file, curFilePointer));
+
+        LOGGER.info(String.format("Sucessfully processed log file [%s]",
+                file.getPath()));
     }
 
-    private boolean isLogRotated(long fileSize, long startPosition) {
-        return fileSize < startPosition;
+    /**
+     * @return the fingerprint of the file read up to the position, or null if the file
+     * has been truncated or removed in the meantime, so the file pointer is still saved
+     * with the metrics of this run and the file is only compared by name and size
+     */
+    private FileFingerprint createFingerprint(File file, long position) {
+        try {
+            return FileFingerprint.create(file, position);
+
+        } catch (IOException ex) {
+            LOGGER.warn(String.format("Unable to fingerprint log file [%s] at [%s]",
+                    file.getPath(), position), ex);
+            return null;
+        }
     }
 
-    private boolean isFilenameChanged(String oldFilename, String newFilename) {
-        return !oldFilename.equals(newFilename);
+    /**
+     * Scans [start, end) until the deadline, in parallel chunks if the range is large
+     * and searched for one log only
+     *
+     * @return per searcher, the result of the scan
+     */
+    private List<ScanResult> scan(File file, List<LineSearcher> lineSearchers, long start, long end)
+            throws IOException {
+
+        if (lineSearchers.size() == 1 && end - start >= PARALLEL_SCAN_THRESHOLD) {
+            return Collections.singletonList(LogChunkScanTask.scan(file, log, lineSearchers.get(0),
+                    start, end, PARALLEL_SCAN_CHUNK_SIZE, deadline));
+        }
+
+        long[] startPositions = new long[lineSearchers.size()];
+        Arrays.fill(startPositions, start);
+
+        return scan(file, lineSearchers, startPositions, start, end);
     }
 
-    private void incrementWordCountIfSearchStringMatched(List<SearchPattern> searchPatterns,
-                                                         String stringToCheck, LogMetrics logMetrics) {
+    /**
+     * Scans [start, end) with one reader until the deadline, each searcher from its
+     * start position
+     */
+    private List<ScanResult> scan(File file, List<LineSearcher> lineSearchers, long[] startPositions,
+                                  long start, long end) throws IOException {
+        LogReader logReader = null;
 
-        for (SearchPattern searchPattern : searchPatterns) {
+        try {
+            logReader = createLogReader(file, log, end - start);
+            logReader.seek(start);
+            logReader.setEndOffset(end);
 
-            if (LOGGER.isDebugEnabled()) {
-                LOGGER.debug(String.format("Searching for [%s]", searchPattern.getPattern().pattern()));
-            }
+            return LineSearcher.scan(logReader, lineSearchers, startPositions, deadline);
 
-            Matcher matcher = searchPattern.getPattern().matcher(stringToCheck);
-            String logMetricPrefix = getSearchStringPrefix();
+        } finally {
+            closeLogReader(logReader);
+        }
+    }
 
-            while (matcher.find()) {
-                String word = matcher.group().trim();
+    /**
+     * Scans the rest of a rotated log, which may have been compressed in the meantime
+     *
+     * @return per searcher, the result of the scan
+     */
+    private List<ScanResult> scanRotatedFile(File rotatedFile, List<LineSearcher> lineSearchers, long position)
+            throws IOException {
 
-                if (searchPattern.getCaseSensitive()) {
+        LOGGER.info(String.format("Log file has been rotated, resuming from [%s] in [%s]",
+                position, rotatedFile.getPath()));
 
-                    logMetrics.add(logMetricPrefix + searchPattern.getDisplayName() + METRIC_PATH_SEPARATOR + word);
+        LogReader logReader = null;
 
-                } else {
-                    logMetrics.add(logMetricPrefix + searchPattern.getDisplayName() + METRIC_PATH_SEPARATOR  + WordUtils.capitalizeFully(word));
-                }
+        try {
+            logReader = isCompressed(rotatedFile) ? createCompressedLogReader(rotatedFile, log) :
+                    createLogReader(rotatedFile, log, rotatedFile.length() - position);
+            logReader.seek(position);
 
+            long[] startPositions = new long[lineSearchers.size()];
+            Arrays.fill(startPositions, position);
 
-            }
+            return LineSearcher.scan(logReader, lineSearchers, startPositions, deadline);
+
+        } finally {
+            closeLogReader(logReader);
+        }
+    }
+
+    /**
+     * @return a searcher with its own state for the log of each task
+     */
+    private static List<LineSearcher> newLineSearchers(List<LogMonitorTask> tasks) {
+        List<LineSearcher> lineSearchers = new ArrayList<LineSearcher>();
+
+        for (LogMonitorTask task : tasks) {
+            lineSearchers.add(task.newLineSearcher());
+        }
+
+        return lineSearchers;
+    }
+
+    private static long[] toArray(List<Long> values) {
+        long[] array = new long[values.size()];
 
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
         }
 
+        return array;
+    }
 
+    /**
+     * @return the unread bytes above which the end of the file is scanned first, 0 if disabled
+     */
+    private long getCatchUpThreshold() {
+        return log.getCatchUpThresholdInMB() != null ?
+                log.getCatchUpThresholdInMB() * 1024L * 1024L : 0;
     }
 
-    private void setNewFilePointer(String dynamicLogPath,
-                                   String actualLogPath, long lastReadPosition) {
-        filePointerProcessor.updateFilePointer(dynamicLogPath, actualLogPath, lastReadPosition);
+    private long getCatchUpTail() {
+        int catchUpTailInMB = log.getCatchUpTailInMB() != null ?
+                log.getCatchUpTailInMB() : DEFAULT_CATCH_UP_TAIL_IN_MB;
+
+        return catchUpTailInMB * 1024L * 1024L;
+    }
+
+    /**
+     * @return true if the file is the one the file pointer was saved for. Without a
+     * fingerprint, e.g. for file pointers saved by an older version, only the filename
+     * and size can be compared.
+     */
+    private boolean isSameFile(FilePointer filePointer, File file, long fileSize,
+                               long position) throws IOException {
+
+        FileFingerprint fingerprint = filePointer.getFingerprint();
+
+        if (fingerprint != null) {
+            return fingerprint.matches(file, fileSize, position);
+        }
+
+        return !isFilenameChanged(filePointer.getFilename(), file.getPath()) &&
+                !isLogRotated(fileSize, position);
+    }
+
+    /**
+     * @return true if the file was read to the end and has not been modified since,
+     * checked from its attributes only
+     */
+    private boolean isUnchanged(FilePointer filePointer, File file, long position) {
+        FileFingerprint fingerprint = filePointer.getFingerprint();
+
+        return fingerprint != null && fingerprint.getPosition() == position &&
+                fingerprint.isUnchanged(file);
     }
 
-    private String getSearchStringPrefix() {
-        return String.format("%s%s%s", getLogNamePrefix(),
-                SEARCH_STRING, METRIC_PATH_SEPARATOR);
+    private boolean isSamePhysicalFile(File file1, File file2) throws IOException {
+        return file1.getCanonicalPath().equals(file2.getCanonicalPath());
+    }
+
+    private boolean isLogRotated(long fileSize, long startPosition) {
+        return fileSize < startPosition;
+    }
+
+    private boolean isFilenameChanged(String oldFilename, String newFilename) {
+        return !oldFilename.equals(newFilename);
     }
 
     private String getLogNamePrefix() {
+        return getLogNamePrefix(log);
+    }
+
+    /**
+     * @return the log's display name followed by the metric path separator
+     */
+    public static String getLogNamePrefix(Log log) {
         String displayName = StringUtils.isBlank(log.getDisplayName()) ?
                 log.getLogName() : log.getDisplayName();
 
         return displayName + METRIC_PATH_SEPARATOR;
     }
+
+    /**
+     * The state of a file between working out where to scan it from, and saving
+     * its file pointer, for the logs of the tasks sharing the file pointer
+     */
+    private static class FileScan {
+
+        private final File file;
+
+        private final String dynamicLogPath;
+
+        private final List<LogMonitorTask> tasks;
+
+        /**
+         * Per task
+         */
+        private final List<LogMetrics> logMetrics = new ArrayList<LogMetrics>();
+
+        private long fileSize;
+
+        private long start;
+
+        private long backlogStart;
+
+        private long backlogEnd;
+
+        private boolean done;
+
+        private FileScan(File file, String dynamicLogPath, List<LogMonitorTask> tasks) {
+            this.file = file;
+            this.dynamicLogPath = dynamicLogPath;
+            this.tasks = tasks;
+
+            for (int i = 0; i < tasks.size(); i++) {
+                logMetrics.add(new LogMetrics());
+            }
+        }
+
+        /**
+         * Adds the metrics of the scan results, one per task, which were read together
+         *
+         * @return the first of the scan results, its position being the same for all
+         */
+        private ScanResult merge(List<ScanResult> scanResults) {
+            for (int i = 0; i < tasks.size(); i++) {
+                logMetrics.get(i).merge(scanResults.get(i).getLogMetrics());
+            }
+
+            return scanResults.get(0);
+        }
+
+        private void addFileSize(long fileSize) {
+            for (int i = 0; i < tasks.size(); i++) {
+                logMetrics.get(i).add(tasks.get(i).getLogNamePrefix() + FILESIZE_METRIC_NAME,
+                        BigInteger.valueOf(fileSize));
+            }
+        }
+
+        private LogMetrics getLogMetrics() {
+            LogMetrics allLogMetrics = new LogMetrics();
+
+            for (LogMetrics taskLogMetrics : logMetrics) {
+                allLogMetrics.merge(taskLogMetrics);
+            }
+
+            return allLogMetrics;
+        }
+    }
 }
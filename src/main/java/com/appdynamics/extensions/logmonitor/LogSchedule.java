@@ -0,0 +1,91 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.Constants.GROWTH_RATE_SMOOTHING;
+import static com.appdynamics.extensions.logmonitor.Constants.TAIL_MAX_INTERVAL_IN_MILLIS;
+import static com.appdynamics.extensions.logmonitor.Constants.TAIL_MIN_INTERVAL_IN_MILLIS;
+import static com.appdynamics.extensions.logmonitor.Constants.TAIL_TARGET_BYTES_PER_PASS;
+
+/**
+ * When a log is due to be read again, from how fast it has been growing. The growth
+ * rate is a moving average of the size changes seen in each pass. A log is read again
+ * once about {@link Constants#TAIL_TARGET_BYTES_PER_PASS} have been written, so busy logs
+ * are read often in small increments, while idle logs are only checked every
+ * {@link Constants#TAIL_MAX_INTERVAL_IN_MILLIS}, which is a cheap size and modified time
+ * check if nothing changed.
+ *
+ * @author Satish Muddam
+ */
+public class LogSchedule {
+
+    private long lastSize = -1;
+
+    private long lastPassAt;
+
+    private double bytesPerSecond;
+
+    private long nextPassAt;
+
+    private boolean multiFile;
+
+    /**
+     * Sets whether the size recorded is the total size of the files of a multi file
+     * log, in which case a smaller total is not taken for a rotation, as it may be
+     * one of the files removed while the others grew.
+     *
+     * @see LogFileLocator#isMultiFileLog
+     */
+    public void setMultiFile(boolean multiFile) {
+        this.multiFile = multiFile;
+    }
+
+    /**
+     * @param size the size of the log seen in the pass, -1 if unknown
+     * @param now  the time of the pass in millis
+     */
+    public void record(long size, long now) {
+        // the growth of a multi file log cannot be told once a file is gone
+        if (size >= 0 && lastSize >= 0 && now > lastPassAt && !(multiFile && size < lastSize)) {
+            // a smaller log was rotated or truncated, and then written from the start
+            long growth = size >= lastSize ? size - lastSize : size;
+            double sample = growth * 1000.0 / (now - lastPassAt);
+
+            bytesPerSecond = GROWTH_RATE_SMOOTHING * sample + (1 - GROWTH_RATE_SMOOTHING) * bytesPerSecond;
+        }
+
+        if (size >= 0) {
+            lastSize = size;
+        }
+
+        lastPassAt = now;
+        nextPassAt = now + getInterval();
+    }
+
+    public double getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * @return the time in millis at which the log is due
+     */
+    public long getNextPassAt() {
+        return nextPassAt;
+    }
+
+    public boolean isDue(long now) {
+        return now >= nextPassAt;
+    }
+
+    /**
+     * @return the time in millis until the log is due after a pass
+     */
+    public long getInterval() {
+        // below 1 byte per second, e.g. after an idle pass, the log counts as idle
+        if (bytesPerSecond < 1) {
+            return TAIL_MAX_INTERVAL_IN_MILLIS;
+        }
+
+        long interval = (long) (TAIL_TARGET_BYTES_PER_PASS * 1000.0 / bytesPerSecond);
+        return Math.max(TAIL_MIN_INTERVAL_IN_MILLIS, Math.min(TAIL_MAX_INTERVAL_IN_MILLIS, interval));
+    }
+
+}
@@ -0,0 +1,368 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.Constants.FILESIZE_METRIC_NAME;
+import static com.appdynamics.extensions.logmonitor.Constants.TAIL_MAX_INTERVAL_IN_MILLIS;
+import static com.appdynamics.extensions.logmonitor.Constants.TAIL_NOTIFICATION_DELAY_IN_MILLIS;
+import static com.appdynamics.extensions.logmonitor.Constants.TAIL_PASS_TIME_BUDGET_IN_SECONDS;
+import static com.appdynamics.extensions.logmonitor.LogFileLocator.findLogDirectories;
+import static com.appdynamics.extensions.logmonitor.LogFileLocator.isMultiFileLog;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.processors.FilePointerProcessor;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Follows the logs continuously in the background instead of reading everything
+ * new once per run. A log is read again shortly after its directory reports a change,
+ * or when due by its {@link LogSchedule}, i.e. by how fast it grows, for file systems
+ * without change notifications. The matches are added up until they are taken by
+ * {@link #snapshot()}, so each run only uploads what was counted in between.
+ *
+ * <p>Each pass reads a log with a {@link LogMonitorTask} and a short time budget, and a
+ * log is never read by two passes at once. The search strings of a log are compiled
+ * on its first pass with something to read, and reused by the following ones.
+ * Snapshots wait for the passes in progress, so the saved file pointers always match
+ * the counts uploaded.</p>
+ *
+ * @author Satish Muddam
+ */
+public class LogTailer implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(LogTailer.class);
+
+    private final List<Log> logs;
+
+    private final FilePointerProcessor filePointerProcessor;
+
+    private final DirectoryListingCache directoryListingCache;
+
+    private final ExecutorService threadPool;
+
+    private final String configKey;
+
+    private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+    private final Map<WatchKey, Set<Log>> watchedLogs = new HashMap<WatchKey, Set<Log>>();
+
+    private final Map<Log, LogSchedule> schedules = new HashMap<Log, LogSchedule>();
+
+    private final Map<Log, ResourceGovernor> governors = new HashMap<Log, ResourceGovernor>();
+
+    /**
+     * Compiles the search strings of each log once for all passes
+     */
+    private final LineSearcherCache lineSearcherCache = new LineSearcherCache();
+
+    private WatchService watchService;
+
+    private LogMetrics logMetrics = new LogMetrics();
+
+    private volatile boolean stopped;
+
+    private Thread thread;
+
+    public LogTailer(List<Log> logs, int noOfThreads, FilePointerProcessor filePointerProcessor,
+                     DirectoryListingCache directoryListingCache) {
+        this.logs = logs;
+        this.filePointerProcessor = filePointerProcessor;
+        this.directoryListingCache = directoryListingCache;
+        this.threadPool = Executors.newFixedThreadPool(noOfThreads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "LogTailer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.configKey = getConfigKey(logs, noOfThreads);
+
+        for (Log log : logs) {
+            LogSchedule schedule = new LogSchedule();
+            schedule.setMultiFile(isMultiFileLog(log));
+            schedules.put(log, schedule);
+        }
+    }
+
+    /**
+     * @return identifies the logs and threads a tailer was started with, to restart it
+     * when the config changes
+     */
+    public static String getConfigKey(List<Log> logs, int noOfThreads) {
+        return noOfThreads + ":" + logs;
+    }
+
+    public String getConfigKey() {
+        return configKey;
+    }
+
+    /**
+     * Sets the governor limiting all passes, each log also being limited by its own
+     * limits. Must be called before {@link #start()}.
+     */
+    public void setResourceGovernor(ResourceGovernor resourceGovernor) {
+        for (Log log : logs) {
+            governors.put(log, resourceGovernor.newLogGovernor(log));
+        }
+    }
+
+    public synchronized void start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+
+        } catch (IOException ex) {
+            LOGGER.warn("Unable to watch log directories, logs are read by their growth rate", ex);
+
+        } catch (UnsupportedOperationException ex) {
+            LOGGER.info("Watch service not supported, logs are read by their growth rate");
+        }
+
+        thread = new Thread(this, "LogTailer-dispatcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Lets the pass in progress finish, so that its matches are in the next snapshot
+     */
+    public synchronized void stop() {
+        stopped = true;
+
+        if (watchService != null) {
+            try {
+                // wakes up the dispatcher if it is waiting for changes
+                watchService.close();
+            } catch (IOException e) {
+            }
+        }
+
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(TAIL_PASS_TIME_BUDGET_IN_SECONDS) +
+                        TAIL_MAX_INTERVAL_IN_MILLIS);
+
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        threadPool.shutdown();
+    }
+
+    /**
+     * Takes the matches counted since the previous snapshot, and saves the file
+     * pointers they were counted up to
+     */
+    public LogMetrics snapshot() {
+        snapshotLock.writeLock().lock();
+
+        try {
+            LogMetrics snapshot = logMetrics;
+            logMetrics = new LogMetrics();
+            filePointerProcessor.updateFilePointerFile();
+
+            return snapshot;
+
+        } finally {
+            snapshotLock.writeLock().unlock();
+        }
+    }
+
+    public void run() {
+        Collection<Log> dueLogs = logs;
+
+        while (!stopped) {
+            try {
+                tail(dueLogs);
+                dueLogs = waitForDueLogs();
+
+            } catch (InterruptedException ex) {
+                break;
+
+            } catch (ClosedWatchServiceException ex) {
+                break;
+
+            } catch (Exception ex) {
+                LOGGER.error("Unfortunately an issue has occurred while tailing logs: ", ex);
+            }
+        }
+
+        LOGGER.info("Log tailer stopped");
+    }
+
+    /**
+     * Reads what is new in the logs, each on its own thread
+     */
+    private void tail(Collection<Log> logsToTail) throws InterruptedException {
+        // before reading, so that no change made during the pass is missed
+        for (Log log : logsToTail) {
+            watch(log);
+        }
+
+        long deadline = System.currentTimeMillis() +
+                TimeUnit.SECONDS.toMillis(TAIL_PASS_TIME_BUDGET_IN_SECONDS);
+
+        List<LogMonitorTask> tasks = new ArrayList<LogMonitorTask>();
+
+        for (Log log : logsToTail) {
+            LogMonitorTask task = new LogMonitorTask(filePointerProcessor, log);
+            task.setDeadline(deadline);
+            task.setDirectoryListingCache(directoryListingCache);
+            task.setResourceGovernor(governors.get(log));
+            task.setLineSearcherCache(lineSearcherCache);
+            tasks.add(task);
+        }
+
+        snapshotLock.readLock().lock();
+
+        try {
+            List<Future<LogMetrics>> results = threadPool.invokeAll(tasks);
+            long now = System.currentTimeMillis();
+            int i = 0;
+
+            for (Log log : logsToTail) {
+                long size = -1;
+
+                try {
+                    LogMetrics result = results.get(i++).get();
+                    logMetrics.accumulate(result);
+
+                    BigInteger fileSize = result.getMetrics().get(
+                            LogMonitorTask.getLogNamePrefix(log) + FILESIZE_METRIC_NAME);
+                    size = fileSize != null ? fileSize.longValue() : -1;
+
+                } catch (ExecutionException ex) {
+                    LOGGER.error("Task execution failed. ", ex);
+                }
+
+                schedules.get(log).record(size, now);
+            }
+
+        } finally {
+            snapshotLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the logs whose directories changed, and the logs due by their schedule
+     */
+    private Collection<Log> waitForDueLogs() throws InterruptedException {
+        Set<Log> dueLogs = new LinkedHashSet<Log>();
+
+        while (dueLogs.isEmpty() && !stopped) {
+            long nextPassAt = Long.MAX_VALUE;
+
+            for (LogSchedule schedule : schedules.values()) {
+                nextPassAt = Math.min(nextPassAt, schedule.getNextPassAt());
+            }
+
+            long timeout = nextPassAt - System.currentTimeMillis();
+
+            if (timeout > 0) {
+                dueLogs.addAll(waitForChanges(timeout));
+            }
+
+            long now = System.currentTimeMillis();
+
+            for (Log log : logs) {
+                if (schedules.get(log).isDue(now)) {
+                    dueLogs.add(log);
+                }
+            }
+        }
+
+        return dueLogs;
+    }
+
+    /**
+     * @return the logs whose directories changed within the timeout
+     */
+    private Set<Log> waitForChanges(long timeout) throws InterruptedException {
+        Set<Log> changedLogs = new LinkedHashSet<Log>();
+
+        if (watchService == null) {
+            Thread.sleep(timeout);
+            return changedLogs;
+        }
+
+        WatchKey watchKey = watchService.poll(timeout, TimeUnit.MILLISECONDS);
+
+        if (watchKey == null) {
+            return changedLogs;
+        }
+
+        // lets a burst of writes settle so it is read in one pass
+        Thread.sleep(TAIL_NOTIFICATION_DELAY_IN_MILLIS);
+
+        while (watchKey != null) {
+            watchKey.pollEvents();
+
+            Set<Log> keyLogs = watchKey.reset() ? watchedLogs.get(watchKey) :
+                    watchedLogs.remove(watchKey);
+
+            if (keyLogs != null) {
+                changedLogs.addAll(keyLogs);
+            }
+
+            watchKey = watchService.poll();
+        }
+
+        return changedLogs;
+    }
+
+    /**
+     * Registers the directories of the log, which may change for a glob. Directories
+     * already registered keep their watch key.
+     */
+    private void watch(Log log) {
+        if (watchService == null) {
+            return;
+        }
+
+        try {
+            for (File directory : findLogDirectories(log, directoryListingCache)) {
+                WatchKey watchKey = directory.toPath().register(watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+
+                Set<Log> keyLogs = watchedLogs.get(watchKey);
+
+                if (keyLogs == null) {
+                    keyLogs = new LinkedHashSet<Log>();
+                    watchedLogs.put(watchKey, keyLogs);
+                }
+
+                keyLogs.add(log);
+            }
+
+        } catch (Exception ex) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Unable to watch the directories of log [%s]",
+                        log.getLogName()), ex);
+            }
+        }
+    }
+
+}
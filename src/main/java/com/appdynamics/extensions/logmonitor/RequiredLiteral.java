@@ -0,0 +1,397 @@
+package com.appdynamics.extensions.logmonitor;
+
+/**
+ * A plain string that every match of a regex contains, e.g. "system" for system\w+ or
+ * "Timeout" for Timeout.*ms. A line without it cannot match, so the regex only needs to
+ * run on the lines that contain it.
+ *
+ * <p>The regex is analysed conservatively: only the literal chars of its top level
+ * sequence are considered, and groups, classes and other constructs just end a run of
+ * literal chars. Regexes with a top level alternation, or with inline flags other than
+ * a leading case insensitive flag, have no required literal.</p>
+ *
+ * @author Satish Muddam
+ */
+public class RequiredLiteral {
+
+    private static final String QUANTIFIERS = "?*+{";
+
+    private final String literal;
+
+    private final boolean caseSensitive;
+
+    /**
+     * The literal with ASCII letters lower cased if case insensitive
+     */
+    private final char[] chars;
+
+    public RequiredLiteral(String literal, boolean caseSensitive) {
+        this.literal = literal;
+        this.caseSensitive = caseSensitive;
+        this.chars = new char[literal.length()];
+
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = caseSensitive ? literal.charAt(i) : toLowerAscii(literal.charAt(i));
+        }
+    }
+
+    public String getLiteral() {
+        return literal;
+    }
+
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    /**
+     * @return the longest literal required by the regex, or null if none is found
+     */
+    public static RequiredLiteral find(String regex) {
+        boolean caseSensitive = true;
+        int i = 0;
+
+        // the case flags added by the config, and maybe by the user
+        while (regex.startsWith("(?", i) && regex.indexOf(')', i) > 0) {
+            String flags = regex.substring(i + 2, regex.indexOf(')', i));
+
+            if (flags.equals("i")) {
+                caseSensitive = false;
+
+            } else if (flags.equals("-i")) {
+                caseSensitive = true;
+
+            } else {
+                break;
+            }
+
+            i += flags.length() + 3;
+        }
+
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            // the index after the atom starting at i, and its char if it is a literal one
+            int next;
+            int literalChar = -1;
+
+            if (c == '\\') {
+                if (i + 1 >= regex.length()) {
+                    return null;
+                }
+
+                char escaped = regex.charAt(i + 1);
+
+                if (escaped == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    String quoted = regex.substring(i + 2, end >= 0 ? end : regex.length());
+                    next = end >= 0 ? end + 2 : regex.length();
+
+                    if (quoted.isEmpty()) {
+                        i = next;
+                        continue;
+                    }
+
+                    // a quantifier only applies to the last quoted char
+                    run.append(quoted, 0, quoted.length() - 1);
+                    literalChar = quoted.charAt(quoted.length() - 1);
+
+                } else if (!Character.isLetterOrDigit(escaped)) {
+                    next = i + 2;
+                    literalChar = escaped;
+
+                } else {
+                    // a class like \d, a boundary like \b, or an escaped char not worth decoding
+                    next = skipEscape(regex, i);
+
+                    if (next < 0) {
+                        return null;
+                    }
+                }
+
+            } else if (c == '(') {
+                next = skipGroup(regex, i);
+
+                if (next < 0 || regex.startsWith("(?", i) && isFlags(regex, i)) {
+                    // flags changing the case of what follows
+                    return null;
+                }
+
+            } else if (c == '[') {
+                next = skipClass(regex, i);
+
+                if (next < 0) {
+                    return null;
+                }
+
+            } else if (c == '|') {
+                return null;
+
+            } else if (c == '.' || c == '^' || c == '$') {
+                next = i + 1;
+
+            } else if (QUANTIFIERS.indexOf(c) >= 0 || c == ')') {
+                return null;
+
+            } else if (Character.isSurrogate(c)) {
+                // a quantifier would apply to the whole code point
+                next = i + 1;
+
+            } else {
+                next = i + 1;
+                literalChar = c;
+            }
+
+            int quantifierEnd = skipQuantifier(regex, next);
+            boolean optional = quantifierEnd > next && isOptional(regex, next);
+
+            if (literalChar >= 0 && !optional) {
+                run.append((char) literalChar);
+            }
+
+            if (literalChar < 0 || quantifierEnd > next) {
+                // the run ends at anything but a literal char occurring exactly once
+                if (run.length() > longest.length()) {
+                    longest = run.toString();
+                }
+
+                run.setLength(0);
+            }
+
+            i = quantifierEnd;
+        }
+
+        if (run.length() > longest.length()) {
+            longest = run.toString();
+        }
+
+        return longest.isEmpty() ? null : new RequiredLiteral(longest, caseSensitive);
+    }
+
+    /**
+     * @return true if the line contains the literal
+     */
+    public boolean isContainedIn(CharSequence line) {
+        int last = line.length() - chars.length;
+        char first = chars[0];
+
+        for (int i = 0; i <= last; i++) {
+            if (toComparable(line.charAt(i)) != first) {
+                continue;
+            }
+
+            int j = 1;
+
+            while (j < chars.length && toComparable(line.charAt(i + j)) == chars[j]) {
+                j++;
+            }
+
+            if (j == chars.length) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private char toComparable(char c) {
+        return caseSensitive ? c : toLowerAscii(c);
+    }
+
+    /**
+     * @return the index after the escape starting at the given index, which is not an
+     * escaped char or quote, -1 if its end is unclear
+     */
+    private static int skipEscape(String regex, int start) {
+        char escaped = regex.charAt(start + 1);
+        int i = start + 2;
+
+        if (i < regex.length() && regex.charAt(i) == '{' && "xpPNbk".indexOf(escaped) >= 0) {
+            int end = regex.indexOf('}', i);
+            return end >= 0 ? end + 1 : -1;
+        }
+
+        switch (escaped) {
+            case 'x':
+                return i + 2;
+            case 'u':
+                return i + 4;
+            case 'c':
+            case 'p':
+            case 'P':
+                return i + 1;
+            case 'k':
+                int end = regex.indexOf('>', i);
+                return end >= 0 ? end + 1 : -1;
+            case '0':
+                int digits = 0;
+
+                while (digits < 3 && i < regex.length() && regex.charAt(i) >= '0' && regex.charAt(i) <= '7') {
+                    i++;
+                    digits++;
+                }
+
+                return i;
+            default:
+                // a back reference takes as many digits as there are groups
+                return Character.isDigit(escaped) && i < regex.length() &&
+                        Character.isDigit(regex.charAt(i)) ? -1 : i;
+        }
+    }
+
+    /**
+     * @return the index after the group starting at the given index, -1 if not closed
+     */
+    private static int skipGroup(String regex, int start) {
+        int depth = 0;
+        int i = start;
+
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+
+            if (c == '\\') {
+                if (regex.startsWith("\\Q", i)) {
+                    int end = regex.indexOf("\\E", i + 2);
+
+                    if (end < 0) {
+                        return -1;
+                    }
+
+                    i = end + 2;
+
+                } else {
+                    i += 2;
+                }
+
+                continue;
+            }
+
+            if (c == '[') {
+                i = skipClass(regex, i);
+
+                if (i < 0) {
+                    return -1;
+                }
+
+                continue;
+            }
+
+            if (c == '(') {
+                depth++;
+
+            } else if (c == ')') {
+                depth--;
+
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+
+            i++;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the index after the class starting at the given index, -1 if not closed
+     */
+    private static int skipClass(String regex, int start) {
+        int depth = 0;
+        int i = start;
+
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+
+            if (c == '[') {
+                depth++;
+
+                // a ] right after the opening bracket or its negation is a literal one
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+                    i++;
+                }
+
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == ']') {
+                    i++;
+                }
+
+            } else if (c == ']') {
+                depth--;
+
+                if (depth == 0) {
+                    return i + 1;
+                }
+            }
+
+            i++;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the index after the quantifier at the given index, if any
+     */
+    private static int skipQuantifier(String regex, int start) {
+        if (start >= regex.length() || QUANTIFIERS.indexOf(regex.charAt(start)) < 0) {
+            return start;
+        }
+
+        int i = start + 1;
+
+        if (regex.charAt(start) == '{') {
+            int end = regex.indexOf('}', start);
+            i = end >= 0 ? end + 1 : regex.length();
+        }
+
+        // lazy or possessive
+        if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            i++;
+        }
+
+        return i;
+    }
+
+    /**
+     * @return true if the quantifier at the given index allows no occurrence
+     */
+    private static boolean isOptional(String regex, int start) {
+        char c = regex.charAt(start);
+
+        if (c == '{') {
+            int i = start + 1;
+
+            while (i < regex.length() && regex.charAt(i) == ' ') {
+                i++;
+            }
+
+            return i < regex.length() && regex.charAt(i) == '0';
+        }
+
+        return c == '?' || c == '*';
+    }
+
+    /**
+     * @return true if the group at the given index only sets flags, e.g. (?i)
+     */
+    private static boolean isFlags(String regex, int start) {
+        int i = start + 2;
+
+        while (i < regex.length() && (Character.isLetter(regex.charAt(i)) || regex.charAt(i) == '-')) {
+            i++;
+        }
+
+        return i < regex.length() && regex.charAt(i) == ')';
+    }
+
+    private static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+}
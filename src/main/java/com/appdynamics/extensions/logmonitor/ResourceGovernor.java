@@ -0,0 +1,207 @@
+package com.appdynamics.extensions.logmonitor;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import org.apache.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps the read bandwidth and the CPU share of the threads scanning logs, so that
+ * catching up on a large backlog does not starve the application being monitored.
+ *
+ * <p>Both limits are token buckets refilled at the configured rate, holding up to one
+ * second's worth. Scanning threads report the bytes they read and the CPU time they
+ * used, see {@link #getCurrentThreadCpuTime()}, and are put to sleep once a bucket is
+ * overdrawn until it is refilled. The CPU limit is a percentage of all processors.</p>
+ *
+ * <p>A log's governor is limited by its own limits and by the ones of the extension,
+ * see {@link #newLogGovernor(Log)}.</p>
+ *
+ * @author Satish Muddam
+ */
+public class ResourceGovernor {
+
+    private static final Logger LOGGER = Logger.getLogger(ResourceGovernor.class);
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private static final boolean CPU_TIME_SUPPORTED = isCpuTimeSupported();
+
+    private final ResourceGovernor parent;
+
+    private volatile int maxReadMBPerSecond;
+
+    private volatile int maxCpuPercent;
+
+    private volatile TokenBucket readBucket;
+
+    private volatile TokenBucket cpuBucket;
+
+    public ResourceGovernor() {
+        this(null);
+    }
+
+    private ResourceGovernor(ResourceGovernor parent) {
+        this.parent = parent;
+    }
+
+    /**
+     * @return a governor for the log's own limits, also bound by the limits of this one
+     */
+    public ResourceGovernor newLogGovernor(Log log) {
+        ResourceGovernor logGovernor = new ResourceGovernor(this);
+        logGovernor.setLimits(log.getMaxReadMBPerSecond() != null ? log.getMaxReadMBPerSecond() : 0,
+                log.getMaxCpuPercent() != null ? log.getMaxCpuPercent() : 0);
+
+        return logGovernor;
+    }
+
+    /**
+     * Changes the limits, keeping the current buckets if their rate did not change
+     *
+     * @param maxReadMBPerSecond 0 or less for no read limit
+     * @param maxCpuPercent      0 or less for no CPU limit
+     */
+    public synchronized void setLimits(int maxReadMBPerSecond, int maxCpuPercent) {
+        if (maxReadMBPerSecond != this.maxReadMBPerSecond) {
+            this.maxReadMBPerSecond = maxReadMBPerSecond;
+            readBucket = maxReadMBPerSecond > 0 ?
+                    new TokenBucket(maxReadMBPerSecond * 1024.0 * 1024.0) : null;
+        }
+
+        if (maxCpuPercent != this.maxCpuPercent) {
+            this.maxCpuPercent = maxCpuPercent;
+
+            if (maxCpuPercent > 0 && !CPU_TIME_SUPPORTED) {
+                LOGGER.warn("Thread CPU time not supported, the CPU of log scans cannot be limited");
+            }
+
+            cpuBucket = maxCpuPercent > 0 && CPU_TIME_SUPPORTED ? new TokenBucket(maxCpuPercent / 100.0 *
+                    Runtime.getRuntime().availableProcessors() * TimeUnit.SECONDS.toNanos(1)) : null;
+        }
+    }
+
+    /**
+     * @return true if there is any limit to apply, here or in the parent
+     */
+    public boolean isLimited() {
+        return readBucket != null || cpuBucket != null || (parent != null && parent.isLimited());
+    }
+
+    /**
+     * Takes the bytes read and the CPU time used from the buckets, and sleeps until
+     * they are refilled if overdrawn, but not past the deadline.
+     *
+     * @param cpuNanos the CPU time used in nanos
+     * @param deadline time in millis after which the scan stops anyway
+     * @return the time slept in millis
+     */
+    public long throttle(long bytesRead, long cpuNanos, long deadline) {
+        long waitNanos = consume(bytesRead, cpuNanos);
+
+        if (waitNanos <= 0) {
+            return 0;
+        }
+
+        long sleepMillis = Math.min(TimeUnit.NANOSECONDS.toMillis(waitNanos) + 1,
+                deadline - System.currentTimeMillis());
+
+        if (sleepMillis <= 0) {
+            return 0;
+        }
+
+        long sleepStart = System.currentTimeMillis();
+
+        try {
+            Thread.sleep(sleepMillis);
+
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        return System.currentTimeMillis() - sleepStart;
+    }
+
+    /**
+     * @return the time to wait in nanos, the longest of this governor and its parent
+     */
+    private long consume(long bytesRead, long cpuNanos) {
+        long now = System.nanoTime();
+        long waitNanos = 0;
+
+        TokenBucket bucket = readBucket;
+
+        if (bucket != null) {
+            waitNanos = bucket.consume(bytesRead, now);
+        }
+
+        bucket = cpuBucket;
+
+        if (bucket != null) {
+            waitNanos = Math.max(waitNanos, bucket.consume(cpuNanos, now));
+        }
+
+        if (parent != null) {
+            waitNanos = Math.max(waitNanos, parent.consume(bytesRead, cpuNanos));
+        }
+
+        return waitNanos;
+    }
+
+    /**
+     * @return the CPU time used by the current thread in nanos, 0 if not supported
+     */
+    public static long getCurrentThreadCpuTime() {
+        return CPU_TIME_SUPPORTED ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static boolean isCpuTimeSupported() {
+        try {
+            return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() &&
+                    THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+
+        } catch (UnsupportedOperationException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Tokens may go negative, so that concurrent threads overdrawing the bucket
+     * each wait for their share to be refilled
+     */
+    private static class TokenBucket {
+
+        private final double tokensPerNano;
+
+        private final double capacity;
+
+        private double tokens;
+
+        private long lastRefill;
+
+        private TokenBucket(double tokensPerSecond) {
+            this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = tokensPerSecond;
+            this.tokens = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        /**
+         * @return the time in nanos until the bucket is no longer overdrawn
+         */
+        private synchronized long consume(long amount, long now) {
+            // now may be behind for a thread that waited for the lock
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+                lastRefill = now;
+            }
+
+            tokens -= amount;
+
+            return tokens >= 0 ? 0 : (long) (-tokens / tokensPerNano);
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.Constants.MAX_ROTATED_FILE_CANDIDATES;
+import static com.appdynamics.extensions.logmonitor.reader.CompressedLogReader.isCompressed;
+
+import com.appdynamics.extensions.logmonitor.processors.FileFingerprint;
+import com.appdynamics.extensions.logmonitor.processors.FilePointer;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the file a log was read from before it was rotated, so the rest of it can
+ * be read before moving on to the new log. That is either the file itself, when the
+ * log filename changes on rotation, or one of its siblings, e.g. server.log.1 or
+ * server.log-20150101.gz for server.log.
+ *
+ * <p>Siblings are ordered by their rotation suffix from the directory listing,
+ * and only the first few are opened to compare them with the saved fingerprint.</p>
+ *
+ * @author Satish Muddam
+ */
+public class RotatedFileLocator {
+
+    private static final Logger LOGGER = Logger.getLogger(RotatedFileLocator.class);
+
+    private static final Pattern ROTATION_NUMBER = Pattern.compile("[.-](\\d{1,4})");
+
+    /**
+     * Most recently rotated first: the same name compressed, then numbered
+     * siblings in ascending order, then the rest, e.g. dates, in descending order
+     */
+    private static final Comparator<String> ROTATION_ORDER = new Comparator<String>() {
+        public int compare(String suffix1, String suffix2) {
+            if (suffix1.isEmpty() || suffix2.isEmpty()) {
+                return suffix1.isEmpty() ? (suffix2.isEmpty() ? 0 : -1) : 1;
+            }
+
+            Integer number1 = getRotationNumber(suffix1);
+            Integer number2 = getRotationNumber(suffix2);
+
+            if (number1 != null && number2 != null) {
+                return number1.compareTo(number2);
+            }
+
+            if (number1 != null || number2 != null) {
+                return number1 != null ? -1 : 1;
+            }
+
+            return suffix2.compareTo(suffix1);
+        }
+    };
+
+    /**
+     * @param filePointer the file pointer of the rotated log
+     * @param currentFile the log file now being monitored
+     * @param directoryListingCache the cache to list the directory from, or null to list it now
+     * @return the rotated file to finish, or null if it cannot be found
+     */
+    public static File findRotatedFile(FilePointer filePointer, File currentFile,
+                                       DirectoryListingCache directoryListingCache) throws IOException {
+        File previousFile = new File(filePointer.getFilename());
+        long position = filePointer.getLastReadPosition().get();
+        FileFingerprint fingerprint = filePointer.getFingerprint();
+
+        List<File> candidates = new ArrayList<File>();
+
+        if (!previousFile.getPath().equals(currentFile.getPath())) {
+            candidates.add(previousFile);
+        }
+
+        candidates.addAll(getRotatedSiblings(previousFile, directoryListingCache));
+
+        for (File candidate : candidates.subList(0, Math.min(candidates.size(), MAX_ROTATED_FILE_CANDIDATES))) {
+            if (candidate.isFile() && isRotatedFile(candidate, previousFile, position, fingerprint)) {
+                return candidate;
+            }
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Unable to find rotated file of [%s] in %s", previousFile.getPath(), candidates));
+        }
+
+        return null;
+    }
+
+    /**
+     * Without a fingerprint, i.e. a file pointer saved by an older version, any
+     * candidate that is large enough is taken.
+     */
+    private static boolean isRotatedFile(File candidate, File previousFile, long position,
+                                         FileFingerprint fingerprint) throws IOException {
+        if (isCompressed(candidate)) {
+            return fingerprint == null || fingerprint.matchesCompressedHead(candidate);
+        }
+
+        long fileSize = candidate.length();
+
+        if (fingerprint == null) {
+            return fileSize >= position;
+        }
+
+        // renamed files keep their file key, copies made by copytruncate do not
+        return candidate.equals(previousFile) ? fingerprint.matches(candidate, fileSize, position) :
+                fingerprint.matchesContent(candidate, fileSize, position);
+    }
+
+    private static List<File> getRotatedSiblings(File file, DirectoryListingCache directoryListingCache) {
+        File directory = file.getAbsoluteFile().getParentFile();
+        String filename = file.getName();
+        List<File> siblings = new ArrayList<File>();
+
+        if (directory == null) {
+            return siblings;
+        }
+
+        List<String> names;
+
+        try {
+            // names only, no file is stat-ed here
+            names = directoryListingCache != null ? directoryListingCache.getListing(directory).getNames() :
+                    DirectoryListing.list(directory).getNames();
+
+        } catch (FileNotFoundException ex) {
+            return siblings;
+        }
+
+        List<String> suffixes = new ArrayList<String>();
+
+        for (String name : names) {
+            if (name.startsWith(filename) && !name.equals(filename)) {
+                suffixes.add(name.substring(filename.length()));
+            }
+        }
+
+        Collections.sort(suffixes, new Comparator<String>() {
+            public int compare(String suffix1, String suffix2) {
+                return ROTATION_ORDER.compare(stripCompressionExtension(suffix1),
+                        stripCompressionExtension(suffix2));
+            }
+        });
+
+        for (String suffix : suffixes) {
+            siblings.add(new File(directory, filename + suffix));
+        }
+
+        return siblings;
+    }
+
+    private static Integer getRotationNumber(String suffix) {
+        Matcher matcher = ROTATION_NUMBER.matcher(suffix);
+        return matcher.matches() ? Integer.valueOf(matcher.group(1)) : null;
+    }
+
+    private static String stripCompressionExtension(String suffix) {
+        String lowerCaseSuffix = suffix.toLowerCase();
+
+        if (lowerCaseSuffix.endsWith(".gz")) {
+            return suffix.substring(0, suffix.length() - 3);
+        }
+
+        if (lowerCaseSuffix.endsWith(".zip")) {
+            return suffix.substring(0, suffix.length() - 4);
+        }
+
+        return suffix;
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.appdynamics.extensions.logmonitor;
+
+import org.apache.commons.lang.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+
+/**
+ * Outcome of scanning (part of) a log file.
+ *
+ * @author Satish Muddam
+ */
+public class ScanResult {
+
+	private LogMetrics logMetrics;
+
+	private long position;
+
+	private boolean complete;
+
+	/**
+	 * @param logMetrics the counts of the lines scanned
+	 * @param position   the offset of the first line not scanned
+	 * @param complete   false if the scan stopped before the end of its range
+	 */
+	public ScanResult(LogMetrics logMetrics, long position, boolean complete) {
+		this.logMetrics = logMetrics;
+		this.position = position;
+		this.complete = complete;
+	}
+
+	public LogMetrics getLogMetrics() {
+		return logMetrics;
+	}
+
+	public long getPosition() {
+		return position;
+	}
+
+	public boolean isComplete() {
+		return complete;
+	}
+
+	@Override
+	public String toString() {
+		return ReflectionToStringBuilder.toString(this,
+				ToStringStyle.SHORT_PREFIX_STYLE);
+	}
+
+}
@@ -1,5 +1,12 @@
 package com.appdynamics.extensions.logmonitor;
 
+import com.appdynamics.extensions.logmonitor.reader.ByteScanner;
+import com.appdynamics.extensions.logmonitor.reader.LineView;
+import com.appdynamics.extensions.logmonitor.regex.CompiledRegex;
+import com.appdynamics.extensions.logmonitor.regex.RegexEngines;
+import com.appdynamics.extensions.logmonitor.regex.RegexMatcher;
+
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -11,12 +18,87 @@ public class SearchPattern {
     private Pattern pattern;
     private Boolean caseSensitive;
 
+    private String literal;
+
+    private boolean matchExactString;
+
+    private RequiredLiteral requiredLiteral;
+
+    private CompiledRegex compiledRegex;
+
+    private boolean hasFirstByte;
+
+    private long firstByte;
+
+    private long otherCaseFirstByte;
+
+    private final ThreadLocal<Matcher> matchers = new ThreadLocal<Matcher>() {
+        @Override
+        protected Matcher initialValue() {
+            // only matters when a region is set, i.e. for segments of oversized lines,
+            // where look-arounds may see the overlap and ^ must not match at the region start
+            return pattern.matcher("").useTransparentBounds(true).useAnchoringBounds(false);
+        }
+    };
+
+    private final ThreadLocal<RegexMatcher> regexMatchers = new ThreadLocal<RegexMatcher>() {
+        @Override
+        protected RegexMatcher initialValue() {
+            return compiledRegex.matcher();
+        }
+    };
 
     public SearchPattern(String displayName, Pattern pattern, Boolean caseSensitive) {
+        this(displayName, pattern, caseSensitive, null);
+    }
+
+    /**
+     * @param literal the text searched for if the pattern is a plain string rather
+     *                than a regex, otherwise null
+     */
+    public SearchPattern(String displayName, Pattern pattern, Boolean caseSensitive, String literal) {
+        this(displayName, pattern, caseSensitive, literal, false);
+    }
+
+    /**
+     * @param literal          the text searched for if the pattern is a plain string rather
+     *                         than a regex, otherwise null
+     * @param matchExactString true if the literal must be surrounded by whitespace
+     */
+    public SearchPattern(String displayName, Pattern pattern, Boolean caseSensitive, String literal,
+                         boolean matchExactString) {
+        this(displayName, pattern, caseSensitive, literal, matchExactString,
+                RegexEngines.getDefault().compile(pattern));
+    }
+
+    /**
+     * @param compiledRegex the pattern compiled by the engine the search string selected
+     */
+    public SearchPattern(String displayName, Pattern pattern, Boolean caseSensitive, String literal,
+                         boolean matchExactString, CompiledRegex compiledRegex) {
+        this.compiledRegex = compiledRegex;
         this.displayName = displayName;
+        this.matchExactString = matchExactString;
         this.pattern = pattern;
         this.caseSensitive = caseSensitive;
+        this.literal = literal;
 
+        if (literal != null && literal.length() > 0) {
+            this.requiredLiteral = new RequiredLiteral(literal, caseSensitive);
+
+        } else if (literal == null && pattern.flags() == Pattern.compile(pattern.pattern()).flags()) {
+            // inline flags, e.g. the (?i) of a case insensitive search string, are read from the regex
+            this.requiredLiteral = RequiredLiteral.find(pattern.pattern());
+        }
+
+        if (requiredLiteral != null && requiredLiteral.getLiteral().charAt(0) < 0x80) {
+            char firstChar = requiredLiteral.getLiteral().charAt(0);
+            char otherCaseFirstChar = requiredLiteral.isCaseSensitive() ? firstChar : otherAsciiCase(firstChar);
+
+            this.hasFirstByte = true;
+            this.firstByte = ByteScanner.broadcast((byte) firstChar);
+            this.otherCaseFirstByte = ByteScanner.broadcast((byte) otherCaseFirstChar);
+        }
     }
 
     public String getDisplayName() {
@@ -29,4 +111,69 @@ public class SearchPattern {
     public Pattern getPattern() {
         return pattern;
     }
+
+    public String getLiteral() {
+        return literal;
+    }
+
+    public boolean isMatchExactString() {
+        return matchExactString;
+    }
+
+    public CompiledRegex getCompiledRegex() {
+        return compiledRegex;
+    }
+
+    /**
+     * @return the plain string every match contains, or null if none is known
+     */
+    public RequiredLiteral getRequiredLiteral() {
+        return requiredLiteral;
+    }
+
+    /**
+     * Cheap check whether the line can contain a match at all, i.e. whether it contains
+     * the required literal. If the literal starts with an ASCII char, the line's raw
+     * bytes are first searched for that char.
+     *
+     * @return false if the pattern cannot match the line
+     */
+    public boolean mayMatch(CharSequence line) {
+        if (requiredLiteral == null) {
+            return true;
+        }
+
+        if (hasFirstByte && line instanceof LineView &&
+                !((LineView) line).containsEitherByte(firstByte, otherCaseFirstByte)) {
+            return false;
+        }
+
+        return requiredLiteral.isContainedIn(line);
+    }
+
+    /**
+     * Returns this thread's java.util.regex matcher for the pattern, reset to the given input
+     */
+    public Matcher getMatcher(CharSequence input) {
+        return matchers.get().reset(input);
+    }
+
+    /**
+     * Returns this thread's matcher of the selected engine, reset to the given input
+     */
+    public RegexMatcher getRegexMatcher(CharSequence input) {
+        return regexMatchers.get().reset(input);
+    }
+
+    private static char otherAsciiCase(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return (char) (c - 'a' + 'A');
+        }
+
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c - 'A' + 'a');
+        }
+
+        return c;
+    }
 }
@@ -17,6 +17,16 @@ public class Configuration {
 
 	private int noOfThreads;
 
+	private int scanTimeBudgetInSeconds;
+
+	private boolean tailContinuously;
+
+	private int threadsPerDevice;
+
+	private int maxReadMBPerSecond;
+
+	private int maxCpuPercent;
+
 	public String getMetricPrefix() {
 		return metricPrefix;
 	}
@@ -41,6 +51,46 @@ public class Configuration {
 		this.noOfThreads = noOfThreads;
 	}
 
+	public int getScanTimeBudgetInSeconds() {
+		return scanTimeBudgetInSeconds;
+	}
+
+	public void setScanTimeBudgetInSeconds(int scanTimeBudgetInSeconds) {
+		this.scanTimeBudgetInSeconds = scanTimeBudgetInSeconds;
+	}
+
+	public boolean isTailContinuously() {
+		return tailContinuously;
+	}
+
+	public void setTailContinuously(boolean tailContinuously) {
+		this.tailContinuously = tailContinuously;
+	}
+
+	public int getThreadsPerDevice() {
+		return threadsPerDevice;
+	}
+
+	public void setThreadsPerDevice(int threadsPerDevice) {
+		this.threadsPerDevice = threadsPerDevice;
+	}
+
+	public int getMaxReadMBPerSecond() {
+		return maxReadMBPerSecond;
+	}
+
+	public void setMaxReadMBPerSecond(int maxReadMBPerSecond) {
+		this.maxReadMBPerSecond = maxReadMBPerSecond;
+	}
+
+	public int getMaxCpuPercent() {
+		return maxCpuPercent;
+	}
+
+	public void setMaxCpuPercent(int maxCpuPercent) {
+		this.maxCpuPercent = maxCpuPercent;
+	}
+
 	@Override
 	public String toString() {
 		return ReflectionToStringBuilder.toString(this,
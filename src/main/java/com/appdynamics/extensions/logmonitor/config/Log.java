@@ -20,6 +20,34 @@ public class Log {
 
 	private List<SearchString> searchStrings;
 
+	private String readerType;
+
+	private String encoding;
+
+	private Integer maxLineLengthInKB;
+
+	private Integer catchUpThresholdInMB;
+
+	private Integer catchUpTailInMB;
+
+	private String startFrom;
+
+	private String timestampFormat;
+
+	private String timestampPattern;
+
+	private Boolean monitorAllMatchingFiles;
+
+	private Boolean perFileMetrics;
+
+	private Integer maxDirectoryDepth;
+
+	private Integer maxReadMBPerSecond;
+
+	private Integer maxCpuPercent;
+
+	private Boolean prefilterMetrics;
+
 	public String getDisplayName() {
 		return displayName;
 	}
@@ -52,6 +80,118 @@ public class Log {
 		this.searchStrings = searchStrings;
 	}
 
+	public String getReaderType() {
+		return readerType;
+	}
+
+	public void setReaderType(String readerType) {
+		this.readerType = readerType;
+	}
+
+	public String getEncoding() {
+		return encoding;
+	}
+
+	public void setEncoding(String encoding) {
+		this.encoding = encoding;
+	}
+
+	public Integer getMaxLineLengthInKB() {
+		return maxLineLengthInKB;
+	}
+
+	public void setMaxLineLengthInKB(Integer maxLineLengthInKB) {
+		this.maxLineLengthInKB = maxLineLengthInKB;
+	}
+
+	public Integer getCatchUpThresholdInMB() {
+		return catchUpThresholdInMB;
+	}
+
+	public void setCatchUpThresholdInMB(Integer catchUpThresholdInMB) {
+		this.catchUpThresholdInMB = catchUpThresholdInMB;
+	}
+
+	public Integer getCatchUpTailInMB() {
+		return catchUpTailInMB;
+	}
+
+	public void setCatchUpTailInMB(Integer catchUpTailInMB) {
+		this.catchUpTailInMB = catchUpTailInMB;
+	}
+
+	public String getStartFrom() {
+		return startFrom;
+	}
+
+	public void setStartFrom(String startFrom) {
+		this.startFrom = startFrom;
+	}
+
+	public String getTimestampFormat() {
+		return timestampFormat;
+	}
+
+	public void setTimestampFormat(String timestampFormat) {
+		this.timestampFormat = timestampFormat;
+	}
+
+	public String getTimestampPattern() {
+		return timestampPattern;
+	}
+
+	public void setTimestampPattern(String timestampPattern) {
+		this.timestampPattern = timestampPattern;
+	}
+
+	public Boolean getMonitorAllMatchingFiles() {
+		return monitorAllMatchingFiles;
+	}
+
+	public void setMonitorAllMatchingFiles(Boolean monitorAllMatchingFiles) {
+		this.monitorAllMatchingFiles = monitorAllMatchingFiles;
+	}
+
+	public Boolean getPerFileMetrics() {
+		return perFileMetrics;
+	}
+
+	public void setPerFileMetrics(Boolean perFileMetrics) {
+		this.perFileMetrics = perFileMetrics;
+	}
+
+	public Integer getMaxDirectoryDepth() {
+		return maxDirectoryDepth;
+	}
+
+	public void setMaxDirectoryDepth(Integer maxDirectoryDepth) {
+		this.maxDirectoryDepth = maxDirectoryDepth;
+	}
+
+	public Integer getMaxReadMBPerSecond() {
+		return maxReadMBPerSecond;
+	}
+
+	public void setMaxReadMBPerSecond(Integer maxReadMBPerSecond) {
+		this.maxReadMBPerSecond = maxReadMBPerSecond;
+	}
+
+	public Integer getMaxCpuPercent() {
+		return maxCpuPercent;
+	}
+
+	public void setMaxCpuPercent(Integer maxCpuPercent) {
+		this.maxCpuPercent = maxCpuPercent;
+	}
+
+	public Boolean getPrefilterMetrics() {
+		return prefilterMetrics;
+	}
+
+	public void setPrefilterMetrics(Boolean prefilterMetrics) {
+		this.prefilterMetrics = prefilterMetrics;
+	}
+
 	@Override
 	public String toString() {
 		return ReflectionToStringBuilder.toString(this,
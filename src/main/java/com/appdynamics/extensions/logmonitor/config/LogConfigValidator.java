@@ -1,7 +1,14 @@
 package com.appdynamics.extensions.logmonitor.config;
 
+import java.util.regex.Pattern;
+
 import org.apache.commons.lang.StringUtils;
 
+import com.appdynamics.extensions.logmonitor.reader.LineDecoder;
+import com.appdynamics.extensions.logmonitor.reader.ReaderType;
+import com.appdynamics.extensions.logmonitor.reader.TimestampSeeker;
+import com.appdynamics.extensions.logmonitor.regex.RegexEngines;
+
 /**
  * @author Florencio Sarmiento
  *
@@ -20,6 +27,49 @@ public class LogConfigValidator {
 		if (log.getSearchStrings() == null || log.getSearchStrings().isEmpty()) {
 			throw new IllegalArgumentException("You must provide at least one search string.");
 		}
+		
+		// throws IllegalArgumentException if unknown
+		ReaderType.fromConfigName(log.getReaderType());
+		
+		for (SearchString searchString : log.getSearchStrings()) {
+			RegexEngines.get(searchString.getEngine());
+		}
+		
+		LineDecoder.resolveCharset(log.getEncoding());
+		
+		if (log.getMaxLineLengthInKB() != null && log.getMaxLineLengthInKB() < 0) {
+			throw new IllegalArgumentException("maxLineLengthInKB must not be negative.");
+		}
+		
+		if (log.getCatchUpThresholdInMB() != null && log.getCatchUpThresholdInMB() < 0) {
+			throw new IllegalArgumentException("catchUpThresholdInMB must not be negative.");
+		}
+		
+		if (log.getCatchUpTailInMB() != null && log.getCatchUpTailInMB() <= 0) {
+			throw new IllegalArgumentException("catchUpTailInMB must be greater than 0.");
+		}
+		
+		if (log.getMaxDirectoryDepth() != null && log.getMaxDirectoryDepth() <= 0) {
+			throw new IllegalArgumentException("maxDirectoryDepth must be greater than 0.");
+		}
+		
+		if (log.getMaxReadMBPerSecond() != null && log.getMaxReadMBPerSecond() <= 0) {
+			throw new IllegalArgumentException("maxReadMBPerSecond must be greater than 0.");
+		}
+		
+		if (log.getMaxCpuPercent() != null && log.getMaxCpuPercent() <= 0) {
+			throw new IllegalArgumentException("maxCpuPercent must be greater than 0.");
+		}
+		
+		if (StringUtils.isNotBlank(log.getStartFrom())) {
+			// throws IllegalArgumentException if invalid
+			TimestampSeeker.parseStartFrom(log.getStartFrom(), 0);
+			TimestampSeeker.createTimestampFormat(log.getTimestampFormat());
+			
+			if (StringUtils.isNotBlank(log.getTimestampPattern())) {
+				Pattern.compile(log.getTimestampPattern());
+			}
+		}
 	}
 
 }
@@ -1,5 +1,8 @@
 package com.appdynamics.extensions.logmonitor.config;
 
+import org.apache.commons.lang.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+
 /**
  * @author Satish Muddam
  */
@@ -9,6 +12,7 @@ public class SearchString {
     private String pattern;
     private Boolean matchExactString;
     private Boolean caseSensitive;
+    private String engine;
 
     public String getDisplayName() {
         return displayName;
@@ -41,4 +45,18 @@ public class SearchString {
     public void setCaseSensitive(Boolean caseSensitive) {
         this.caseSensitive = caseSensitive;
     }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this,
+                ToStringStyle.SHORT_PREFIX_STYLE);
+    }
 }
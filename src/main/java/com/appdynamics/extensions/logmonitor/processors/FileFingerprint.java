@@ -0,0 +1,272 @@
+package com.appdynamics.extensions.logmonitor.processors;
+
+import static com.appdynamics.extensions.logmonitor.Constants.FINGERPRINT_HEAD_SIZE;
+import static com.appdynamics.extensions.logmonitor.Constants.FINGERPRINT_TAIL_SIZE;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.CRC32;
+
+import org.apache.commons.lang.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang.builder.ToStringStyle;
+import org.apache.log4j.Logger;
+
+import com.appdynamics.extensions.logmonitor.reader.CompressedLogReader;
+
+/**
+ * Identifies the log file a {@link FilePointer} position belongs to, by the file key
+ * (the inode on unix) and the hashes of the first bytes of the file and of the bytes
+ * just before the position.
+ *
+ * @author Satish Muddam
+ */
+public class FileFingerprint {
+
+	private static final Logger LOGGER = Logger.getLogger(FileFingerprint.class);
+
+	private String fileKey;
+
+	private long position;
+
+	private int headLength;
+
+	private long headHash;
+
+	private int tailLength;
+
+	private long tailHash;
+
+	private long fileSize;
+
+	private long lastModified;
+
+	/**
+	 * @param position the position read up to, only bytes before it are hashed
+	 */
+	public static FileFingerprint create(File file, long position) throws IOException {
+		FileFingerprint fingerprint = new FileFingerprint();
+		BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+		fingerprint.fileKey = attributes.fileKey() != null ? attributes.fileKey().toString() : null;
+		fingerprint.fileSize = attributes.size();
+		fingerprint.lastModified = attributes.lastModifiedTime().toMillis();
+		fingerprint.position = position;
+		fingerprint.headLength = (int) Math.min(FINGERPRINT_HEAD_SIZE, position);
+		fingerprint.tailLength = (int) Math.min(FINGERPRINT_TAIL_SIZE, position);
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+		try {
+			fingerprint.headHash = hash(randomAccessFile, 0, fingerprint.headLength);
+			fingerprint.tailHash = hash(randomAccessFile,
+					position - fingerprint.tailLength, fingerprint.tailLength);
+
+		} finally {
+			randomAccessFile.close();
+		}
+
+		return fingerprint;
+	}
+
+	/**
+	 * A file matches if it has the same file key, where supported, and starts with the
+	 * same bytes. If the position has not moved since the fingerprint was taken, the
+	 * bytes before it must also be the same, which catches a file truncated and written
+	 * past the position again in between.
+	 *
+	 * @param fileSize the size of the file, read once by the caller
+	 * @param position the position to resume from
+	 */
+	public boolean matches(File file, long fileSize, long position) throws IOException {
+		String currentFileKey = readFileKey(file);
+
+		if (fileKey != null && currentFileKey != null && !fileKey.equals(currentFileKey)) {
+			return false;
+		}
+
+		return matchesContent(file, fileSize, position);
+	}
+
+	/**
+	 * A check from the file attributes only, without reading the file, that it is
+	 * the file the fingerprint was taken of, had been read to the end and has not been
+	 * modified since, i.e. there is nothing new to read.
+	 */
+	public boolean isUnchanged(File file) {
+		if (fileSize != position || lastModified == 0) {
+			return false;
+		}
+
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			Object currentFileKey = attributes.fileKey();
+
+			return attributes.size() == fileSize &&
+					attributes.lastModifiedTime().toMillis() == lastModified &&
+					(fileKey == null || currentFileKey == null || fileKey.equals(currentFileKey.toString()));
+
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * Same as {@link #matches(File, long, long)}, without comparing the file key,
+	 * e.g. for a copy of the log made by copytruncate.
+	 */
+	public boolean matchesContent(File file, long fileSize, long position) throws IOException {
+		if (fileSize < position || fileSize < headLength) {
+			return false;
+		}
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+
+		try {
+			if (hash(randomAccessFile, 0, headLength) != headHash) {
+				return false;
+			}
+
+			return position != this.position ||
+					hash(randomAccessFile, position - tailLength, tailLength) == tailHash;
+
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Compares the start of a compressed archive, see {@link CompressedLogReader}
+	 */
+	public boolean matchesCompressedHead(File archive) throws IOException {
+		InputStream inputStream = CompressedLogReader.openDecompressedStream(archive, FINGERPRINT_HEAD_SIZE);
+
+		try {
+			byte[] bytes = new byte[headLength];
+			int length = 0;
+
+			while (length < headLength) {
+				int bytesRead = inputStream.read(bytes, length, headLength - length);
+
+				if (bytesRead < 0) {
+					return false;
+				}
+
+				length += bytesRead;
+			}
+
+			return hash(bytes) == headHash;
+
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * @return the file key, or null if not supported by the file system
+	 */
+	public static String readFileKey(File file) {
+		try {
+			Object fileKey = Files.readAttributes(file.toPath(),
+					BasicFileAttributes.class).fileKey();
+			return fileKey != null ? fileKey.toString() : null;
+
+		} catch (IOException ex) {
+			if (LOGGER.isDebugEnabled()) {
+				LOGGER.debug("Unable to read file key of " + file.getPath(), ex);
+			}
+
+			return null;
+		}
+	}
+
+	private static long hash(RandomAccessFile randomAccessFile, long start, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		randomAccessFile.seek(start);
+		randomAccessFile.readFully(bytes);
+
+		return hash(bytes);
+	}
+
+	private static long hash(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+		return crc.getValue();
+	}
+
+	public String getFileKey() {
+		return fileKey;
+	}
+
+	public void setFileKey(String fileKey) {
+		this.fileKey = fileKey;
+	}
+
+	public long getPosition() {
+		return position;
+	}
+
+	public void setPosition(long position) {
+		this.position = position;
+	}
+
+	public int getHeadLength() {
+		return headLength;
+	}
+
+	public void setHeadLength(int headLength) {
+		this.headLength = headLength;
+	}
+
+	public long getHeadHash() {
+		return headHash;
+	}
+
+	public void setHeadHash(long headHash) {
+		this.headHash = headHash;
+	}
+
+	public int getTailLength() {
+		return tailLength;
+	}
+
+	public void setTailLength(int tailLength) {
+		this.tailLength = tailLength;
+	}
+
+	public long getTailHash() {
+		return tailHash;
+	}
+
+	public void setTailHash(long tailHash) {
+		this.tailHash = tailHash;
+	}
+
+	/**
+	 * The size of the file when the fingerprint was taken
+	 */
+	public long getFileSize() {
+		return fileSize;
+	}
+
+	public void setFileSize(long fileSize) {
+		this.fileSize = fileSize;
+	}
+
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(long lastModified) {
+		this.lastModified = lastModified;
+	}
+
+	@Override
+	public String toString() {
+		return ReflectionToStringBuilder.toString(this,
+				ToStringStyle.SHORT_PREFIX_STYLE);
+	}
+
+}
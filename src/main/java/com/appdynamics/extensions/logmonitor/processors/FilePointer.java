@@ -14,6 +14,12 @@ public class FilePointer {
 	private volatile String filename;
 	
 	private AtomicLong lastReadPosition = new AtomicLong(0);
+	
+	private AtomicLong backlogStartPosition = new AtomicLong(0);
+	
+	private AtomicLong backlogEndPosition = new AtomicLong(0);
+	
+	private volatile FileFingerprint fingerprint;
 
 	public String getFilename() {
 		return filename;
@@ -39,6 +45,51 @@ public class FilePointer {
 		}
 	}
 	
+	/**
+	 * Start of the older range still to be read, which was skipped to scan
+	 * the end of the file first. Empty when equal to the backlog end.
+	 */
+	public AtomicLong getBacklogStartPosition() {
+		return backlogStartPosition;
+	}
+
+	public synchronized void setBacklogStartPosition(AtomicLong backlogStartPosition) {
+		this.backlogStartPosition = backlogStartPosition;
+	}
+
+	public AtomicLong getBacklogEndPosition() {
+		return backlogEndPosition;
+	}
+
+	public synchronized void setBacklogEndPosition(AtomicLong backlogEndPosition) {
+		this.backlogEndPosition = backlogEndPosition;
+	}
+	
+	public synchronized void updateBacklogPositions(long backlogStartPosition, long backlogEndPosition) {
+		if (this.backlogStartPosition == null) {
+			this.backlogStartPosition = new AtomicLong(backlogStartPosition);
+		} else {
+			this.backlogStartPosition.set(backlogStartPosition);
+		}
+		
+		if (this.backlogEndPosition == null) {
+			this.backlogEndPosition = new AtomicLong(backlogEndPosition);
+		} else {
+			this.backlogEndPosition.set(backlogEndPosition);
+		}
+	}
+	
+	/**
+	 * Identifies the file the positions belong to, null if not known yet
+	 */
+	public FileFingerprint getFingerprint() {
+		return fingerprint;
+	}
+
+	public synchronized void setFingerprint(FileFingerprint fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+	
 	@Override
 	public String toString() {
 		return ReflectionToStringBuilder.toString(this,
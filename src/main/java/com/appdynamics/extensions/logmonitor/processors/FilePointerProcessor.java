@@ -37,6 +37,26 @@ public class FilePointerProcessor {
 		filePointer.setFilename(actualLogPath);
 		filePointer.updateLastReadPosition(lastReadPosition);
 	}
+	
+	public void updateFilePointer(String dynamicLogPath, String actualLogPath, 
+			long lastReadPosition, long backlogStartPosition, long backlogEndPosition) {
+		FilePointer filePointer = getFilePointer(dynamicLogPath, actualLogPath);
+		filePointer.setFilename(actualLogPath);
+		filePointer.updateLastReadPosition(lastReadPosition);
+		filePointer.updateBacklogPositions(backlogStartPosition, backlogEndPosition);
+	}
+	
+	public void updateFilePointer(String dynamicLogPath, String actualLogPath, 
+			long lastReadPosition, long backlogStartPosition, long backlogEndPosition,
+			FileFingerprint fingerprint) {
+		updateFilePointer(dynamicLogPath, actualLogPath, lastReadPosition, 
+				backlogStartPosition, backlogEndPosition);
+		getFilePointer(dynamicLogPath, actualLogPath).setFingerprint(fingerprint);
+	}
+
+	public boolean hasFilePointer(String dynamicLogPath) {
+		return filePointers.containsKey(dynamicLogPath);
+	}
 
 	public FilePointer getFilePointer(String dynamicLogPath, String actualLogPath) {
 		if (filePointers.containsKey(dynamicLogPath)) {
@@ -0,0 +1,247 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import static com.appdynamics.extensions.logmonitor.Constants.OVERSIZED_LINE_OVERLAP;
+import static com.appdynamics.extensions.logmonitor.reader.ByteScanner.indexOfLineTerminator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Base class for the buffer backed readers. Lines are split on the raw bytes held in
+ * {@link #buffer}, subclasses only decide how that buffer is (re)filled.
+ *
+ * <p>Not thread-safe, a reader is owned by a single task. This allows
+ * {@link #readLineView()} to hand out the same {@link LineView} for every line,
+ * so scanning a file does not allocate per line.</p>
+ *
+ * <p>If a max line length is set, a line exceeding it is not buffered as a whole.
+ * It is returned as a series of segments of at most that many chars instead, each
+ * one starting with the last {@link com.appdynamics.extensions.logmonitor.Constants#OVERSIZED_LINE_OVERLAP}
+ * chars of the previous segment, see {@link LineView#isSegment()}. The bytes are
+ * decoded as a stream, so multi-byte sequences split across refills are carried over.</p>
+ *
+ * @author Satish Muddam
+ */
+public abstract class ByteBufferLogReader implements LogReader {
+
+    /**
+     * Bytes from position() to limit() are read but not yet consumed
+     */
+    protected ByteBuffer buffer;
+
+    /**
+     * File offset of index 0 of {@link #buffer}
+     */
+    protected long bufferOffset;
+
+    private long endOffset = Long.MAX_VALUE;
+
+    private final LineDecoder lineDecoder;
+
+    private final LineView lineView = new LineView();
+
+    private int maxLineLength;
+
+    private boolean inOversizedLine;
+
+    private long oversizedLineOffset;
+
+    private boolean oversizedLineAtEOF;
+
+    private CharBuffer segment;
+
+    protected ByteBufferLogReader(ByteBuffer buffer, Charset charset) {
+        this.buffer = buffer;
+        this.lineDecoder = new LineDecoder(charset);
+        this.buffer.limit(0);
+    }
+
+    /**
+     * Makes more bytes available at the end of {@link #buffer}. The unread bytes
+     * from position() onwards must be kept, although they may be moved within
+     * the buffer, in which case {@link #bufferOffset} is adjusted accordingly.
+     *
+     * @return false if no more bytes are available
+     */
+    protected abstract boolean fill() throws IOException;
+
+    public String readLine() throws IOException {
+        CharSequence line = readLineView();
+        return line != null ? line.toString() : null;
+    }
+
+    public CharSequence readLineView() throws IOException {
+        if (inOversizedLine) {
+            return nextSegment();
+        }
+
+        if (getFilePointer() >= endOffset) {
+            return null;
+        }
+
+        int scanned = 0;
+
+        for (;;) {
+            int start = buffer.position();
+            int limit = buffer.limit();
+            int i = indexOfLineTerminator(buffer, start + scanned, limit);
+
+            if (i >= 0) {
+                int length = i - start;
+
+                if (maxLineLength > 0 && length > maxLineLength) {
+                    // may well be in the buffer already, but is not decoded as a whole
+                    return firstSegment();
+                }
+                int terminatorLength = 1;
+
+                if (buffer.get(i) == '\r') {
+                    if (i + 1 == limit && fill()) {
+                        start = buffer.position();
+                        i = start + length;
+                    }
+
+                    if (i + 1 < buffer.limit() && buffer.get(i + 1) == '\n') {
+                        terminatorLength = 2;
+                    }
+                }
+
+                LineView line = toLineView(start, length);
+                buffer.position(i + terminatorLength);
+                return line;
+            }
+
+            scanned = limit - start;
+
+            if (maxLineLength > 0 && scanned >= maxLineLength) {
+                return firstSegment();
+            }
+
+            if (!fill()) {
+                if (scanned == 0) {
+                    return null;
+                }
+
+                // EOF without line terminator
+                start = buffer.position();
+                LineView line = toLineView(start, scanned);
+                buffer.position(start + scanned);
+                return line;
+            }
+        }
+    }
+
+    /**
+     * While an oversized line is returned in segments, this is the offset of the
+     * start of that line.
+     */
+    public long getFilePointer() throws IOException {
+        return inOversizedLine ? oversizedLineOffset : bufferOffset + buffer.position();
+    }
+
+    public boolean isAtLineBoundary() {
+        return !inOversizedLine;
+    }
+
+    public void seek(long pos) throws IOException {
+        inOversizedLine = false;
+        bufferOffset = pos;
+        buffer.clear();
+        buffer.limit(0);
+    }
+
+    public void setEndOffset(long endOffset) {
+        this.endOffset = endOffset;
+    }
+
+    /**
+     * @param maxLineLength no of bytes after which a line is returned in segments,
+     *                      0 for no limit
+     */
+    public void setMaxLineLength(int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+    }
+
+    private LineView toLineView(int start, int length) {
+        int noOfChars = lineDecoder.decode(buffer, start, length);
+        lineView.set(lineDecoder.getChars(), 0, noOfChars, buffer, start, length);
+        return lineView;
+    }
+
+    private LineView firstSegment() throws IOException {
+        inOversizedLine = true;
+        oversizedLineOffset = bufferOffset + buffer.position();
+        oversizedLineAtEOF = false;
+
+        int capacity = Math.max(maxLineLength, 2 * OVERSIZED_LINE_OVERLAP);
+
+        if (segment == null || segment.capacity() != capacity) {
+            segment = CharBuffer.allocate(capacity);
+        }
+
+        segment.clear();
+        lineDecoder.startStream();
+
+        return decodeSegment(0);
+    }
+
+    private LineView nextSegment() throws IOException {
+        int length = segment.position();
+        int overlap = Math.min(OVERSIZED_LINE_OVERLAP, length);
+
+        System.arraycopy(segment.array(), length - overlap, segment.array(), 0, overlap);
+        segment.clear();
+        segment.position(overlap);
+
+        return decodeSegment(overlap);
+    }
+
+    private LineView decodeSegment(int overlap) throws IOException {
+        for (;;) {
+            int terminator = indexOfLineTerminator(buffer, buffer.position(), buffer.limit());
+
+            if (terminator >= 0 || oversizedLineAtEOF) {
+                int end = terminator >= 0 ? terminator : buffer.limit();
+
+                if (lineDecoder.decodeStream(buffer, end, segment, true)) {
+                    return toSegmentView(overlap, false);
+                }
+
+                if (terminator >= 0) {
+                    skipLineTerminator();
+                }
+
+                inOversizedLine = false;
+                return toSegmentView(overlap, true);
+            }
+
+            if (lineDecoder.decodeStream(buffer, buffer.limit(), segment, false)) {
+                return toSegmentView(overlap, false);
+            }
+
+            // no more bytes means the line ends at EOF, without terminator
+            oversizedLineAtEOF = !fill();
+        }
+    }
+
+    private LineView toSegmentView(int overlap, boolean lastSegment) {
+        lineView.setSegment(segment.array(), segment.position(), overlap, lastSegment);
+        return lineView;
+    }
+
+    /**
+     * Consumes the '\n', '\r' or "\r\n" at the buffer's position
+     */
+    private void skipLineTerminator() throws IOException {
+        boolean carriageReturn = buffer.get(buffer.position()) == '\r';
+        buffer.position(buffer.position() + 1);
+
+        if (carriageReturn && (buffer.hasRemaining() || fill())
+                && buffer.get(buffer.position()) == '\n') {
+            buffer.position(buffer.position() + 1);
+        }
+    }
+
+}
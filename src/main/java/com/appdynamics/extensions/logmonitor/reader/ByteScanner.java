@@ -0,0 +1,85 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Word-at-a-time (SWAR) byte search. Eight bytes are loaded as one long and
+ * compared against the searched byte(s) at once; only the tail shorter than
+ * a long is checked byte by byte.
+ *
+ * @author Satish Muddam
+ */
+public final class ByteScanner {
+
+    private static final long ONES = 0x0101010101010101L;
+
+    private static final long LOW_SEVEN_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private static final long LF = broadcast((byte) '\n');
+
+    private static final long CR = broadcast((byte) '\r');
+
+    private ByteScanner() {
+    }
+
+    /**
+     * @return the given byte repeated in every byte of a long
+     */
+    public static long broadcast(byte b) {
+        return ONES * (b & 0xff);
+    }
+
+    /**
+     * @return the index of the first '\n' or '\r' in [from, to), or -1 if there is none
+     */
+    public static int indexOfLineTerminator(ByteBuffer buffer, int from, int to) {
+        return indexOfEither(buffer, from, to, LF, CR);
+    }
+
+    /**
+     * Finds the first byte in [from, to) matching either of the two broadcast bytes,
+     * see {@link #broadcast(byte)}.
+     *
+     * @return the index of the first match, or -1 if there is none
+     */
+    public static int indexOfEither(ByteBuffer buffer, int from, int to,
+                                    long firstBroadcast, long secondBroadcast) {
+        boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+        int i = from;
+
+        for (; i + 8 <= to; i += 8) {
+            long word = buffer.getLong(i);
+            long found = zeroBytes(word ^ firstBroadcast) | zeroBytes(word ^ secondBroadcast);
+
+            if (found != 0) {
+                return i + (bigEndian ?
+                        Long.numberOfLeadingZeros(found) : Long.numberOfTrailingZeros(found)) / 8;
+            }
+        }
+
+        byte first = (byte) firstBroadcast;
+        byte second = (byte) secondBroadcast;
+
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+
+            if (b == first || b == second) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Sets the high bit of every byte of the word that is zero. Unlike the
+     * common (x - 0x01..01) &amp; ~x trick this does not borrow across bytes,
+     * so there are no false positives regardless of byte order.
+     */
+    private static long zeroBytes(long word) {
+        long t = (word & LOW_SEVEN_BITS) + LOW_SEVEN_BITS;
+        return ~(t | word | LOW_SEVEN_BITS);
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipInputStream;
+
+/**
+ * {@link LogReader} decompressing a rotated log archived as <code>.gz</code>, or as
+ * the first entry of a <code>.zip</code>, as a stream. Offsets are positions in the
+ * decompressed data, so they line up with the file pointer of the original log.
+ *
+ * <p>The stream can only be read forward, {@link #seek(long)} skips the bytes in
+ * between by decompressing them into the read buffer.</p>
+ *
+ * @author Satish Muddam
+ */
+public class CompressedLogReader extends ByteBufferLogReader {
+
+    private final InputStream inputStream;
+
+    public CompressedLogReader(File file, int bufferSize, Charset charset) throws IOException {
+        super(ByteBuffer.allocate(bufferSize), charset);
+        this.inputStream = openDecompressedStream(file, bufferSize);
+    }
+
+    /**
+     * @return true if the file is an archive this reader can decompress
+     */
+    public static boolean isCompressed(File file) {
+        return isCompressed(file.getName());
+    }
+
+    public static boolean isCompressed(String filename) {
+        String name = filename.toLowerCase();
+        return name.endsWith(".gz") || name.endsWith(".zip");
+    }
+
+    @Override
+    protected boolean fill() throws IOException {
+        int consumed = buffer.position();
+
+        if (buffer.remaining() == buffer.capacity()) {
+            // line longer than the buffer
+            ByteBuffer largerBuffer = ByteBuffer.allocate(buffer.capacity() * 2);
+            largerBuffer.put(buffer);
+            buffer = largerBuffer;
+
+        } else {
+            buffer.compact();
+        }
+
+        bufferOffset += consumed;
+
+        int bytesRead = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                buffer.remaining());
+
+        if (bytesRead > 0) {
+            buffer.position(buffer.position() + bytesRead);
+        }
+
+        buffer.flip();
+
+        return bytesRead > 0;
+    }
+
+    /**
+     * @throws IOException if the position is before the end of the bytes read so far
+     */
+    @Override
+    public void seek(long pos) throws IOException {
+        long streamPosition = bufferOffset + buffer.limit();
+
+        if (pos < streamPosition) {
+            throw new IOException(String.format(
+                    "Unable to seek back to [%s], compressed log has been read up to [%s]",
+                    pos, streamPosition));
+        }
+
+        long toSkip = pos - streamPosition;
+        byte[] skipBuffer = buffer.array();
+
+        while (toSkip > 0) {
+            int bytesRead = inputStream.read(skipBuffer, buffer.arrayOffset(),
+                    (int) Math.min(skipBuffer.length - buffer.arrayOffset(), toSkip));
+
+            if (bytesRead < 0) {
+                break;
+            }
+
+            toSkip -= bytesRead;
+        }
+
+        super.seek(pos - toSkip);
+    }
+
+    /**
+     * @return -1 as the decompressed length is not known up front
+     */
+    public long length() throws IOException {
+        return -1;
+    }
+
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    /**
+     * @return the decompressed content of a .gz file or of the first entry of a .zip file
+     */
+    public static InputStream openDecompressedStream(File file, int bufferSize) throws IOException {
+        InputStream fileInputStream = new FileInputStream(file);
+
+        try {
+            if (file.getName().toLowerCase().endsWith(".zip")) {
+                ZipInputStream zipInputStream = new ZipInputStream(fileInputStream);
+
+                if (zipInputStream.getNextEntry() == null) {
+                    throw new IOException(String.format("Archive [%s] is empty", file.getPath()));
+                }
+
+                return zipInputStream;
+            }
+
+            return new GZIPInputStream(fileInputStream, bufferSize);
+
+        } catch (IOException ex) {
+            fileInputStream.close();
+            throw ex;
+        }
+    }
+
+}
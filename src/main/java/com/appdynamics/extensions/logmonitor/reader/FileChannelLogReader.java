@@ -0,0 +1,68 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * {@link LogReader} reading through a {@link java.nio.channels.FileChannel} into a
+ * single {@link ByteBuffer} which is reused for every refill. The buffer is direct
+ * unless the reader is only used for a few lines, as direct memory is only freed
+ * once the buffer is garbage collected.
+ *
+ * @author Satish Muddam
+ */
+public class FileChannelLogReader extends ByteBufferLogReader {
+
+    private final FileChannel channel;
+
+    public FileChannelLogReader(File file, int bufferSize, Charset charset)
+            throws FileNotFoundException {
+        this(file, bufferSize, charset, true);
+    }
+
+    public FileChannelLogReader(File file, int bufferSize, Charset charset, boolean direct)
+            throws FileNotFoundException {
+        super(allocate(bufferSize, direct), charset);
+        this.channel = new RandomAccessFile(file, "r").getChannel();
+    }
+
+    @Override
+    protected boolean fill() throws IOException {
+        int consumed = buffer.position();
+
+        if (buffer.remaining() == buffer.capacity()) {
+            // line longer than the buffer
+            ByteBuffer largerBuffer = allocate(buffer.capacity() * 2, buffer.isDirect());
+            largerBuffer.put(buffer);
+            buffer = largerBuffer;
+
+        } else {
+            buffer.compact();
+        }
+
+        bufferOffset += consumed;
+
+        int bytesRead = channel.read(buffer, bufferOffset + buffer.position());
+        buffer.flip();
+
+        return bytesRead > 0;
+    }
+
+    public long length() throws IOException {
+        return channel.size();
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer allocate(int capacity, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import static com.appdynamics.extensions.logmonitor.Constants.DEFAULT_ENCODING;
+
+import org.apache.commons.lang.StringUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Decodes the bytes of a line into a reusable char array.
+ *
+ * <p>Lines are split on the raw bytes before decoding, which is safe because the
+ * supported charsets are ASCII compatible, i.e. '\n' and '\r' never occur inside a
+ * multi-byte sequence. Partial sequences at the end of a buffer therefore stay in
+ * the reader's buffer until the rest of the line has been read, and byte offsets
+ * remain exact.</p>
+ *
+ * <p>Pure ASCII lines, and every line of an ISO-8859-1 log, are widened byte by
+ * byte without going through the {@link CharsetDecoder}.</p>
+ *
+ * @author Satish Muddam
+ */
+public class LineDecoder {
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final int DEFAULT_EXPECTED_LINE_LENGTH = 256;
+
+    private final CharsetDecoder decoder;
+
+    private final boolean singleByte;
+
+    private final float maxCharsPerByte;
+
+    private char[] chars = new char[DEFAULT_EXPECTED_LINE_LENGTH];
+
+    public LineDecoder(Charset charset) {
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.singleByte = ISO_8859_1.equals(charset);
+        this.maxCharsPerByte = decoder.maxCharsPerByte();
+    }
+
+    /**
+     * Decodes <code>length</code> bytes of the buffer starting at index <code>start</code>,
+     * without changing the buffer's position or limit.
+     *
+     * @return no of chars decoded into {@link #getChars()}
+     */
+    public int decode(ByteBuffer buffer, int start, int length) {
+        ensureCapacity((int) Math.ceil(length * maxCharsPerByte));
+
+        int i = 0;
+
+        if (singleByte) {
+            for (; i < length; i++) {
+                chars[i] = (char) (buffer.get(start + i) & 0xff);
+            }
+
+            return length;
+        }
+
+        for (; i < length; i++) {
+            byte b = buffer.get(start + i);
+
+            if (b < 0) {
+                break;
+            }
+
+            chars[i] = (char) b;
+        }
+
+        if (i == length) {
+            return length;
+        }
+
+        // non-ASCII from here on, the ASCII prefix is already in place
+        ByteBuffer in = buffer.duplicate();
+        in.limit(start + length);
+        in.position(start + i);
+
+        CharBuffer out = CharBuffer.wrap(chars, i, chars.length - i);
+
+        decoder.reset();
+        decoder.decode(in, out, true);
+        decoder.flush(out);
+
+        return out.position();
+    }
+
+    /**
+     * Starts decoding a line as a stream, see {@link #decodeStream(ByteBuffer, int, CharBuffer, boolean)}
+     */
+    public void startStream() {
+        decoder.reset();
+    }
+
+    /**
+     * Decodes the bytes from the buffer's position up to <code>end</code> into <code>out</code>,
+     * advancing the buffer's position past the bytes consumed. An incomplete multi-byte
+     * sequence at the end is left in the buffer unless <code>endOfInput</code> is set.
+     *
+     * @return true if <code>out</code> is full and bytes are left
+     */
+    public boolean decodeStream(ByteBuffer buffer, int end, CharBuffer out, boolean endOfInput) {
+        ByteBuffer in = buffer.duplicate();
+        in.limit(end);
+
+        CoderResult result = decoder.decode(in, out, endOfInput);
+
+        if (endOfInput && result.isUnderflow()) {
+            result = decoder.flush(out);
+        }
+
+        buffer.position(in.position());
+
+        return result.isOverflow();
+    }
+
+    /**
+     * @return the chars of the last decoded line, valid until the next call to decode
+     */
+    public char[] getChars() {
+        return chars;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (chars.length < capacity) {
+            chars = new char[Math.max(capacity, chars.length * 2)];
+        }
+    }
+
+    /**
+     * Resolves the configured encoding, {@link com.appdynamics.extensions.logmonitor.Constants#DEFAULT_ENCODING}
+     * if blank.
+     *
+     * @throws IllegalArgumentException if the encoding is not supported or not ASCII compatible
+     */
+    public static Charset resolveCharset(String encoding) {
+        String charsetName = StringUtils.isBlank(encoding) ? DEFAULT_ENCODING : encoding.trim();
+
+        Charset charset = null;
+
+        try {
+            charset = Charset.forName(charsetName);
+
+        } catch (Exception ex) {
+            throw new IllegalArgumentException(
+                    String.format("Unsupported encoding [%s]", charsetName), ex);
+        }
+
+        if (!isAsciiCompatible(charset)) {
+            throw new IllegalArgumentException(
+                    String.format("Encoding [%s] is not supported as it is not ASCII compatible",
+                            charsetName));
+        }
+
+        return charset;
+    }
+
+    private static boolean isAsciiCompatible(Charset charset) {
+        byte[] ascii = new byte[128];
+
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+
+        CharBuffer decoded = null;
+
+        try {
+            decoded = charset.newDecoder().decode(ByteBuffer.wrap(ascii));
+
+        } catch (Exception ex) {
+            return false;
+        }
+
+        if (decoded.remaining() != ascii.length) {
+            return false;
+        }
+
+        for (int i = 0; i < ascii.length; i++) {
+            if (decoded.get(i) != i) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+}
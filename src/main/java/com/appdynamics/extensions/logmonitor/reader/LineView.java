@@ -0,0 +1,120 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reusable {@link CharSequence} window over a reader's line buffer. The content is
+ * only valid until the next line is read, use {@link #toString()} to keep it.
+ *
+ * <p>The view also exposes the line's undecoded bytes, so ASCII prefilters can
+ * run on them with {@link ByteScanner}.</p>
+ *
+ * @author Satish Muddam
+ */
+public class LineView implements CharSequence {
+
+    private char[] chars;
+
+    private int offset;
+
+    private int length;
+
+    private ByteBuffer bytes;
+
+    private int bytesOffset;
+
+    private int bytesLength;
+
+    private boolean segment;
+
+    private int overlap;
+
+    private boolean lastSegment;
+
+    void set(char[] chars, int offset, int length,
+             ByteBuffer bytes, int bytesOffset, int bytesLength) {
+        this.chars = chars;
+        this.offset = offset;
+        this.length = length;
+        this.bytes = bytes;
+        this.bytesOffset = bytesOffset;
+        this.bytesLength = bytesLength;
+        this.segment = false;
+        this.overlap = 0;
+        this.lastSegment = true;
+    }
+
+    void setSegment(char[] chars, int length, int overlap, boolean lastSegment) {
+        set(chars, 0, length, null, 0, 0);
+        this.segment = true;
+        this.overlap = overlap;
+        this.lastSegment = lastSegment;
+    }
+
+    /**
+     * @return true if this is a window of a line longer than the reader's max line length
+     */
+    public boolean isSegment() {
+        return segment;
+    }
+
+    /**
+     * @return no of leading chars repeated from the end of the previous segment,
+     * 0 for the first segment of a line
+     */
+    public int getOverlap() {
+        return overlap;
+    }
+
+    public boolean isLastSegment() {
+        return lastSegment;
+    }
+
+    /**
+     * @return true if this is a segment and the rest of the line is still to be read
+     */
+    public boolean hasMoreSegments() {
+        return segment && !lastSegment;
+    }
+
+    /**
+     * Checks the line's raw bytes for either of the given broadcast bytes,
+     * see {@link ByteScanner#broadcast(byte)}. Always true for segments, as
+     * their bytes are no longer available.
+     */
+    public boolean containsEitherByte(long firstBroadcast, long secondBroadcast) {
+        if (bytes == null) {
+            return true;
+        }
+
+        return ByteScanner.indexOfEither(bytes, bytesOffset, bytesOffset + bytesLength,
+                firstBroadcast, secondBroadcast) >= 0;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new StringIndexOutOfBoundsException(index);
+        }
+
+        return chars[offset + index];
+    }
+
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new StringIndexOutOfBoundsException(
+                    String.format("start [%s], end [%s], length [%s]", start, end, length));
+        }
+
+        return new String(chars, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, offset, length);
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Line oriented, random access view of a log file.
+ *
+ * @author Satish Muddam
+ */
+public interface LogReader extends Closeable {
+
+    /**
+     * Reads the next line, without its line terminator.
+     *
+     * @return the next line, or <code>null</code> if the end of the file has been reached
+     * @throws IOException if an I/O error occurs
+     */
+    String readLine() throws IOException;
+
+    /**
+     * Same as {@link #readLine()}, but implementations may return a view that is
+     * reused for every line and is only valid until the next read.
+     *
+     * @return the next line, or <code>null</code> if the end of the file has been reached
+     * @throws IOException if an I/O error occurs
+     */
+    CharSequence readLineView() throws IOException;
+
+    /**
+     * @return the byte offset of the next unread line
+     * @throws IOException if an I/O error occurs
+     */
+    long getFilePointer() throws IOException;
+
+    /**
+     * @return false while the rest of an oversized line is still to be read,
+     * in which case {@link #getFilePointer()} is the start of that line
+     */
+    boolean isAtLineBoundary();
+
+    /**
+     * Positions the reader at the given byte offset.
+     *
+     * @param pos offset from the beginning of the file
+     * @throws IOException if an I/O error occurs
+     */
+    void seek(long pos) throws IOException;
+
+    /**
+     * Stops the reader at the given byte offset, which must be the start of a line.
+     * Lines starting at or after it are not returned.
+     *
+     * @param endOffset offset from the beginning of the file
+     */
+    void setEndOffset(long endOffset);
+
+    /**
+     * @return the current length of the file in bytes
+     * @throws IOException if an I/O error occurs
+     */
+    long length() throws IOException;
+
+}
@@ -0,0 +1,122 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import static com.appdynamics.extensions.logmonitor.Constants.COMPRESSED_READ_BUFFER_SIZE;
+import static com.appdynamics.extensions.logmonitor.Constants.DEFAULT_MAX_LINE_LENGTH_IN_KB;
+import static com.appdynamics.extensions.logmonitor.Constants.DEFAULT_READ_BUFFER_SIZE;
+import static com.appdynamics.extensions.logmonitor.Constants.LINE_START_READ_BUFFER_SIZE;
+import static com.appdynamics.extensions.logmonitor.Constants.MEMORY_MAPPED_REGION_SIZE;
+import static com.appdynamics.extensions.logmonitor.Constants.MEMORY_MAPPED_THRESHOLD;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.closeLogReader;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * @author Satish Muddam
+ */
+public class LogReaderFactory {
+
+    private static final Logger LOGGER = Logger.getLogger(LogReaderFactory.class);
+
+    /**
+     * Creates the reader for the given file
+     *
+     * @param file        the log file
+     * @param log         the log config, providing the reader type and encoding
+     * @param unreadBytes no of bytes left to read from the current file pointer
+     */
+    public static LogReader createLogReader(File file, Log log, long unreadBytes)
+            throws FileNotFoundException {
+
+        ReaderType type = resolveReaderType(ReaderType.fromConfigName(log.getReaderType()), unreadBytes);
+        Charset charset = LineDecoder.resolveCharset(log.getEncoding());
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Using %s reader with %s encoding for [%s], unread bytes [%s]",
+                    type.getConfigName(), charset.name(), file.getPath(), unreadBytes));
+        }
+
+        ByteBufferLogReader logReader = null;
+
+        switch (type) {
+            case RANDOM_ACCESS_FILE:
+                return new RandomAccessFileLogReader(file, charset);
+
+            case MEMORY_MAPPED:
+                logReader = new MappedLogReader(file, MEMORY_MAPPED_REGION_SIZE, charset);
+                break;
+
+            default:
+                logReader = new FileChannelLogReader(file, DEFAULT_READ_BUFFER_SIZE, charset);
+        }
+
+        logReader.setMaxLineLength(getMaxLineLength(log));
+        return logReader;
+    }
+
+    /**
+     * Creates a reader decompressing a rotated log archive, see {@link CompressedLogReader}
+     */
+    public static LogReader createCompressedLogReader(File file, Log log) throws IOException {
+        CompressedLogReader logReader = new CompressedLogReader(file, COMPRESSED_READ_BUFFER_SIZE,
+                LineDecoder.resolveCharset(log.getEncoding()));
+        logReader.setMaxLineLength(getMaxLineLength(log));
+        return logReader;
+    }
+
+    /**
+     * @return the offset of the first line starting at or after the given position
+     */
+    public static long alignToLineStart(File file, Log log, long position) throws IOException {
+        if (position <= 0) {
+            return 0;
+        }
+
+        ByteBufferLogReader logReader = null;
+
+        try {
+            // only the line the position falls in is read, called per chunk split, so
+            // a small heap buffer rather than a direct one of the default size
+            logReader = new FileChannelLogReader(file, LINE_START_READ_BUFFER_SIZE,
+                    LineDecoder.resolveCharset(log.getEncoding()), false);
+            logReader.setMaxLineLength(getMaxLineLength(log));
+            // reading from the previous byte consumes the rest of the line the
+            // position falls in, or nothing but the terminator if it is a line start
+            logReader.seek(position - 1);
+
+            do {
+                logReader.readLineView();
+            } while (!logReader.isAtLineBoundary());
+
+            return logReader.getFilePointer();
+
+        } finally {
+            closeLogReader(logReader);
+        }
+    }
+
+    /**
+     * @return the max line length in bytes, 0 if unlimited
+     */
+    public static int getMaxLineLength(Log log) {
+        Integer maxLineLengthInKB = log.getMaxLineLengthInKB() != null ?
+                log.getMaxLineLengthInKB() : DEFAULT_MAX_LINE_LENGTH_IN_KB;
+
+        return (int) Math.min(Integer.MAX_VALUE / 2, maxLineLengthInKB * 1024L);
+    }
+
+    public static ReaderType resolveReaderType(ReaderType readerType, long unreadBytes) {
+        if (readerType != ReaderType.AUTO) {
+            return readerType;
+        }
+
+        return unreadBytes >= MEMORY_MAPPED_THRESHOLD ?
+                ReaderType.MEMORY_MAPPED : ReaderType.FILE_CHANNEL;
+    }
+
+}
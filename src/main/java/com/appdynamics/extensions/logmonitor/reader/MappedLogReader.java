@@ -0,0 +1,158 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import static com.appdynamics.extensions.logmonitor.Constants.DEFAULT_READ_BUFFER_SIZE;
+
+import org.apache.log4j.Logger;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+
+/**
+ * {@link LogReader} that maps the unread part of the file region by region, so
+ * large deltas are scanned straight from the page cache without copying.
+ *
+ * <p>Mapped regions are released by the garbage collector once they are
+ * no longer referenced.</p>
+ *
+ * <p>If the file is truncated, e.g. by a copytruncate rotation, while a region is mapped,
+ * reading the mapped bytes past the new end of the file raises an {@link InternalError}
+ * rather than an {@link IOException}. The reader then goes on with a
+ * {@link FileChannelLogReader} from the start of the line being read, which finds the
+ * end of the truncated file like any other reader.</p>
+ *
+ * @author Satish Muddam
+ */
+public class MappedLogReader extends ByteBufferLogReader {
+
+    private static final Logger LOGGER = Logger.getLogger(MappedLogReader.class);
+
+    private final File file;
+
+    private final Charset charset;
+
+    private final FileChannel channel;
+
+    private final long regionSize;
+
+    private long endOffset = Long.MAX_VALUE;
+
+    private int maxLineLength;
+
+    private FileChannelLogReader fallback;
+
+    public MappedLogReader(File file, long regionSize, Charset charset)
+            throws FileNotFoundException {
+        super(ByteBuffer.allocate(0), charset);
+        this.file = file;
+        this.charset = charset;
+        this.channel = new RandomAccessFile(file, "r").getChannel();
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    public CharSequence readLineView() throws IOException {
+        if (fallback != null) {
+            return fallback.readLineView();
+        }
+
+        long lineStart = getFilePointer();
+
+        try {
+            return super.readLineView();
+
+        } catch (InternalError ex) {
+            LOGGER.warn(String.format("Unable to read the mapped region of [%s] from [%s], the file may " +
+                    "have been truncated. Reading it from a file channel instead", file.getPath(), lineStart), ex);
+
+            fallback = new FileChannelLogReader(file, DEFAULT_READ_BUFFER_SIZE, charset);
+            fallback.setEndOffset(endOffset);
+            fallback.setMaxLineLength(maxLineLength);
+            fallback.seek(lineStart);
+            buffer = ByteBuffer.allocate(0);
+
+            return fallback.readLineView();
+        }
+    }
+
+    @Override
+    protected boolean fill() throws IOException {
+        long unreadOffset = bufferOffset + buffer.position();
+        int unread = buffer.remaining();
+        long available = channel.size() - unreadOffset;
+
+        if (available <= unread) {
+            return false;
+        }
+
+        long size = Math.min(available, Math.max(regionSize, unread * 2L));
+        size = Math.min(size, Integer.MAX_VALUE);
+
+        buffer = channel.map(MapMode.READ_ONLY, unreadOffset, size);
+        bufferOffset = unreadOffset;
+
+        return true;
+    }
+
+    @Override
+    public long getFilePointer() throws IOException {
+        return fallback != null ? fallback.getFilePointer() : super.getFilePointer();
+    }
+
+    @Override
+    public boolean isAtLineBoundary() {
+        return fallback != null ? fallback.isAtLineBoundary() : super.isAtLineBoundary();
+    }
+
+    @Override
+    public void seek(long pos) throws IOException {
+        if (fallback != null) {
+            fallback.seek(pos);
+            return;
+        }
+
+        super.seek(pos);
+        buffer = ByteBuffer.allocate(0);
+    }
+
+    @Override
+    public void setEndOffset(long endOffset) {
+        this.endOffset = endOffset;
+        super.setEndOffset(endOffset);
+
+        if (fallback != null) {
+            fallback.setEndOffset(endOffset);
+        }
+    }
+
+    @Override
+    public void setMaxLineLength(int maxLineLength) {
+        this.maxLineLength = maxLineLength;
+        super.setMaxLineLength(maxLineLength);
+
+        if (fallback != null) {
+            fallback.setMaxLineLength(maxLineLength);
+        }
+    }
+
+    public long length() throws IOException {
+        return channel.size();
+    }
+
+    public void close() throws IOException {
+        try {
+            channel.close();
+
+        } finally {
+            if (fallback != null) {
+                fallback.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import org.bitbucket.kienerj.OptimizedRandomAccessFile;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * {@link LogReader} backed by {@link OptimizedRandomAccessFile}, kept for
+ * compatibility with the behaviour of previous releases.
+ *
+ * <p>{@link OptimizedRandomAccessFile} maps each byte to a char, so lines are
+ * re-encoded to their original bytes and decoded with the configured charset.</p>
+ *
+ * @author Satish Muddam
+ */
+public class RandomAccessFileLogReader implements LogReader {
+
+    private OptimizedRandomAccessFile randomAccessFile;
+
+    private Charset charset;
+
+    private long endOffset = Long.MAX_VALUE;
+
+    public RandomAccessFileLogReader(File file, Charset charset) throws FileNotFoundException {
+        this.randomAccessFile = new OptimizedRandomAccessFile(file, "r");
+        this.charset = charset;
+    }
+
+    public String readLine() throws IOException {
+        if (randomAccessFile.getFilePointer() >= endOffset) {
+            return null;
+        }
+
+        String line = randomAccessFile.readLine();
+
+        if (line == null) {
+            return null;
+        }
+
+        byte[] bytes = new byte[line.length()];
+
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) line.charAt(i);
+        }
+
+        return new String(bytes, charset.name());
+    }
+
+    public CharSequence readLineView() throws IOException {
+        return readLine();
+    }
+
+    public long getFilePointer() throws IOException {
+        return randomAccessFile.getFilePointer();
+    }
+
+    public boolean isAtLineBoundary() {
+        return true;
+    }
+
+    public void seek(long pos) throws IOException {
+        randomAccessFile.seek(pos);
+    }
+
+    public void setEndOffset(long endOffset) {
+        this.endOffset = endOffset;
+    }
+
+    public long length() throws IOException {
+        return randomAccessFile.length();
+    }
+
+    public void close() throws IOException {
+        randomAccessFile.close();
+    }
+
+}
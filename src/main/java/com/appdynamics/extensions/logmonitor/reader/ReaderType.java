@@ -0,0 +1,48 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Backends available for reading a log file.
+ *
+ * @author Satish Muddam
+ */
+public enum ReaderType {
+
+    /**
+     * Chooses {@link #FILE_CHANNEL} or {@link #MEMORY_MAPPED} based on the unread delta
+     */
+    AUTO("auto"),
+
+    RANDOM_ACCESS_FILE("randomAccessFile"),
+
+    FILE_CHANNEL("fileChannel"),
+
+    MEMORY_MAPPED("memoryMapped");
+
+    private final String configName;
+
+    private ReaderType(String configName) {
+        this.configName = configName;
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public static ReaderType fromConfigName(String configName) {
+        if (StringUtils.isBlank(configName)) {
+            return AUTO;
+        }
+
+        for (ReaderType readerType : values()) {
+            if (readerType.configName.equalsIgnoreCase(configName.trim())) {
+                return readerType;
+            }
+        }
+
+        throw new IllegalArgumentException(
+                String.format("Unknown readerType [%s]", configName));
+    }
+
+}
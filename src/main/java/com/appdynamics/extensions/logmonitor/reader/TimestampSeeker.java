@@ -0,0 +1,210 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import static com.appdynamics.extensions.logmonitor.Constants.TIMESTAMP_SEARCH_LENGTH;
+import static com.appdynamics.extensions.logmonitor.reader.LogReaderFactory.createLogReader;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.closeLogReader;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds where to start reading a log that has not been seen before, by binary
+ * searching the file for the first line with a timestamp at or after a given time.
+ * Only a few lines are read per probe, so the cost is logarithmic in the file size.
+ *
+ * <p>Lines are assumed to be written in time order. Lines without a timestamp,
+ * e.g. stack traces, are skipped when probing.</p>
+ *
+ * @author Satish Muddam
+ */
+public class TimestampSeeker {
+
+    private static final Pattern START_FROM_PATTERN = Pattern.compile("now(?:-(\\d+)([smhd]))?");
+
+    private final File file;
+
+    private final Log log;
+
+    private final SimpleDateFormat timestampFormat;
+
+    private final Pattern timestampPattern;
+
+    public TimestampSeeker(File file, Log log) {
+        this.file = file;
+        this.log = log;
+        this.timestampFormat = createTimestampFormat(log.getTimestampFormat());
+        this.timestampPattern = StringUtils.isBlank(log.getTimestampPattern()) ?
+                null : Pattern.compile(log.getTimestampPattern());
+    }
+
+    /**
+     * @param timestamp time in millis
+     * @param end       the offset to search up to, usually the file size
+     * @return the offset of the first line to read, <code>end</code> if all lines
+     * are older than the timestamp
+     */
+    public long seek(long timestamp, long end) throws IOException {
+        LogReader logReader = null;
+
+        try {
+            logReader = createLogReader(file, log, 0);
+
+            long low = 0;
+            long high = end;
+
+            // invariant: lines before low are older than the timestamp,
+            // the line at high (if any) is not
+            while (low < high) {
+                long middle = low + (high - low) / 2;
+
+                seekToLineStart(logReader, middle);
+                logReader.setEndOffset(high);
+
+                long lineStart = logReader.getFilePointer();
+                Date lineTimestamp = null;
+
+                while (lineTimestamp == null && lineStart < high) {
+                    CharSequence line = logReader.readLineView();
+
+                    if (line == null) {
+                        break;
+                    }
+
+                    lineTimestamp = parseTimestamp(line);
+
+                    if (lineTimestamp == null) {
+                        skipToLineEnd(logReader);
+                        lineStart = logReader.getFilePointer();
+                    }
+                }
+
+                if (lineTimestamp == null) {
+                    high = middle;
+
+                } else if (lineTimestamp.getTime() < timestamp) {
+                    skipToLineEnd(logReader);
+                    low = logReader.getFilePointer();
+
+                } else {
+                    high = lineStart;
+                }
+            }
+
+            return low;
+
+        } finally {
+            closeLogReader(logReader);
+        }
+    }
+
+    /**
+     * @return the timestamp at the start of the line, or null if there is none
+     */
+    public Date parseTimestamp(CharSequence line) {
+        CharSequence head = line.subSequence(0, Math.min(line.length(), TIMESTAMP_SEARCH_LENGTH));
+
+        if (timestampPattern != null) {
+            Matcher matcher = timestampPattern.matcher(head);
+
+            if (!matcher.find()) {
+                return null;
+            }
+
+            String timestamp = matcher.groupCount() > 0 ? matcher.group(1) : matcher.group();
+            return timestamp != null ? parse(timestamp, 0) : null;
+        }
+
+        String timestamp = head.toString();
+
+        for (int i = 0; i < timestamp.length(); i++) {
+            Date date = parse(timestamp, i);
+
+            if (date != null) {
+                return date;
+            }
+        }
+
+        return null;
+    }
+
+    private Date parse(String timestamp, int index) {
+        ParsePosition position = new ParsePosition(index);
+        Date date = timestampFormat.parse(timestamp, position);
+        return position.getErrorIndex() < 0 ? date : null;
+    }
+
+    private void seekToLineStart(LogReader logReader, long position) throws IOException {
+        logReader.setEndOffset(Long.MAX_VALUE);
+
+        if (position <= 0) {
+            logReader.seek(0);
+            return;
+        }
+
+        logReader.seek(position - 1);
+        logReader.readLineView();
+        skipToLineEnd(logReader);
+    }
+
+    private void skipToLineEnd(LogReader logReader) throws IOException {
+        while (!logReader.isAtLineBoundary()) {
+            logReader.readLineView();
+        }
+    }
+
+    /**
+     * Parses a start time such as <code>now-15m</code>, in seconds (s), minutes (m),
+     * hours (h) or days (d) before now.
+     *
+     * @return the start time in millis
+     * @throws IllegalArgumentException if invalid
+     */
+    public static long parseStartFrom(String startFrom, long now) {
+        Matcher matcher = START_FROM_PATTERN.matcher(startFrom == null ? "" : startFrom.trim());
+
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException(String.format(
+                    "Invalid startFrom [%s], expected e.g. now-15m", startFrom));
+        }
+
+        if (matcher.group(1) == null) {
+            return now;
+        }
+
+        long amount = Long.parseLong(matcher.group(1));
+
+        switch (matcher.group(2).charAt(0)) {
+            case 's':
+                return now - TimeUnit.SECONDS.toMillis(amount);
+            case 'm':
+                return now - TimeUnit.MINUTES.toMillis(amount);
+            case 'h':
+                return now - TimeUnit.HOURS.toMillis(amount);
+            default:
+                return now - TimeUnit.DAYS.toMillis(amount);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the format is blank or invalid
+     */
+    public static SimpleDateFormat createTimestampFormat(String timestampFormat) {
+        if (StringUtils.isBlank(timestampFormat)) {
+            throw new IllegalArgumentException("timestampFormat must not be blank when startFrom is set.");
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat(timestampFormat);
+        dateFormat.setLenient(false);
+        return dateFormat;
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of chars as matched by a java.util.regex class, e.g. [a-z_], \d or [^\s], with
+ * its ASCII members looked up in a table.
+ *
+ * @author Satish Muddam
+ */
+class CharClass {
+
+    private static final int ASCII_SIZE = 128;
+
+    private final boolean[] ascii = new boolean[ASCII_SIZE];
+
+    /**
+     * Non ASCII members as inclusive ranges, low and high char alternating
+     */
+    private final int[] ranges;
+
+    private final boolean negated;
+
+    private CharClass(Builder builder) {
+        this.negated = builder.negated;
+
+        for (int c = 0; c < ASCII_SIZE; c++) {
+            // java.util.regex folds only the case of ASCII chars without UNICODE_CASE
+            ascii[c] = builder.contains(c) || builder.caseInsensitive &&
+                    (builder.contains(toUpperAscii(c)) || builder.contains(toLowerAscii(c)));
+        }
+
+        List<Integer> nonAscii = new ArrayList<Integer>();
+
+        for (int i = 0; i < builder.ranges.size(); i += 2) {
+            int low = Math.max(builder.ranges.get(i), ASCII_SIZE);
+            int high = builder.ranges.get(i + 1);
+
+            if (low <= high) {
+                nonAscii.add(low);
+                nonAscii.add(high);
+            }
+        }
+
+        this.ranges = new int[nonAscii.size()];
+
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = nonAscii.get(i);
+        }
+    }
+
+    boolean matches(char c) {
+        if (c < ASCII_SIZE) {
+            return ascii[c] != negated;
+        }
+
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (c >= ranges[i] && c <= ranges[i + 1]) {
+                return !negated;
+            }
+        }
+
+        return negated;
+    }
+
+    /**
+     * @return true if all non ASCII chars are members, false if none are, null if some are
+     */
+    Boolean matchesNonAscii() {
+        // the ranges may overlap and are not sorted, so they are merged until no range extends them
+        int covered = ASCII_SIZE - 1;
+        boolean progress = true;
+
+        while (progress) {
+            progress = false;
+
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] <= covered + 1 && ranges[i + 1] > covered) {
+                    covered = ranges[i + 1];
+                    progress = true;
+                }
+            }
+        }
+
+        if (covered == Character.MAX_VALUE) {
+            return !negated;
+        }
+
+        return ranges.length == 0 ? negated : null;
+    }
+
+    private static int toUpperAscii(int c) {
+        return c >= 'a' && c <= 'z' ? c - ('a' - 'A') : c;
+    }
+
+    private static int toLowerAscii(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    static class Builder {
+
+        private final List<Integer> ranges = new ArrayList<Integer>();
+
+        private boolean negated;
+
+        private boolean caseInsensitive;
+
+        Builder negated(boolean negated) {
+            this.negated = negated;
+            return this;
+        }
+
+        /**
+         * Folds the case of the ASCII chars added as chars or ranges
+         */
+        Builder caseInsensitive(boolean caseInsensitive) {
+            this.caseInsensitive = caseInsensitive;
+            return this;
+        }
+
+        Builder add(int low, int high) {
+            ranges.add(low);
+            ranges.add(high);
+            return this;
+        }
+
+        /**
+         * Adds \d, \w or \s, or their complement for D, W or S. These are closed under
+         * case, so folding them makes no difference.
+         *
+         * @return false if not one of these
+         */
+        boolean addPredefined(char name) {
+            switch (name) {
+                case 'd':
+                    add('0', '9');
+                    return true;
+                case 'w':
+                    add('a', 'z').add('A', 'Z').add('0', '9').add('_', '_');
+                    return true;
+                case 's':
+                    add('\t', '\r').add(' ', ' ');
+                    return true;
+                case 'D':
+                    add(0, '0' - 1).add('9' + 1, Character.MAX_VALUE);
+                    return true;
+                case 'W':
+                    add(0, '0' - 1).add('9' + 1, 'A' - 1).add('Z' + 1, '_' - 1).add('`', '`')
+                            .add('z' + 1, Character.MAX_VALUE);
+                    return true;
+                case 'S':
+                    add(0, '\t' - 1).add('\r' + 1, ' ' - 1).add(' ' + 1, Character.MAX_VALUE);
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        CharClass build() {
+            return new CharClass(this);
+        }
+
+        private boolean contains(int c) {
+            for (int i = 0; i < ranges.size(); i += 2) {
+                if (c >= ranges.get(i) && c <= ranges.get(i + 1)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+/**
+ * A regex compiled by a {@link RegexEngine}, shared by all threads.
+ *
+ * @author Satish Muddam
+ */
+public interface CompiledRegex {
+
+    /**
+     * @return the name of the engine that compiled it
+     */
+    String getEngineName();
+
+    /**
+     * @return a new matcher, which is only used by one thread at a time
+     */
+    RegexMatcher matcher();
+
+}
@@ -0,0 +1,18 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+/**
+ * Implemented by the classes the {@link GeneratedRegexEngine} generates per pattern.
+ * It is public as these classes are defined by a class loader of their own.
+ *
+ * @author Satish Muddam
+ */
+public interface GeneratedMatch {
+
+    /**
+     * @param start  the index the match has to start at
+     * @param length the length of the input
+     * @return the end of the match, or -1 if no match starts at the given index
+     */
+    int matchAt(CharSequence input, int start, int length);
+
+}
@@ -0,0 +1,140 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import java.util.regex.Pattern;
+
+/**
+ * A pattern compiled by the {@link GeneratedRegexEngine} into a class of its own. The
+ * matcher tries the generated match at each index in turn, the first match being the
+ * leftmost one. When the pattern starts with a required char or class, the indexes
+ * whose char it does not match are skipped without calling the generated match.
+ *
+ * <p>As the generated code works on chars, not code points, a line containing surrogates
+ * is searched with java.util.regex instead.</p>
+ *
+ * @author Satish Muddam
+ */
+class GeneratedRegex implements CompiledRegex {
+
+    private final Pattern pattern;
+
+    private final GeneratedMatch match;
+
+    /**
+     * The ASCII chars a match can start with, null if it may start with any char or be empty
+     */
+    private final boolean[] firstAscii;
+
+    private final boolean firstNonAscii;
+
+    GeneratedRegex(Pattern pattern, GeneratedMatch match, boolean[] firstAscii, boolean firstNonAscii) {
+        this.pattern = pattern;
+        this.match = match;
+        this.firstAscii = firstAscii;
+        this.firstNonAscii = firstNonAscii;
+    }
+
+    public String getEngineName() {
+        return GeneratedRegexEngine.NAME;
+    }
+
+    public RegexMatcher matcher() {
+        return new GeneratedRegexMatcher();
+    }
+
+    private class GeneratedRegexMatcher implements RegexMatcher {
+
+        private CharSequence input;
+
+        private int length;
+
+        private int nextFrom;
+
+        private int matchStart = -1;
+
+        private int matchEnd = -1;
+
+        private JdkRegexEngine.JdkRegexMatcher fallback;
+
+        private boolean useFallback;
+
+        public RegexMatcher reset(CharSequence input) {
+            this.input = input;
+            this.length = input.length();
+            this.nextFrom = 0;
+            this.matchStart = -1;
+            this.matchEnd = -1;
+            this.useFallback = containsSurrogate(input);
+
+            if (useFallback) {
+                if (fallback == null) {
+                    fallback = new JdkRegexEngine.JdkRegexMatcher(pattern);
+                }
+
+                fallback.reset(input);
+            }
+
+            return this;
+        }
+
+        public boolean find() {
+            if (useFallback) {
+                return fallback.find();
+            }
+
+            for (int start = nextFrom; start <= length; start++) {
+                if (firstAscii != null && (start == length || !mayStartWith(input.charAt(start)))) {
+                    continue;
+                }
+
+                int end = match.matchAt(input, start, length);
+
+                if (end >= 0) {
+                    matchStart = start;
+                    matchEnd = end;
+                    // as java.util.regex, the next search starts after an empty match
+                    nextFrom = end > start ? end : end + 1;
+                    return true;
+                }
+            }
+
+            nextFrom = length + 1;
+            return false;
+        }
+
+        public boolean find(int from) {
+            if (useFallback) {
+                return fallback.find(from);
+            }
+
+            nextFrom = from;
+            return find();
+        }
+
+        public int start() {
+            return useFallback ? fallback.start() : matchStart;
+        }
+
+        public int end() {
+            return useFallback ? fallback.end() : matchEnd;
+        }
+
+        public String group() {
+            return useFallback ? fallback.group() : input.subSequence(matchStart, matchEnd).toString();
+        }
+
+        private boolean mayStartWith(char c) {
+            return c < firstAscii.length ? firstAscii[c] : firstNonAscii;
+        }
+
+        private boolean containsSurrogate(CharSequence input) {
+            for (int i = 0; i < length; i++) {
+                if (Character.isSurrogate(input.charAt(i))) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+}
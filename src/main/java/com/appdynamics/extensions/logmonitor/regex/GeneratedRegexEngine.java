@@ -0,0 +1,444 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import com.appdynamics.extensions.logmonitor.regex.LinearRegexEngine.Group;
+import com.appdynamics.extensions.logmonitor.regex.LinearRegexEngine.Instruction;
+import com.appdynamics.extensions.logmonitor.regex.LinearRegexEngine.Node;
+import com.appdynamics.extensions.logmonitor.regex.LinearRegexEngine.Repetition;
+import com.appdynamics.extensions.logmonitor.regex.LinearRegexEngine.Sequence;
+import com.appdynamics.extensions.logmonitor.regex.LinearRegexEngine.UnsupportedPatternException;
+import com.appdynamics.extensions.logmonitor.regex.MatchClassWriter.Step;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * An engine generating a class per pattern when compiled, with straight-line code for
+ * the pattern the JIT can compile and inline like any other method, rather than
+ * interpreting the pattern on every line. Meant for the few search strings run on every
+ * line of the busiest logs. Each compile generates and self tests a new class, so the
+ * compiled patterns are kept across runs by the {@link com.appdynamics.extensions.logmonitor.LineSearcherCache}.
+ *
+ * <p>Supported are sequences of chars, classes and ., each optionally repeated by a
+ * greedy quantifier, with (?i) case insensitivity, as parsed by the {@link LinearRegexEngine}.
+ * As the generated code never backtracks, a repetition must not overlap with what may
+ * follow it, e.g. [a-z]+\d can be generated but \w+\d cannot. Classes can only contain
+ * either all non ASCII chars or none, and chars must be ASCII.</p>
+ *
+ * <p>Only the shapes the generated class searches faster than java.util.regex are
+ * compiled, as measured by the RegexEngineBenchmark in the tests: patterns starting with
+ * a class or a counted repeat, e.g. [A-Z][a-z]+Exception or \d{3}-\d{4}. A pattern
+ * starting with a char, which java.util.regex finds with Boyer-Moore, and a pattern with
+ * a repetition of chars it may start with, e.g. [a-z]+\d or \w+@\w+, whose search
+ * would scan the repetition again from each of its chars, fall back to another engine.</p>
+ *
+ * <p>The generated class is only used once it found the same matches as java.util.regex
+ * in a self test on inputs sampled from the pattern, so a pattern that fails it, as well
+ * as an unsupported one, falls back to another engine.</p>
+ *
+ * @author Satish Muddam
+ */
+public class GeneratedRegexEngine implements RegexEngine {
+
+    public static final String NAME = "generated";
+
+    private static final Logger LOGGER = Logger.getLogger(GeneratedRegexEngine.class);
+
+    private static final int ASCII_SIZE = 128;
+
+    /**
+     * Keeps the generated code within what a branch can span
+     */
+    private static final int MAX_STEPS = 256;
+
+    private static final int SELF_TEST_INPUTS = 500;
+
+    private static final int MAX_SELF_TEST_LENGTH = 1000;
+
+    /**
+     * Chars each self test input may contain, besides the ones sampled from the steps
+     */
+    private static final String SELF_TEST_CHARS = " aZ0_-.\t\n\r\u0085\u00e9\u2028";
+
+    private static final String CLASS_NAME_PREFIX = GeneratedRegexEngine.class.getPackage().getName() +
+            ".generated.Match";
+
+    private static final AtomicInteger CLASS_COUNT = new AtomicInteger();
+
+    public String getName() {
+        return NAME;
+    }
+
+    public CompiledRegex compile(Pattern pattern) {
+        return compile(pattern, false);
+    }
+
+    /**
+     * @param anyShape true to also generate a class for the shapes java.util.regex searches
+     *                 faster, see {@link #checkShape(List)}
+     */
+    CompiledRegex compile(Pattern pattern, boolean anyShape) {
+        String regex = pattern.pattern();
+
+        // flags given to Pattern.compile rather than inline are not supported
+        if (pattern.flags() != Pattern.compile(regex).flags()) {
+            return null;
+        }
+
+        List<Step> steps;
+
+        try {
+            steps = toSteps(new LinearRegexEngine.Parser(regex).parse());
+
+            if (!anyShape) {
+                checkShape(steps);
+            }
+
+        } catch (UnsupportedPatternException ex) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Pattern [%s] not supported by the generated engine, %s",
+                        regex, ex.getMessage()));
+            }
+
+            return null;
+        }
+
+        GeneratedRegex generatedRegex;
+
+        try {
+            Step first = steps.isEmpty() || steps.get(0).min == 0 ? null : steps.get(0);
+            generatedRegex = new GeneratedRegex(pattern, define(steps), first != null ? first.ascii : null,
+                    first != null && first.nonAscii != MatchClassWriter.NON_ASCII_NONE);
+
+        } catch (Exception ex) {
+            LOGGER.error(String.format("Unable to generate a class for pattern [%s]", regex), ex);
+            return null;
+
+        } catch (LinkageError ex) {
+            LOGGER.error(String.format("Unable to generate a class for pattern [%s]", regex), ex);
+            return null;
+        }
+
+        String failedInput = selfTest(pattern, steps, generatedRegex);
+
+        if (failedInput != null) {
+            LOGGER.warn(String.format("The class generated for pattern [%s] matches [%s] differently than " +
+                    "java.util.regex, not using it", regex, failedInput));
+            return null;
+        }
+
+        return generatedRegex;
+    }
+
+    private List<Step> toSteps(Node node) throws UnsupportedPatternException {
+        List<Step> steps = new ArrayList<Step>();
+        addSteps(node, steps);
+
+        if (steps.size() > MAX_STEPS) {
+            throw new UnsupportedPatternException("too many chars and classes");
+        }
+
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+
+            if (step.min == step.max) {
+                continue;
+            }
+
+            // giving back a char can only help if a later step up to the first required one takes it
+            for (int j = i + 1; j < steps.size(); j++) {
+                if (step.overlaps(steps.get(j))) {
+                    throw new UnsupportedPatternException("a repetition overlaps with what follows it");
+                }
+
+                if (steps.get(j).min > 0) {
+                    break;
+                }
+            }
+        }
+
+        return steps;
+    }
+
+    /**
+     * Rejects the shapes java.util.regex searches faster: a leading char, which it finds
+     * with Boyer-Moore or a plain scan for the char, and a repetition that may take the
+     * chars a match starts with, as the search would then scan it again from each of them
+     */
+    private void checkShape(List<Step> steps) throws UnsupportedPatternException {
+        if (steps.isEmpty() || steps.get(0).min == 0) {
+            throw new UnsupportedPatternException("may match without a first char");
+        }
+
+        Step first = steps.get(0);
+
+        if (isChar(first)) {
+            throw new UnsupportedPatternException("starts with a char");
+        }
+
+        for (Step step : steps) {
+            if (step.min != step.max && step.overlaps(first)) {
+                throw new UnsupportedPatternException("a repetition overlaps with the first char");
+            }
+        }
+    }
+
+    /**
+     * @return whether the step matches a single char, in either case
+     */
+    private boolean isChar(Step step) {
+        if (step.nonAscii != MatchClassWriter.NON_ASCII_NONE) {
+            return false;
+        }
+
+        int first = -1;
+
+        for (int c = 0; c < ASCII_SIZE; c++) {
+            if (!step.ascii[c]) {
+                continue;
+            }
+
+            if (first < 0) {
+                first = c;
+
+            } else if (Character.toLowerCase((char) first) != c) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void addSteps(Node node, List<Step> steps) throws UnsupportedPatternException {
+        if (node instanceof Sequence) {
+            for (Node child : ((Sequence) node).nodes) {
+                addSteps(child, steps);
+            }
+
+        } else if (node instanceof Group) {
+            addSteps(((Group) node).node, steps);
+
+        } else if (node instanceof Repetition) {
+            Repetition repetition = (Repetition) node;
+
+            if (!repetition.greedy) {
+                throw new UnsupportedPatternException("lazy quantifier");
+            }
+
+            if (repetition.min > MatchClassWriter.MAX_COUNT || repetition.max > MatchClassWriter.MAX_COUNT) {
+                throw new UnsupportedPatternException("count too large");
+            }
+
+            if (repetition.max != 0) {
+                steps.add(toStep(toInstruction(repetition.node), repetition.min, repetition.max));
+            }
+
+        } else {
+            steps.add(toStep(toInstruction(node), 1, 1));
+        }
+    }
+
+    private Instruction toInstruction(Node node) throws UnsupportedPatternException {
+        while (node instanceof Group || node instanceof Sequence && ((Sequence) node).nodes.size() == 1) {
+            node = node instanceof Group ? ((Group) node).node : ((Sequence) node).nodes.get(0);
+        }
+
+        if (!(node instanceof Instruction)) {
+            throw new UnsupportedPatternException("alternation or quantified sub-pattern");
+        }
+
+        return (Instruction) node;
+    }
+
+    private Step toStep(Instruction instruction, int min, int max) throws UnsupportedPatternException {
+        boolean[] ascii = new boolean[ASCII_SIZE];
+        int nonAscii = MatchClassWriter.NON_ASCII_NONE;
+
+        switch (instruction.op) {
+            case LinearRegex.CHAR:
+                if (instruction.arg >= ASCII_SIZE) {
+                    throw new UnsupportedPatternException("non ASCII char");
+                }
+
+                ascii[instruction.arg] = true;
+                break;
+            case LinearRegex.CHAR_IGNORE_CASE:
+                ascii[instruction.arg] = true;
+                ascii[Character.toUpperCase(instruction.arg)] = true;
+                break;
+            case LinearRegex.CLASS:
+                Boolean matchesNonAscii = instruction.charClass.matchesNonAscii();
+
+                if (matchesNonAscii == null) {
+                    throw new UnsupportedPatternException("class with some non ASCII chars");
+                }
+
+                for (int c = 0; c < ASCII_SIZE; c++) {
+                    ascii[c] = instruction.charClass.matches((char) c);
+                }
+
+                nonAscii = matchesNonAscii ? MatchClassWriter.NON_ASCII_ALL : MatchClassWriter.NON_ASCII_NONE;
+                break;
+            case LinearRegex.ANY:
+                Arrays.fill(ascii, true);
+                ascii['\n'] = false;
+                ascii['\r'] = false;
+                nonAscii = MatchClassWriter.NON_ASCII_BUT_LINE_TERMINATORS;
+                break;
+            default:
+                throw new UnsupportedPatternException("anchor");
+        }
+
+        return new Step(ascii, nonAscii, min, max);
+    }
+
+    private GeneratedMatch define(List<Step> steps) throws ReflectiveOperationException {
+        String className = CLASS_NAME_PREFIX + CLASS_COUNT.incrementAndGet();
+        byte[] classFile = new MatchClassWriter(className, steps).write();
+        boolean[][] tables = new boolean[steps.size()][];
+
+        for (int i = 0; i < tables.length; i++) {
+            tables[i] = steps.get(i).ascii;
+        }
+
+        Class<?> matchClass = new MatchClassLoader().define(className, classFile);
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug(String.format("Generated class [%s] of [%s] bytes", className, classFile.length));
+        }
+
+        return (GeneratedMatch) matchClass.getConstructor(boolean[][].class).newInstance((Object) tables);
+    }
+
+    /**
+     * Compares the matches with the ones of java.util.regex, on inputs matching the
+     * steps with a few more or less repetitions or a char replaced, and on random
+     * inputs of chars around the boundaries of the steps
+     *
+     * @return the first input matched differently, null if none
+     */
+    private String selfTest(Pattern pattern, List<Step> steps, CompiledRegex compiledRegex) {
+        Random random = new Random(pattern.pattern().hashCode());
+        String chars = sampleChars(steps);
+        RegexMatcher matcher = compiledRegex.matcher();
+        RegexMatcher jdkMatcher = new JdkRegexEngine.JdkRegexMatcher(pattern);
+
+        for (int i = 0; i < SELF_TEST_INPUTS; i++) {
+            String input = i % 2 == 0 ? matchingInput(random, steps, chars) :
+                    randomInput(random, chars, random.nextInt(20));
+            int from = random.nextInt(input.length() + 1);
+
+            if (!findAll(matcher.reset(input), 0).equals(findAll(jdkMatcher.reset(input), 0)) ||
+                    !findAll(matcher.reset(input), from).equals(findAll(jdkMatcher.reset(input), from))) {
+                return input;
+            }
+        }
+
+        return null;
+    }
+
+    private String sampleChars(List<Step> steps) {
+        StringBuilder chars = new StringBuilder(SELF_TEST_CHARS);
+
+        for (Step step : steps) {
+            int first = -1;
+            int last = -1;
+            int firstNonMember = -1;
+
+            for (int c = 0; c < ASCII_SIZE; c++) {
+                if (step.ascii[c]) {
+                    first = first < 0 ? c : first;
+                    last = c;
+
+                } else if (firstNonMember < 0) {
+                    firstNonMember = c;
+                }
+            }
+
+            for (int c : new int[]{first, last, firstNonMember}) {
+                if (c >= 0) {
+                    chars.append((char) c);
+                }
+            }
+        }
+
+        return chars.toString();
+    }
+
+    private String matchingInput(Random random, List<Step> steps, String chars) {
+        StringBuilder input = new StringBuilder(randomInput(random, chars, random.nextInt(3)));
+
+        for (Step step : steps) {
+            List<Character> members = new ArrayList<Character>();
+
+            for (int c = 0; c < ASCII_SIZE; c++) {
+                if (step.ascii[c]) {
+                    members.add((char) c);
+                }
+            }
+
+            if (step.nonAscii != MatchClassWriter.NON_ASCII_NONE) {
+                members.add('\u00e9');
+            }
+
+            int count = step.min + random.nextInt(3) - (random.nextInt(8) == 0 ? 1 : 0);
+
+            if (step.max != LinearRegexEngine.UNBOUNDED) {
+                count = Math.min(count, step.max + (random.nextInt(8) == 0 ? 1 : 0));
+            }
+
+            for (int i = 0; i < count && !members.isEmpty() && input.length() < MAX_SELF_TEST_LENGTH; i++) {
+                input.append(members.get(random.nextInt(members.size())));
+            }
+        }
+
+        if (input.length() > 0 && random.nextInt(4) == 0) {
+            input.setCharAt(random.nextInt(input.length()), chars.charAt(random.nextInt(chars.length())));
+        }
+
+        return input.append(randomInput(random, chars, random.nextInt(3))).toString();
+    }
+
+    private String randomInput(Random random, String chars, int length) {
+        StringBuilder input = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            input.append(chars.charAt(random.nextInt(chars.length())));
+        }
+
+        return input.toString();
+    }
+
+    private List<Integer> findAll(RegexMatcher matcher, int from) {
+        List<Integer> matches = new ArrayList<Integer>();
+        boolean found = matcher.find(from);
+
+        while (found) {
+            matches.add(matcher.start());
+            matches.add(matcher.end());
+            found = matcher.find();
+        }
+
+        return matches;
+    }
+
+    /**
+     * Defines each generated class in a loader of its own, so that the class can be
+     * unloaded with its pattern
+     */
+    private static class MatchClassLoader extends ClassLoader {
+
+        private MatchClassLoader() {
+            super(GeneratedMatch.class.getClassLoader());
+        }
+
+        private Class<?> define(String className, byte[] classFile) {
+            return defineClass(className, classFile, 0, classFile.length);
+        }
+    }
+
+}
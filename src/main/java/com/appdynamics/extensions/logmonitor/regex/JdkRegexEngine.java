@@ -0,0 +1,72 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The java.util.regex engine, which supports every pattern, but backtracks and may
+ * take exponential time on some patterns.
+ *
+ * @author Satish Muddam
+ */
+public class JdkRegexEngine implements RegexEngine {
+
+    public static final String NAME = "jdk";
+
+    public String getName() {
+        return NAME;
+    }
+
+    public CompiledRegex compile(final Pattern pattern) {
+        return new CompiledRegex() {
+            public String getEngineName() {
+                return NAME;
+            }
+
+            public RegexMatcher matcher() {
+                return new JdkRegexMatcher(pattern);
+            }
+        };
+    }
+
+    static class JdkRegexMatcher implements RegexMatcher {
+
+        private final Matcher matcher;
+
+        private int length;
+
+        JdkRegexMatcher(Pattern pattern) {
+            // only matters when searching from an index, i.e. for segments of oversized lines,
+            // where look-arounds may see the overlap and ^ must not match at the region start
+            this.matcher = pattern.matcher("").useTransparentBounds(true).useAnchoringBounds(false);
+        }
+
+        public RegexMatcher reset(CharSequence input) {
+            matcher.reset(input);
+            length = input.length();
+            return this;
+        }
+
+        public boolean find() {
+            return matcher.find();
+        }
+
+        public boolean find(int from) {
+            matcher.region(from, length);
+            return matcher.find();
+        }
+
+        public int start() {
+            return matcher.start();
+        }
+
+        public int end() {
+            return matcher.end();
+        }
+
+        public String group() {
+            return matcher.group();
+        }
+    }
+
+}
@@ -0,0 +1,356 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * A pattern compiled by the {@link LinearRegexEngine} into instructions, each an
+ * opcode with up to two arguments.
+ *
+ * <p>The matcher simulates the NFA on a list of threads, one per instruction reached,
+ * each with the start of its match. All threads take the next char at once, so the
+ * time per char is bounded by the no of instructions. Threads are listed in the order
+ * a backtracking engine would try them: a split adds its preferred branch first, and a
+ * thread starting a match at the current char comes after those started earlier.
+ * When a thread matches, the threads after it are dropped, while the ones before it
+ * may still find a longer, preferred match. So the match is the one
+ * {@link java.util.regex.Matcher#find()} would find.</p>
+ *
+ * <p>As the instructions work on chars, not code points, a line containing surrogates is
+ * searched with java.util.regex instead.</p>
+ *
+ * @author Satish Muddam
+ */
+class LinearRegex implements CompiledRegex {
+
+    static final int CHAR = 0;
+
+    /**
+     * An ASCII letter in lower case, matching either case
+     */
+    static final int CHAR_IGNORE_CASE = 1;
+
+    static final int CLASS = 2;
+
+    /**
+     * Any char but a line terminator, as . without DOTALL
+     */
+    static final int ANY = 3;
+
+    static final int SPLIT = 4;
+
+    static final int JUMP = 5;
+
+    /**
+     * The start of the input, as ^ without MULTILINE
+     */
+    static final int BEGIN = 6;
+
+    /**
+     * The end of the input or before a final line terminator, as $ without MULTILINE
+     */
+    static final int DOLLAR = 7;
+
+    /**
+     * The end of the input, as \z
+     */
+    static final int END = 8;
+
+    static final int MATCH = 9;
+
+    private final Pattern pattern;
+
+    private final int[] ops;
+
+    private final int[] args;
+
+    private final int[] args2;
+
+    private final CharClass[] classes;
+
+    LinearRegex(Pattern pattern, int[] ops, int[] args, int[] args2, CharClass[] classes) {
+        this.pattern = pattern;
+        this.ops = ops;
+        this.args = args;
+        this.args2 = args2;
+        this.classes = classes;
+    }
+
+    public String getEngineName() {
+        return LinearRegexEngine.NAME;
+    }
+
+    public RegexMatcher matcher() {
+        return new LinearRegexMatcher();
+    }
+
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private class LinearRegexMatcher implements RegexMatcher {
+
+        private ThreadList threads = new ThreadList(ops.length);
+
+        private ThreadList nextThreads = new ThreadList(ops.length);
+
+        /**
+         * Per instruction, the generation of the thread list it was last added to
+         */
+        private final int[] generations = new int[ops.length];
+
+        private int generation;
+
+        private final int[] stack = new int[2 * ops.length + 1];
+
+        private CharSequence input;
+
+        private int length;
+
+        private int nextFrom;
+
+        private int matchStart = -1;
+
+        private int matchEnd = -1;
+
+        private JdkRegexEngine.JdkRegexMatcher fallback;
+
+        private boolean useFallback;
+
+        public RegexMatcher reset(CharSequence input) {
+            this.input = input;
+            this.length = input.length();
+            this.nextFrom = 0;
+            this.matchStart = -1;
+            this.matchEnd = -1;
+            this.useFallback = containsSurrogate(input);
+
+            if (useFallback) {
+                if (fallback == null) {
+                    fallback = new JdkRegexEngine.JdkRegexMatcher(pattern);
+                }
+
+                fallback.reset(input);
+            }
+
+            return this;
+        }
+
+        public boolean find() {
+            if (useFallback) {
+                return fallback.find();
+            }
+
+            if (nextFrom > length) {
+                return false;
+            }
+
+            if (!search(nextFrom)) {
+                nextFrom = length + 1;
+                return false;
+            }
+
+            // as java.util.regex, the next search starts after an empty match
+            nextFrom = matchEnd > matchStart ? matchEnd : matchEnd + 1;
+            return true;
+        }
+
+        public boolean find(int from) {
+            if (useFallback) {
+                return fallback.find(from);
+            }
+
+            nextFrom = from;
+            return find();
+        }
+
+        public int start() {
+            return useFallback ? fallback.start() : matchStart;
+        }
+
+        public int end() {
+            return useFallback ? fallback.end() : matchEnd;
+        }
+
+        public String group() {
+            return useFallback ? fallback.group() : input.subSequence(matchStart, matchEnd).toString();
+        }
+
+        private boolean search(int from) {
+            boolean matched = false;
+            threads.clear();
+            int threadsGeneration = nextGeneration();
+
+            for (int position = from; ; position++) {
+                if (!matched) {
+                    // the lowest priority, after the threads started earlier
+                    addThread(threads, threadsGeneration, 0, position, position);
+
+                } else if (threads.size == 0) {
+                    break;
+                }
+
+                nextThreads.clear();
+                int nextGeneration = nextGeneration();
+                boolean atEnd = position >= length;
+                char c = atEnd ? 0 : input.charAt(position);
+
+                for (int i = 0; i < threads.size; i++) {
+                    int pc = threads.pcs[i];
+                    int start = threads.starts[i];
+
+                    if (ops[pc] == MATCH) {
+                        matched = true;
+                        matchStart = start;
+                        matchEnd = position;
+                        // the threads after it have a lower priority
+                        break;
+                    }
+
+                    if (!atEnd && matches(pc, c)) {
+                        addThread(nextThreads, nextGeneration, pc + 1, position + 1, start);
+                    }
+                }
+
+                ThreadList swap = threads;
+                threads = nextThreads;
+                nextThreads = swap;
+                threadsGeneration = nextGeneration;
+
+                if (atEnd) {
+                    break;
+                }
+            }
+
+            return matched;
+        }
+
+        private int nextGeneration() {
+            if (generation == Integer.MAX_VALUE) {
+                Arrays.fill(generations, 0);
+                generation = 0;
+            }
+
+            return ++generation;
+        }
+
+        private boolean matches(int pc, char c) {
+            switch (ops[pc]) {
+                case CHAR:
+                    return c == args[pc];
+                case CHAR_IGNORE_CASE:
+                    return (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c) == args[pc];
+                case CLASS:
+                    return classes[args[pc]].matches(c);
+                case ANY:
+                    return !isLineTerminator(c);
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Adds the thread and follows its jumps, splits and assertions, depth first so
+         * that the preferred branch of a split is added first
+         */
+        private void addThread(ThreadList list, int listGeneration, int pc, int position, int start) {
+            int top = 0;
+            stack[top++] = pc;
+
+            while (top > 0) {
+                pc = stack[--top];
+
+                if (generations[pc] == listGeneration) {
+                    continue;
+                }
+
+                generations[pc] = listGeneration;
+
+                switch (ops[pc]) {
+                    case JUMP:
+                        stack[top++] = args[pc];
+                        break;
+                    case SPLIT:
+                        stack[top++] = args2[pc];
+                        stack[top++] = args[pc];
+                        break;
+                    case BEGIN:
+                        if (position == 0) {
+                            stack[top++] = pc + 1;
+                        }
+
+                        break;
+                    case DOLLAR:
+                        if (isDollar(position)) {
+                            stack[top++] = pc + 1;
+                        }
+
+                        break;
+                    case END:
+                        if (position == length) {
+                            stack[top++] = pc + 1;
+                        }
+
+                        break;
+                    default:
+                        list.add(pc, start);
+                }
+            }
+        }
+
+        /**
+         * Same as java.util.regex, which does not match between \r and \n
+         */
+        private boolean isDollar(int position) {
+            if (position == length) {
+                return true;
+            }
+
+            if (position == length - 2) {
+                return input.charAt(position) == '\r' && input.charAt(position + 1) == '\n';
+            }
+
+            if (position == length - 1) {
+                char c = input.charAt(position);
+                return isLineTerminator(c) && !(c == '\n' && position > 0 && input.charAt(position - 1) == '\r');
+            }
+
+            return false;
+        }
+
+        private boolean containsSurrogate(CharSequence input) {
+            for (int i = 0; i < length; i++) {
+                if (Character.isSurrogate(input.charAt(i))) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    private static class ThreadList {
+
+        private final int[] pcs;
+
+        private final int[] starts;
+
+        private int size;
+
+        private ThreadList(int capacity) {
+            this.pcs = new int[capacity];
+            this.starts = new int[capacity];
+        }
+
+        private void add(int pc, int start) {
+            pcs[size] = pc;
+            starts[size] = start;
+            size++;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+    }
+
+}
@@ -0,0 +1,841 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * An engine taking linear time in the length of the line, whatever the pattern, so a
+ * pattern like (a|aa)*b cannot stall the scan of a log the way backtracking can.
+ *
+ * <p>The pattern is compiled into an NFA that is simulated on all its states at once,
+ * one char after the other, see {@link LinearRegex}. Threads of the simulation are kept
+ * in the order a backtracking engine would try them, so the matches found are the
+ * same as java.util.regex finds.</p>
+ *
+ * <p>Supported are chars and escaped chars, \Q..\E quotes, ., classes without nesting or
+ * intersection, \d \w \s and their complements, ^ $ \A \Z \z, groups, alternation, greedy
+ * and lazy quantifiers, and (?i) case insensitivity. Other constructs, e.g. back
+ * references, look-arounds, \b, possessive quantifiers or other flags, make the pattern
+ * unsupported, as do quantified sub-patterns that can match the empty string.</p>
+ *
+ * @author Satish Muddam
+ */
+public class LinearRegexEngine implements RegexEngine {
+
+    public static final String NAME = "linear";
+
+    private static final Logger LOGGER = Logger.getLogger(LinearRegexEngine.class);
+
+    /**
+     * Counted repetitions are compiled by copying the sub-pattern, up to this many
+     * instructions overall
+     */
+    private static final int MAX_PROGRAM_SIZE = 10000;
+
+    static final int UNBOUNDED = -1;
+
+    public String getName() {
+        return NAME;
+    }
+
+    public CompiledRegex compile(Pattern pattern) {
+        String regex = pattern.pattern();
+
+        // flags given to Pattern.compile rather than inline are not supported
+        if (pattern.flags() != Pattern.compile(regex).flags()) {
+            return null;
+        }
+
+        try {
+            Node node = new Parser(regex).parse();
+
+            if (node.size() > MAX_PROGRAM_SIZE) {
+                throw new UnsupportedPatternException("too large once compiled");
+            }
+
+            Compiler compiler = new Compiler();
+            node.emit(compiler);
+            compiler.emit(LinearRegex.MATCH, 0, 0);
+
+            return new LinearRegex(pattern, compiler.toArray(compiler.ops), compiler.toArray(compiler.args),
+                    compiler.toArray(compiler.args2), compiler.classes.toArray(new CharClass[0]));
+
+        } catch (UnsupportedPatternException ex) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug(String.format("Pattern [%s] not supported by the linear engine, %s",
+                        regex, ex.getMessage()));
+            }
+
+            return null;
+        }
+    }
+
+    static class UnsupportedPatternException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedPatternException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Recursive descent over the pattern, tracking the case insensitive flag, which
+     * applies until the end of the group it is set in
+     */
+    static class Parser {
+
+        private final String regex;
+
+        private int index;
+
+        private boolean caseInsensitive;
+
+        Parser(String regex) {
+            this.regex = regex;
+        }
+
+        Node parse() throws UnsupportedPatternException {
+            Node node = parseAlternation();
+
+            if (index < regex.length()) {
+                throw unsupported("unbalanced parenthesis");
+            }
+
+            return node;
+        }
+
+        private Node parseAlternation() throws UnsupportedPatternException {
+            List<Node> alternatives = new ArrayList<Node>();
+            alternatives.add(parseSequence());
+
+            while (index < regex.length() && regex.charAt(index) == '|') {
+                index++;
+                alternatives.add(parseSequence());
+            }
+
+            return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+        }
+
+        private Node parseSequence() throws UnsupportedPatternException {
+            List<Node> nodes = new ArrayList<Node>();
+
+            while (index < regex.length() && regex.charAt(index) != '|' && regex.charAt(index) != ')') {
+                if (regex.startsWith("\\Q", index)) {
+                    // a quantifier after the quote only applies to its last char
+                    int end = regex.indexOf("\\E", index + 2);
+                    String quoted = regex.substring(index + 2, end >= 0 ? end : regex.length());
+                    index = end >= 0 ? end + 2 : regex.length();
+
+                    for (int i = 0; i < quoted.length(); i++) {
+                        Node node = newChar(quoted.charAt(i));
+                        nodes.add(i == quoted.length() - 1 ? parseQuantifier(node) : node);
+                    }
+
+                    continue;
+                }
+
+                Node atom = parseAtom();
+
+                if (atom != null) {
+                    nodes.add(parseQuantifier(atom));
+                }
+            }
+
+            return new Sequence(nodes);
+        }
+
+        /**
+         * @return the atom, or null for an inline flag
+         */
+        private Node parseAtom() throws UnsupportedPatternException {
+            char c = regex.charAt(index++);
+
+            switch (c) {
+                case '(':
+                    return parseGroup();
+                case '[':
+                    return parseClass();
+                case '.':
+                    return new Instruction(LinearRegex.ANY, 0);
+                case '^':
+                    return new Instruction(LinearRegex.BEGIN, 0);
+                case '$':
+                    return new Instruction(LinearRegex.DOLLAR, 0);
+                case '\\':
+                    return parseEscape();
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw unsupported("dangling quantifier");
+                default:
+                    return newChar(c);
+            }
+        }
+
+        private Node parseGroup() throws UnsupportedPatternException {
+            boolean savedCaseInsensitive = caseInsensitive;
+
+            if (regex.startsWith("?", index)) {
+                index++;
+
+                if (regex.startsWith("<", index) && index + 1 < regex.length() &&
+                        Character.isLetter(regex.charAt(index + 1))) {
+                    // named group
+                    int end = regex.indexOf('>', index);
+
+                    if (end < 0) {
+                        throw unsupported("unclosed group name");
+                    }
+
+                    index = end + 1;
+
+                } else {
+                    boolean flagOnly = parseFlags();
+
+                    if (flagOnly) {
+                        return null;
+                    }
+
+                    // the : of a non capturing group, with or without flags
+                    index++;
+                }
+            }
+
+            Node node = parseAlternation();
+
+            if (!regex.startsWith(")", index)) {
+                throw unsupported("unclosed group");
+            }
+
+            index++;
+            caseInsensitive = savedCaseInsensitive;
+
+            return new Group(node);
+        }
+
+        /**
+         * Parses flags like i) or -i: and sets them
+         *
+         * @return true if these are flags for the rest of the enclosing group
+         */
+        private boolean parseFlags() throws UnsupportedPatternException {
+            boolean on = true;
+
+            while (index < regex.length()) {
+                char c = regex.charAt(index++);
+
+                if (c == 'i') {
+                    caseInsensitive = on;
+
+                } else if (c == '-') {
+                    on = false;
+
+                } else if (c == ')') {
+                    return true;
+
+                } else if (c == ':') {
+                    index--;
+                    return false;
+
+                } else {
+                    throw unsupported("unsupported group or flag (?" + c);
+                }
+            }
+
+            throw unsupported("unclosed flags");
+        }
+
+        private Node parseClass() throws UnsupportedPatternException {
+            CharClass.Builder builder = new CharClass.Builder().caseInsensitive(caseInsensitive);
+
+            if (regex.startsWith("^", index)) {
+                builder.negated(true);
+                index++;
+            }
+
+            int classStart = index;
+
+            while (true) {
+                if (index >= regex.length()) {
+                    throw unsupported("unclosed class");
+                }
+
+                char c = regex.charAt(index);
+
+                if (c == ']') {
+                    if (index == classStart) {
+                        throw unsupported("] first in class");
+                    }
+
+                    index++;
+                    return new Instruction(LinearRegex.CLASS, builder.build());
+                }
+
+                if (c == '[' || regex.startsWith("&&", index)) {
+                    throw unsupported("nested class or intersection");
+                }
+
+                if (c == '\\' && index + 1 < regex.length() && builder.addPredefined(regex.charAt(index + 1))) {
+                    index += 2;
+                    continue;
+                }
+
+                int low = parseClassChar();
+
+                if (low == '-' && index - 1 != classStart && !regex.startsWith("]", index)) {
+                    throw unsupported("- in class");
+                }
+
+                if (regex.startsWith("-", index) && index + 1 < regex.length() && regex.charAt(index + 1) != ']') {
+                    index++;
+
+                    if (regex.charAt(index) == '[') {
+                        throw unsupported("nested class");
+                    }
+
+                    int high = parseClassChar();
+
+                    if (high < low) {
+                        throw unsupported("invalid range");
+                    }
+
+                    builder.add(low, high);
+
+                } else {
+                    builder.add(low, low);
+                }
+            }
+        }
+
+        private int parseClassChar() throws UnsupportedPatternException {
+            char c = regex.charAt(index++);
+
+            if (c != '\\') {
+                checkNotSurrogate(c);
+                return c;
+            }
+
+            if (index >= regex.length()) {
+                throw unsupported("trailing backslash");
+            }
+
+            char escaped = regex.charAt(index++);
+
+            if (!Character.isLetterOrDigit(escaped)) {
+                return escaped;
+            }
+
+            int value = parseCharEscape(escaped);
+
+            if (value < 0) {
+                throw unsupported("escape \\" + escaped + " in class");
+            }
+
+            return value;
+        }
+
+        private Node parseEscape() throws UnsupportedPatternException {
+            if (index >= regex.length()) {
+                throw unsupported("trailing backslash");
+            }
+
+            char escaped = regex.charAt(index++);
+
+            if (!Character.isLetterOrDigit(escaped)) {
+                return newChar(escaped);
+            }
+
+            switch (escaped) {
+                case 'A':
+                    return new Instruction(LinearRegex.BEGIN, 0);
+                case 'Z':
+                    return new Instruction(LinearRegex.DOLLAR, 0);
+                case 'z':
+                    return new Instruction(LinearRegex.END, 0);
+                default:
+                    break;
+            }
+
+            CharClass.Builder builder = new CharClass.Builder();
+
+            if (builder.addPredefined(escaped)) {
+                return new Instruction(LinearRegex.CLASS, builder.build());
+            }
+
+            int value = parseCharEscape(escaped);
+
+            if (value < 0) {
+                throw unsupported("escape \\" + escaped);
+            }
+
+            return newChar((char) value);
+        }
+
+        /**
+         * @return the char of an escape like \t, \x41 or \0101, -1 if not a char escape
+         */
+        private int parseCharEscape(char escaped) throws UnsupportedPatternException {
+            int value;
+
+            switch (escaped) {
+                case 't':
+                    return '\t';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 'f':
+                    return '\f';
+                case 'a':
+                    return '\u0007';
+                case 'e':
+                    return '\u001B';
+                case 'c':
+                    if (index >= regex.length()) {
+                        throw unsupported("incomplete control char");
+                    }
+
+                    value = regex.charAt(index++) ^ 64;
+                    break;
+                case '0':
+                    value = parseOctal();
+                    break;
+                case 'x':
+                    if (regex.startsWith("{", index)) {
+                        int end = regex.indexOf('}', index);
+
+                        if (end < 0) {
+                            throw unsupported("unclosed hex escape");
+                        }
+
+                        value = parseHex(index + 1, end);
+                        index = end + 1;
+
+                    } else {
+                        value = parseHex(index, index + 2);
+                        index += 2;
+                    }
+
+                    break;
+                case 'u':
+                    value = parseHex(index, index + 4);
+                    index += 4;
+                    break;
+                default:
+                    return -1;
+            }
+
+            if (value > Character.MAX_VALUE) {
+                throw unsupported("supplementary char");
+            }
+
+            checkNotSurrogate((char) value);
+            return value;
+        }
+
+        /**
+         * Same as java.util.regex, up to 3 octal digits of which the first is at most 3
+         */
+        private int parseOctal() throws UnsupportedPatternException {
+            int value = 0;
+            int digits = 0;
+
+            while (digits < 3 && index < regex.length() && isOctal(regex.charAt(index)) &&
+                    (digits < 2 || value / 8 <= 3)) {
+                value = value * 8 + (regex.charAt(index++) - '0');
+                digits++;
+            }
+
+            if (digits == 0) {
+                throw unsupported("invalid octal escape");
+            }
+
+            return value;
+        }
+
+        private int parseHex(int start, int end) throws UnsupportedPatternException {
+            if (end > regex.length() || start >= end || end - start > 6) {
+                throw unsupported("invalid hex escape");
+            }
+
+            try {
+                return Integer.parseInt(regex.substring(start, end), 16);
+
+            } catch (NumberFormatException ex) {
+                throw unsupported("invalid hex escape");
+            }
+        }
+
+        private Node parseQuantifier(Node node) throws UnsupportedPatternException {
+            if (index >= regex.length()) {
+                return node;
+            }
+
+            int min;
+            int max;
+
+            switch (regex.charAt(index)) {
+                case '?':
+                    min = 0;
+                    max = 1;
+                    index++;
+                    break;
+                case '*':
+                    min = 0;
+                    max = UNBOUNDED;
+                    index++;
+                    break;
+                case '+':
+                    min = 1;
+                    max = UNBOUNDED;
+                    index++;
+                    break;
+                case '{':
+                    int end = regex.indexOf('}', index);
+
+                    if (end < 0) {
+                        throw unsupported("unclosed repetition");
+                    }
+
+                    String[] bounds = regex.substring(index + 1, end).split(",", -1);
+
+                    try {
+                        min = Integer.parseInt(bounds[0]);
+                        max = bounds.length == 1 ? min : bounds[1].isEmpty() ? UNBOUNDED : Integer.parseInt(bounds[1]);
+
+                    } catch (NumberFormatException ex) {
+                        throw unsupported("invalid repetition");
+                    }
+
+                    if (bounds.length > 2 || min < 0 || max != UNBOUNDED && max < min) {
+                        throw unsupported("invalid repetition");
+                    }
+
+                    index = end + 1;
+                    break;
+                default:
+                    return node;
+            }
+
+            boolean greedy = true;
+
+            if (regex.startsWith("?", index)) {
+                greedy = false;
+                index++;
+
+            } else if (regex.startsWith("+", index)) {
+                throw unsupported("possessive quantifier");
+            }
+
+            if (index < regex.length() && "?*+{".indexOf(regex.charAt(index)) >= 0) {
+                throw unsupported("repeated quantifier");
+            }
+
+            // java.util.regex stops iterating on an empty match in ways an NFA does not
+            if (node.isNullable() && (max == UNBOUNDED || max > 1)) {
+                throw unsupported("quantified sub-pattern matching the empty string");
+            }
+
+            return new Repetition(node, min, max, greedy);
+        }
+
+        private Node newChar(char c) throws UnsupportedPatternException {
+            checkNotSurrogate(c);
+
+            if (caseInsensitive && (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')) {
+                return new Instruction(LinearRegex.CHAR_IGNORE_CASE, Character.toLowerCase(c));
+            }
+
+            return new Instruction(LinearRegex.CHAR, c);
+        }
+
+        private void checkNotSurrogate(char c) throws UnsupportedPatternException {
+            if (Character.isSurrogate(c)) {
+                throw unsupported("supplementary char");
+            }
+        }
+
+        private static boolean isOctal(char c) {
+            return c >= '0' && c <= '7';
+        }
+
+        private UnsupportedPatternException unsupported(String reason) {
+            return new UnsupportedPatternException(reason + " at index " + index);
+        }
+    }
+
+    /**
+     * Collects the instructions, see {@link LinearRegex}
+     */
+    private static class Compiler {
+
+        private final List<Integer> ops = new ArrayList<Integer>();
+
+        private final List<Integer> args = new ArrayList<Integer>();
+
+        private final List<Integer> args2 = new ArrayList<Integer>();
+
+        private final List<CharClass> classes = new ArrayList<CharClass>();
+
+        private int emit(int op, int arg, int arg2) {
+            ops.add(op);
+            args.add(arg);
+            args2.add(arg2);
+            return ops.size() - 1;
+        }
+
+        private int next() {
+            return ops.size();
+        }
+
+        private void patch(int instruction, int arg, int arg2) {
+            args.set(instruction, arg);
+            args2.set(instruction, arg2);
+        }
+
+        private int[] toArray(List<Integer> values) {
+            int[] array = new int[values.size()];
+
+            for (int i = 0; i < array.length; i++) {
+                array[i] = values.get(i);
+            }
+
+            return array;
+        }
+    }
+
+    abstract static class Node {
+
+        abstract boolean isNullable();
+
+        /**
+         * @return the no of instructions emitted, at most Integer.MAX_VALUE
+         */
+        abstract long size();
+
+        abstract void emit(Compiler compiler);
+    }
+
+    /**
+     * A single instruction, i.e. a char, a class or an assertion
+     */
+    static class Instruction extends Node {
+
+        final int op;
+
+        final int arg;
+
+        final CharClass charClass;
+
+        private Instruction(int op, int arg) {
+            this.op = op;
+            this.arg = arg;
+            this.charClass = null;
+        }
+
+        private Instruction(int op, CharClass charClass) {
+            this.op = op;
+            this.arg = 0;
+            this.charClass = charClass;
+        }
+
+        boolean isNullable() {
+            return op == LinearRegex.BEGIN || op == LinearRegex.DOLLAR || op == LinearRegex.END;
+        }
+
+        long size() {
+            return 1;
+        }
+
+        void emit(Compiler compiler) {
+            if (charClass != null) {
+                compiler.classes.add(charClass);
+                compiler.emit(op, compiler.classes.size() - 1, 0);
+
+            } else {
+                compiler.emit(op, arg, 0);
+            }
+        }
+    }
+
+    static class Sequence extends Node {
+
+        final List<Node> nodes;
+
+        private Sequence(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        boolean isNullable() {
+            for (Node node : nodes) {
+                if (!node.isNullable()) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        long size() {
+            long size = 0;
+
+            for (Node node : nodes) {
+                size = Math.min(Integer.MAX_VALUE, size + node.size());
+            }
+
+            return size;
+        }
+
+        void emit(Compiler compiler) {
+            for (Node node : nodes) {
+                node.emit(compiler);
+            }
+        }
+    }
+
+    static class Group extends Node {
+
+        final Node node;
+
+        private Group(Node node) {
+            this.node = node;
+        }
+
+        boolean isNullable() {
+            return node.isNullable();
+        }
+
+        long size() {
+            return node.size();
+        }
+
+        void emit(Compiler compiler) {
+            node.emit(compiler);
+        }
+    }
+
+    /**
+     * Split to the first alternative, or on to a split to the next one, with a jump
+     * to the end after each alternative but the last
+     */
+    static class Alternation extends Node {
+
+        private final List<Node> alternatives;
+
+        private Alternation(List<Node> alternatives) {
+            this.alternatives = alternatives;
+        }
+
+        boolean isNullable() {
+            for (Node alternative : alternatives) {
+                if (alternative.isNullable()) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        long size() {
+            long size = 0;
+
+            for (Node alternative : alternatives) {
+                size = Math.min(Integer.MAX_VALUE, size + alternative.size() + 2);
+            }
+
+            return size;
+        }
+
+        void emit(Compiler compiler) {
+            List<Integer> jumps = new ArrayList<Integer>();
+
+            for (int i = 0; i < alternatives.size(); i++) {
+                if (i == alternatives.size() - 1) {
+                    alternatives.get(i).emit(compiler);
+                    break;
+                }
+
+                int split = compiler.emit(LinearRegex.SPLIT, 0, 0);
+                alternatives.get(i).emit(compiler);
+                jumps.add(compiler.emit(LinearRegex.JUMP, 0, 0));
+                compiler.patch(split, split + 1, compiler.next());
+            }
+
+            for (int jump : jumps) {
+                compiler.patch(jump, compiler.next(), 0);
+            }
+        }
+    }
+
+    /**
+     * The sub-pattern copied min times, followed by a loop if unbounded, or otherwise by
+     * max - min optional copies, each of which skips to the end if not taken. Greedy
+     * splits prefer the copy, lazy ones skipping it.
+     */
+    static class Repetition extends Node {
+
+        final Node node;
+
+        final int min;
+
+        final int max;
+
+        final boolean greedy;
+
+        private Repetition(Node node, int min, int max, boolean greedy) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+            this.greedy = greedy;
+        }
+
+        boolean isNullable() {
+            return min == 0 || node.isNullable();
+        }
+
+        long size() {
+            long copies = max == UNBOUNDED ? min + 1 : max;
+            return Math.min(Integer.MAX_VALUE, copies * (node.size() + 2));
+        }
+
+        void emit(Compiler compiler) {
+            for (int i = 0; i < min; i++) {
+                node.emit(compiler);
+            }
+
+            if (max == UNBOUNDED) {
+                int split = compiler.emit(LinearRegex.SPLIT, 0, 0);
+                node.emit(compiler);
+                compiler.emit(LinearRegex.JUMP, split, 0);
+                patchSplit(compiler, split, compiler.next());
+                return;
+            }
+
+            List<Integer> splits = new ArrayList<Integer>();
+
+            for (int i = min; i < max; i++) {
+                splits.add(compiler.emit(LinearRegex.SPLIT, 0, 0));
+                node.emit(compiler);
+            }
+
+            for (int split : splits) {
+                patchSplit(compiler, split, compiler.next());
+            }
+        }
+
+        private void patchSplit(Compiler compiler, int split, int skip) {
+            if (greedy) {
+                compiler.patch(split, split + 1, skip);
+
+            } else {
+                compiler.patch(split, skip, split + 1);
+            }
+        }
+    }
+
+}
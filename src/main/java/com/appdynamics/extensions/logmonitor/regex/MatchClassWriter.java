@@ -0,0 +1,526 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the class file of a {@link GeneratedMatch} for a sequence of steps, each a set
+ * of chars repeated between a min and max no of times. Each step becomes its own
+ * straight-line code: a comparison for a char or a case insensitive letter, a table
+ * lookup for a class, and a loop for a repetition. The repetitions are greedy without
+ * ever giving a char back, which is up to the caller to allow.
+ *
+ * <p>The class file has the version of Java 5, so it is verified without the stack map
+ * frames later versions require.</p>
+ *
+ * <p>matchAt keeps the input in local 1, the index in local 2, the length in local 3,
+ * the current char in local 4 and the no of repetitions in local 5.</p>
+ *
+ * @author Satish Muddam
+ */
+class MatchClassWriter {
+
+    static final int NON_ASCII_NONE = 0;
+
+    static final int NON_ASCII_ALL = 1;
+
+    /**
+     * All but the non ASCII line terminators, as . without DOTALL
+     */
+    static final int NON_ASCII_BUT_LINE_TERMINATORS = 2;
+
+    static final int MAX_COUNT = Short.MAX_VALUE;
+
+    private static final int ASCII_SIZE = 128;
+
+    /**
+     * Repetitions with a fixed count up to this are unrolled
+     */
+    private static final int MAX_UNROLLED = 8;
+
+    private static final int VERSION = 49;
+
+    private static final String MATCH_INTERFACE = GeneratedMatch.class.getName().replace('.', '/');
+
+    private static final String CHAR_SEQUENCE = "java/lang/CharSequence";
+
+    private static final String TABLE = "[Z";
+
+    private static final int ACC_PUBLIC = 0x0001;
+
+    private static final int ACC_PRIVATE = 0x0002;
+
+    private static final int ACC_FINAL = 0x0010;
+
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ICONST_M1 = 0x02;
+
+    private static final int ICONST_0 = 0x03;
+
+    private static final int BIPUSH = 0x10;
+
+    private static final int SIPUSH = 0x11;
+
+    private static final int ILOAD = 0x15;
+
+    private static final int ILOAD_2 = 0x1C;
+
+    private static final int ILOAD_3 = 0x1D;
+
+    private static final int ALOAD_0 = 0x2A;
+
+    private static final int ALOAD_1 = 0x2B;
+
+    private static final int AALOAD = 0x32;
+
+    private static final int BALOAD = 0x33;
+
+    private static final int ISTORE = 0x36;
+
+    private static final int IINC = 0x84;
+
+    private static final int IFEQ = 0x99;
+
+    private static final int IF_ICMPEQ = 0x9F;
+
+    private static final int IF_ICMPNE = 0xA0;
+
+    private static final int IF_ICMPLT = 0xA1;
+
+    private static final int IF_ICMPGE = 0xA2;
+
+    private static final int GOTO = 0xA7;
+
+    private static final int IRETURN = 0xAC;
+
+    private static final int RETURN = 0xB1;
+
+    private static final int GETFIELD = 0xB4;
+
+    private static final int PUTFIELD = 0xB5;
+
+    private static final int INVOKESPECIAL = 0xB7;
+
+    private static final int INVOKEINTERFACE = 0xB9;
+
+    private static final int INDEX = 2;
+
+    private static final int CHAR = 4;
+
+    private static final int COUNT = 5;
+
+    private final ConstantPool pool = new ConstantPool();
+
+    private final String className;
+
+    private final List<Step> steps;
+
+    MatchClassWriter(String className, List<Step> steps) {
+        this.className = className.replace('.', '/');
+        this.steps = steps;
+    }
+
+    /**
+     * @return the class file, whose constructor takes the ASCII tables of the steps
+     * @throws IllegalStateException if the steps take more code than a branch can span
+     */
+    byte[] write() {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(body);
+
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(pool.classRef(className));
+            out.writeShort(pool.classRef("java/lang/Object"));
+            out.writeShort(1);
+            out.writeShort(pool.classRef(MATCH_INTERFACE));
+
+            out.writeShort(steps.size());
+
+            for (int i = 0; i < steps.size(); i++) {
+                out.writeShort(ACC_PRIVATE | ACC_FINAL);
+                out.writeShort(pool.utf8(fieldName(i)));
+                out.writeShort(pool.utf8(TABLE));
+                out.writeShort(0);
+            }
+
+            out.writeShort(2);
+            writeMethod(out, "<init>", "([[Z)V", 3, 2, writeConstructor());
+            writeMethod(out, "matchAt", "(Ljava/lang/CharSequence;II)I", 3, 6, writeMatchAt());
+            out.writeShort(0);
+
+            ByteArrayOutputStream classFile = new ByteArrayOutputStream();
+            DataOutputStream header = new DataOutputStream(classFile);
+            header.writeInt(0xCAFEBABE);
+            header.writeShort(0);
+            header.writeShort(VERSION);
+            header.writeShort(pool.count);
+            pool.bytes.writeTo(classFile);
+            body.writeTo(classFile);
+
+            return classFile.toByteArray();
+
+        } catch (IOException ex) {
+            // not thrown by byte array streams
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void writeMethod(DataOutputStream out, String name, String descriptor, int maxStack, int maxLocals,
+                             Code code) throws IOException {
+        byte[] bytes = code.toByteArray();
+
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(pool.utf8(name));
+        out.writeShort(pool.utf8(descriptor));
+        out.writeShort(1);
+        out.writeShort(pool.utf8("Code"));
+        out.writeInt(12 + bytes.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private Code writeConstructor() throws IOException {
+        Code code = new Code();
+        code.op(ALOAD_0);
+        code.op(INVOKESPECIAL).u2(pool.memberRef(ConstantPool.METHOD, "java/lang/Object", "<init>", "()V"));
+
+        for (int i = 0; i < steps.size(); i++) {
+            code.op(ALOAD_0).op(ALOAD_1);
+            pushInt(code, i);
+            code.op(AALOAD);
+            code.op(PUTFIELD).u2(pool.memberRef(ConstantPool.FIELD, className, fieldName(i), TABLE));
+        }
+
+        code.op(RETURN);
+        return code;
+    }
+
+    private Code writeMatchAt() throws IOException {
+        Code code = new Code();
+        Label fail = new Label();
+
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+
+            if (step.min == step.max && step.min <= MAX_UNROLLED) {
+                for (int j = 0; j < step.min; j++) {
+                    writeNextChar(code, fail);
+                    writeTest(code, i, fail);
+                    code.op(IINC).u1(INDEX).u1(1);
+                }
+
+                continue;
+            }
+
+            Label loop = new Label();
+            Label done = new Label();
+
+            code.op(ICONST_0).op(ISTORE).u1(COUNT);
+            code.mark(loop);
+
+            if (step.max != LinearRegexEngine.UNBOUNDED) {
+                code.op(ILOAD).u1(COUNT);
+                pushInt(code, step.max);
+                code.branch(IF_ICMPGE, done);
+            }
+
+            writeNextChar(code, done);
+            writeTest(code, i, done);
+            code.op(IINC).u1(INDEX).u1(1);
+            code.op(IINC).u1(COUNT).u1(1);
+            code.branch(GOTO, loop);
+            code.mark(done);
+
+            if (step.min > 0) {
+                code.op(ILOAD).u1(COUNT);
+                pushInt(code, step.min);
+                code.branch(IF_ICMPLT, fail);
+            }
+        }
+
+        code.op(ILOAD_2).op(IRETURN);
+        code.mark(fail);
+        code.op(ICONST_M1).op(IRETURN);
+        return code;
+    }
+
+    /**
+     * Loads the char at the index, or branches if at the end of the input
+     */
+    private void writeNextChar(Code code, Label end) throws IOException {
+        code.op(ILOAD_2).op(ILOAD_3);
+        code.branch(IF_ICMPGE, end);
+        code.op(ALOAD_1).op(ILOAD_2);
+        code.op(INVOKEINTERFACE).u2(pool.memberRef(ConstantPool.INTERFACE_METHOD, CHAR_SEQUENCE, "charAt", "(I)C"))
+                .u1(2).u1(0);
+        code.op(ISTORE).u1(CHAR);
+    }
+
+    /**
+     * Branches if the char is not in the set of the step
+     */
+    private void writeTest(Code code, int stepIndex, Label mismatch) throws IOException {
+        Step step = steps.get(stepIndex);
+        List<Integer> members = new ArrayList<Integer>();
+
+        for (int c = 0; c < ASCII_SIZE; c++) {
+            if (step.ascii[c]) {
+                members.add(c);
+            }
+        }
+
+        if (step.nonAscii == NON_ASCII_NONE && members.size() <= 2) {
+            if (members.isEmpty()) {
+                code.branch(GOTO, mismatch);
+                return;
+            }
+
+            Label match = new Label();
+
+            for (int i = 0; i < members.size(); i++) {
+                code.op(ILOAD).u1(CHAR);
+                pushInt(code, members.get(i));
+                code.branch(i < members.size() - 1 ? IF_ICMPEQ : IF_ICMPNE, i < members.size() - 1 ? match : mismatch);
+            }
+
+            code.mark(match);
+            return;
+        }
+
+        Label nonAscii = new Label();
+        Label match = new Label();
+
+        code.op(ILOAD).u1(CHAR);
+        pushInt(code, ASCII_SIZE);
+        code.branch(IF_ICMPGE, nonAscii);
+        code.op(ALOAD_0).op(GETFIELD).u2(pool.memberRef(ConstantPool.FIELD, className, fieldName(stepIndex), TABLE));
+        code.op(ILOAD).u1(CHAR).op(BALOAD);
+        code.branch(IFEQ, mismatch);
+        code.branch(GOTO, match);
+        code.mark(nonAscii);
+
+        if (step.nonAscii == NON_ASCII_NONE) {
+            code.branch(GOTO, mismatch);
+
+        } else if (step.nonAscii == NON_ASCII_BUT_LINE_TERMINATORS) {
+            for (char terminator : new char[]{'\u0085', '\u2028', '\u2029'}) {
+                code.op(ILOAD).u1(CHAR);
+                pushInt(code, terminator);
+                code.branch(IF_ICMPEQ, mismatch);
+            }
+        }
+
+        code.mark(match);
+    }
+
+    private void pushInt(Code code, int value) {
+        if (value >= -1 && value <= 5) {
+            code.op(ICONST_0 + value);
+
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.op(BIPUSH).u1(value);
+
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.op(SIPUSH).u2(value);
+
+        } else {
+            throw new IllegalArgumentException(String.format("Constant [%s] out of range", value));
+        }
+    }
+
+    private static String fieldName(int stepIndex) {
+        return "step" + stepIndex;
+    }
+
+    /**
+     * A set of chars, given by a table of its ASCII members and whether it contains
+     * non ASCII chars, repeated from min to max times
+     */
+    static class Step {
+
+        final boolean[] ascii;
+
+        final int nonAscii;
+
+        final int min;
+
+        final int max;
+
+        Step(boolean[] ascii, int nonAscii, int min, int max) {
+            this.ascii = ascii;
+            this.nonAscii = nonAscii;
+            this.min = min;
+            this.max = max;
+        }
+
+        boolean overlaps(Step other) {
+            if (nonAscii != NON_ASCII_NONE && other.nonAscii != NON_ASCII_NONE) {
+                return true;
+            }
+
+            for (int c = 0; c < ASCII_SIZE; c++) {
+                if (ascii[c] && other.ascii[c]) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    /**
+     * The constant pool entries, each added once
+     */
+    private static class ConstantPool {
+
+        private static final int UTF8 = 1;
+
+        private static final int CLASS = 7;
+
+        private static final int FIELD = 9;
+
+        private static final int METHOD = 10;
+
+        private static final int INTERFACE_METHOD = 11;
+
+        private static final int NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+        /**
+         * The no of entries plus one, as the first index is 1
+         */
+        private int count = 1;
+
+        private int utf8(String value) throws IOException {
+            String key = UTF8 + ":" + value;
+
+            if (!indexes.containsKey(key)) {
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+                indexes.put(key, count++);
+            }
+
+            return indexes.get(key);
+        }
+
+        private int classRef(String internalName) throws IOException {
+            String key = CLASS + ":" + internalName;
+
+            if (!indexes.containsKey(key)) {
+                int name = utf8(internalName);
+                out.writeByte(CLASS);
+                out.writeShort(name);
+                indexes.put(key, count++);
+            }
+
+            return indexes.get(key);
+        }
+
+        private int memberRef(int tag, String owner, String name, String descriptor) throws IOException {
+            String key = tag + ":" + owner + "." + name + ":" + descriptor;
+
+            if (!indexes.containsKey(key)) {
+                int ownerIndex = classRef(owner);
+                int nameIndex = utf8(name);
+                int descriptorIndex = utf8(descriptor);
+                String nameAndTypeKey = NAME_AND_TYPE + ":" + name + ":" + descriptor;
+
+                if (!indexes.containsKey(nameAndTypeKey)) {
+                    out.writeByte(NAME_AND_TYPE);
+                    out.writeShort(nameIndex);
+                    out.writeShort(descriptorIndex);
+                    indexes.put(nameAndTypeKey, count++);
+                }
+
+                out.writeByte(tag);
+                out.writeShort(ownerIndex);
+                out.writeShort(indexes.get(nameAndTypeKey));
+                indexes.put(key, count++);
+            }
+
+            return indexes.get(key);
+        }
+    }
+
+    /**
+     * The bytecode of a method, with branches to labels resolved once it is complete
+     */
+    private static class Code {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        private final List<Label> labels = new ArrayList<Label>();
+
+        private Code op(int opcode) {
+            bytes.write(opcode);
+            return this;
+        }
+
+        private Code u1(int value) {
+            bytes.write(value);
+            return this;
+        }
+
+        private Code u2(int value) {
+            bytes.write(value >> 8);
+            bytes.write(value);
+            return this;
+        }
+
+        private void branch(int opcode, Label label) {
+            if (label.branches.isEmpty()) {
+                labels.add(label);
+            }
+
+            label.branches.add(bytes.size());
+            op(opcode).u2(0);
+        }
+
+        private void mark(Label label) {
+            label.position = bytes.size();
+        }
+
+        private byte[] toByteArray() {
+            byte[] code = bytes.toByteArray();
+
+            for (Label label : labels) {
+                for (int branch : label.branches) {
+                    int offset = label.position - branch;
+
+                    if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                        throw new IllegalStateException("Branch too far for the code generated");
+                    }
+
+                    code[branch + 1] = (byte) (offset >> 8);
+                    code[branch + 2] = (byte) offset;
+                }
+            }
+
+            return code;
+        }
+    }
+
+    private static class Label {
+
+        private final List<Integer> branches = new ArrayList<Integer>();
+
+        private int position = -1;
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import java.util.regex.Pattern;
+
+/**
+ * Compiles search patterns into matchers, selected per search string by name.
+ *
+ * <p>Besides the built-in engines, implementations can be added by listing them in
+ * META-INF/services/com.appdynamics.extensions.logmonitor.regex.RegexEngine on the
+ * extension's class path, see {@link RegexEngines}.</p>
+ *
+ * @author Satish Muddam
+ */
+public interface RegexEngine {
+
+    /**
+     * @return the name the engine is selected by in the config
+     */
+    String getName();
+
+    /**
+     * @param pattern the pattern compiled by java.util.regex, which is therefore valid
+     * @return the compiled regex, or null if the engine does not support the pattern
+     */
+    CompiledRegex compile(Pattern pattern);
+
+}
@@ -0,0 +1,90 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * The regex engines search strings can select, by their name. These are the built-in
+ * {@link JdkRegexEngine}, {@link LinearRegexEngine} and {@link GeneratedRegexEngine}, and
+ * the engines registered as services of {@link RegexEngine}.
+ *
+ * @author Satish Muddam
+ */
+public final class RegexEngines {
+
+    private static final Logger LOGGER = Logger.getLogger(RegexEngines.class);
+
+    private static final RegexEngine DEFAULT_ENGINE = new JdkRegexEngine();
+
+    private static final Map<String, RegexEngine> ENGINES = loadEngines();
+
+    private RegexEngines() {
+    }
+
+    public static RegexEngine getDefault() {
+        return DEFAULT_ENGINE;
+    }
+
+    /**
+     * @param name the engine's name, or blank for the default one
+     * @throws IllegalArgumentException if there is no engine of that name
+     */
+    public static RegexEngine get(String name) {
+        if (StringUtils.isBlank(name)) {
+            return DEFAULT_ENGINE;
+        }
+
+        RegexEngine engine = ENGINES.get(name.trim().toLowerCase());
+
+        if (engine == null) {
+            throw new IllegalArgumentException(String.format("Unknown regex engine [%s], known are %s",
+                    name, ENGINES.keySet()));
+        }
+
+        return engine;
+    }
+
+    private static Map<String, RegexEngine> loadEngines() {
+        Map<String, RegexEngine> engines = new LinkedHashMap<String, RegexEngine>();
+        register(engines, DEFAULT_ENGINE);
+        register(engines, new LinearRegexEngine());
+        register(engines, new GeneratedRegexEngine());
+
+        Iterator<RegexEngine> services = ServiceLoader.load(RegexEngine.class,
+                RegexEngines.class.getClassLoader()).iterator();
+
+        while (true) {
+            try {
+                if (!services.hasNext()) {
+                    break;
+                }
+
+                register(engines, services.next());
+
+            } catch (ServiceConfigurationError ex) {
+                LOGGER.error("Unable to load a regex engine", ex);
+            }
+        }
+
+        return engines;
+    }
+
+    private static void register(Map<String, RegexEngine> engines, RegexEngine engine) {
+        String name = engine.getName().toLowerCase();
+
+        if (engines.containsKey(name)) {
+            LOGGER.warn(String.format("Ignoring regex engine [%s], its name [%s] is already taken",
+                    engine.getClass().getName(), name));
+            return;
+        }
+
+        engines.put(name, engine);
+    }
+
+}
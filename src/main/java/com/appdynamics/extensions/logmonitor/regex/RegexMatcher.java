@@ -0,0 +1,36 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+/**
+ * Finds the matches of a {@link CompiledRegex} in an input, with the semantics of
+ * {@link java.util.regex.Matcher#find()}: the leftmost match is found first, and the
+ * next search starts at its end, or after it if it was empty.
+ *
+ * @author Satish Muddam
+ */
+public interface RegexMatcher {
+
+    /**
+     * Sets the input to search, from its start
+     */
+    RegexMatcher reset(CharSequence input);
+
+    /**
+     * @return true if a next match was found
+     */
+    boolean find();
+
+    /**
+     * Searches from the given index on. Look-behinds still see the input before it,
+     * while ^ only matches at the start of the input.
+     *
+     * @return true if a match was found
+     */
+    boolean find(int from);
+
+    int start();
+
+    int end();
+
+    String group();
+
+}
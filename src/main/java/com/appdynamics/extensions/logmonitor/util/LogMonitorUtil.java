@@ -3,8 +3,13 @@ package com.appdynamics.extensions.logmonitor.util;
 import com.appdynamics.extensions.PathResolver;
 import com.appdynamics.extensions.logmonitor.SearchPattern;
 import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.reader.LogReader;
+import com.appdynamics.extensions.logmonitor.regex.CompiledRegex;
+import com.appdynamics.extensions.logmonitor.regex.RegexEngine;
+import com.appdynamics.extensions.logmonitor.regex.RegexEngines;
 import com.singularity.ee.agent.systemagent.api.AManagedMonitor;
 import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
 import org.bitbucket.kienerj.OptimizedRandomAccessFile;
 
 import java.io.File;
@@ -19,8 +24,11 @@ import java.util.regex.Pattern;
  */
 public class LogMonitorUtil {
 
+    private static final Logger LOGGER = Logger.getLogger(LogMonitorUtil.class);
+
     private static final String CASE_SENSITIVE_PATTERN = "(?-i)";
     private static final String CASE_INSENSITIVE_PATTERN = "(?i)";
+    private static final String REGEX_META_CHARS = "\\.[]{}()*+?^$|";
 
     public static String resolvePath(String filename) {
         if (StringUtils.isBlank(filename)) {
@@ -45,6 +53,7 @@ public class LogMonitorUtil {
 
             for (SearchString searchString : searchStrings) {
                 Pattern pattern = null;
+                String literal = null;
 
                 StringBuilder rawPatternsStringBuilder = new StringBuilder();
 
@@ -59,15 +68,22 @@ public class LogMonitorUtil {
                     rawPatternsStringBuilder.append("(?<=\\s|^)");
                     rawPatternsStringBuilder.append(Pattern.quote(searchString.getPattern().trim()));
                     rawPatternsStringBuilder.append("(?=\\s|$)");
+                    literal = searchString.getPattern().trim();
 
                 } else {
 
                     rawPatternsStringBuilder.append(searchString.getPattern().trim());
+
+                    if (isLiteral(searchString.getPattern().trim())) {
+                        literal = searchString.getPattern().trim();
+                    }
                 }
 
                 pattern = Pattern.compile(rawPatternsStringBuilder.toString());
 
-                SearchPattern searchPattern = new SearchPattern(searchString.getDisplayName(), pattern, searchString.getCaseSensitive());
+                SearchPattern searchPattern = new SearchPattern(searchString.getDisplayName(), pattern,
+                        searchString.getCaseSensitive(), literal, searchString.getMatchExactString(),
+                        compileRegex(searchString, pattern));
                 searchPatterns.add(searchPattern);
             }
 
@@ -76,6 +92,31 @@ public class LogMonitorUtil {
         return searchPatterns;
     }
 
+    /**
+     * @return the pattern compiled by the engine the search string selected, or by the
+     * default engine if the selected one does not support it
+     */
+    private static CompiledRegex compileRegex(SearchString searchString, Pattern pattern) {
+        RegexEngine engine = RegexEngines.get(searchString.getEngine());
+        CompiledRegex compiledRegex = engine.compile(pattern);
+
+        if (compiledRegex == null) {
+            LOGGER.info(String.format("Search string [%s] is not supported by the [%s] regex engine, using [%s]",
+                    searchString.getDisplayName(), engine.getName(), RegexEngines.getDefault().getName()));
+
+            compiledRegex = RegexEngines.getDefault().compile(pattern);
+        }
+
+        return compiledRegex;
+    }
+
+    /**
+     * @return true if the pattern contains no regex meta characters
+     */
+    public static boolean isLiteral(String pattern) {
+        return StringUtils.isNotEmpty(pattern) && StringUtils.containsNone(pattern, REGEX_META_CHARS);
+    }
+
     public static void closeRandomAccessFile(OptimizedRandomAccessFile randomAccessFile) {
         if (randomAccessFile != null) {
             try {
@@ -85,6 +126,15 @@ public class LogMonitorUtil {
         }
     }
 
+    public static void closeLogReader(LogReader logReader) {
+        if (logReader != null) {
+            try {
+                logReader.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
     public static BigInteger convertValueToZeroIfNullOrNegative(BigInteger value) {
         if (value == null || value.compareTo(BigInteger.ZERO) < 0) {
             return BigInteger.ZERO;
@@ -0,0 +1,157 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.createPattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang.WordUtils;
+import org.junit.Test;
+
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.google.common.collect.Lists;
+
+public class CombinedRegexSearcherTest {
+
+    private static final String PREFIX = "TestLog|Search String|";
+
+    private static final String[] TOKENS = {"a", "B", "a+", "[ab]", "b*", "\\s", "ab?", "(a|b)", "\\bb",
+            "^a", "a$", "(?<=a)b", "(?:ba)+", "a{2}", ".", "c?"};
+
+    @Test
+    public void testOverlappingMatchesOfDifferentPatterns() {
+        List<SearchPattern> searchPatterns = createPattern(Lists.newArrayList(
+                searchString("sys\\w+", true), searchString("system\\d", true), searchString("\\d+", true)));
+
+        LineSearcher lineSearcher = new LineSearcher(searchPatterns, "TestLog|");
+        LogMetrics logMetrics = new LogMetrics();
+        new CombinedRegexSearcher(searchPatterns).search("system1 system22 sysadmin", lineSearcher, logMetrics);
+
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "sys\\w+|system1").intValue());
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "sys\\w+|system22").intValue());
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "sys\\w+|sysadmin").intValue());
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "system\\d|system1").intValue());
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "system\\d|system2").intValue());
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "\\d+|1").intValue());
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "\\d+|22").intValue());
+    }
+
+    @Test
+    public void testBackReferencesAreNotCombined() {
+        assertFalse(CombinedRegexSearcher.isSupported(createPattern(Lists.newArrayList(
+                searchString("(a)\\1", true))).get(0)));
+        assertTrue(CombinedRegexSearcher.isSupported(createPattern(Lists.newArrayList(
+                searchString("(a)b", true))).get(0)));
+    }
+
+    @Test
+    public void testCaseInsensitivePatternsAreCombined() {
+        List<SearchPattern> searchPatterns = createPattern(Lists.newArrayList(
+                searchString("error \\d+", false), searchString("warn(ing)?", false), searchString("user=\\S+", false)));
+
+        for (SearchPattern searchPattern : searchPatterns) {
+            assertTrue(searchPattern.getPattern().pattern(), CombinedRegexSearcher.isSupported(searchPattern));
+        }
+
+        // a flag which is not inline would not apply to the pattern once combined
+        assertFalse(CombinedRegexSearcher.isSupported(new SearchPattern("error",
+                Pattern.compile("error", Pattern.CASE_INSENSITIVE), false, null)));
+
+        LineSearcher lineSearcher = new LineSearcher(searchPatterns, "TestLog|");
+        String line = "ERROR 42 for USER=admin, Warning: error 7 user=guest warn";
+
+        LogMetrics expected = new LogMetrics();
+        searchWithRegex(searchPatterns, line, expected);
+
+        LogMetrics actual = new LogMetrics();
+        lineSearcher.incrementWordCountIfSearchStringMatched(line, actual);
+
+        assertEquals(expected.getMetrics(), actual.getMetrics());
+        assertEquals(1, actual.getMetrics().get(PREFIX + "warn(ing)?|Warning").intValue());
+    }
+
+    @Test
+    public void testPatternsStartingWithRepetitionAreNotCombined() {
+        assertFalse(CombinedRegexSearcher.isSupported(createPattern(Lists.newArrayList(
+                searchString(".*Exception", true))).get(0)));
+        assertFalse(CombinedRegexSearcher.isSupported(createPattern(Lists.newArrayList(
+                searchString("\\w+@\\w+", false))).get(0)));
+        assertFalse(CombinedRegexSearcher.isSupported(createPattern(Lists.newArrayList(
+                searchString("(\\S+)=", true))).get(0)));
+        assertTrue(CombinedRegexSearcher.isSupported(createPattern(Lists.newArrayList(
+                searchString("user=\\S+", true))).get(0)));
+    }
+
+    @Test
+    public void testSameCountsAsRegex() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 300; i++) {
+            List<SearchString> searchStrings = new ArrayList<SearchString>();
+
+            for (int j = 0; j < 4; j++) {
+                StringBuilder regex = new StringBuilder();
+
+                for (int k = 0; k < 1 + random.nextInt(3); k++) {
+                    regex.append(TOKENS[random.nextInt(TOKENS.length)]);
+                }
+
+                searchStrings.add(searchString(regex.toString(), random.nextBoolean()));
+            }
+
+            List<SearchPattern> searchPatterns = createPattern(searchStrings);
+            LineSearcher lineSearcher = new LineSearcher(searchPatterns, "TestLog|");
+            CombinedRegexSearcher classUnderTest = new CombinedRegexSearcher(searchPatterns);
+
+            for (int j = 0; j < 20; j++) {
+                String line = randomString(random, "abAB c", random.nextInt(20));
+
+                LogMetrics expected = new LogMetrics();
+                searchWithRegex(searchPatterns, line, expected);
+
+                LogMetrics actual = new LogMetrics();
+                classUnderTest.search(line, lineSearcher, actual);
+
+                assertEquals(searchStrings + " in [" + line + "]", expected.getMetrics(), actual.getMetrics());
+            }
+        }
+    }
+
+    private void searchWithRegex(List<SearchPattern> searchPatterns, String line, LogMetrics logMetrics) {
+        for (SearchPattern searchPattern : searchPatterns) {
+            Matcher matcher = searchPattern.getMatcher(line);
+
+            while (matcher.find()) {
+                String word = matcher.group().trim();
+                logMetrics.add(PREFIX + searchPattern.getDisplayName() + "|" +
+                        (searchPattern.getCaseSensitive() ? word : WordUtils.capitalizeFully(word)));
+            }
+        }
+    }
+
+    private String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+
+        return builder.toString();
+    }
+
+    private SearchString searchString(String pattern, boolean caseSensitive) {
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(caseSensitive);
+        searchString.setMatchExactString(false);
+        searchString.setPattern(pattern);
+        searchString.setDisplayName(pattern);
+        return searchString;
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.processors.FilePointerProcessor;
+import com.google.common.collect.Lists;
+
+public class DeviceSchedulerTest {
+
+    private File baseDirectory = new File("./target/device-scheduler-test");
+
+    @Test
+    public void testLanesPerDevice() throws Exception {
+        List<LogMonitorTask> tasks = new ArrayList<LogMonitorTask>();
+
+        for (int i = 0; i < 5; i++) {
+            tasks.add(task(i));
+        }
+
+        // all files are on the same device
+        assertEquals(2, DeviceScheduler.createLanes(tasks, 2).size());
+        assertEquals(5, DeviceScheduler.createLanes(tasks, 8).size());
+    }
+
+    @Test
+    public void testLanesRunAllTasks() throws Exception {
+        List<LogMonitorTask> tasks = new ArrayList<LogMonitorTask>();
+
+        for (int i = 0; i < 3; i++) {
+            tasks.add(task(i));
+        }
+
+        LogMetrics logMetrics = new LogMetrics();
+
+        for (Callable<LogMetrics> lane : DeviceScheduler.createLanes(tasks, 1)) {
+            logMetrics.merge(lane.call());
+        }
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(BigInteger.valueOf(2), logMetrics.getMetrics().get(
+                    "Log-" + i + "|Search String|Error|Error"));
+        }
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        FileUtils.deleteDirectory(baseDirectory);
+    }
+
+    private LogMonitorTask task(int i) throws Exception {
+        String logName = "app-" + i + ".log";
+        File file = new File(baseDirectory, logName);
+        file.getParentFile().mkdirs();
+        FileWriter fileWriter = new FileWriter(file);
+
+        try {
+            fileWriter.write("error one\ninfo\nerror two\n");
+        } finally {
+            fileWriter.close();
+        }
+
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(false);
+        searchString.setMatchExactString(false);
+        searchString.setPattern("error");
+        searchString.setDisplayName("Error");
+
+        Log log = new Log();
+        log.setDisplayName("Log-" + i);
+        log.setLogDirectory(baseDirectory.getPath());
+        log.setLogName(logName);
+        log.setSearchStrings(Lists.newArrayList(searchString));
+
+        return new LogMonitorTask(new FilePointerProcessor(), log);
+    }
+}
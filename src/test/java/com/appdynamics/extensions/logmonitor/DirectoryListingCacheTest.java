@@ -0,0 +1,116 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchService;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+public class DirectoryListingCacheTest {
+
+    private File directory = new File("./target/directory-listing-test");
+
+    private DirectoryListingCache classUnderTest = new DirectoryListingCache();
+
+    @Test
+    public void testLogsInSameDirectoryShareListing() throws Exception {
+        write("a.log", "first line\n");
+
+        DirectoryListing listing = classUnderTest.getListing(directory);
+
+        assertSame(listing, classUnderTest.getListing(new File(directory.getPath() + "/./")));
+        assertEquals(1, listing.getNames().size());
+    }
+
+    @Test
+    public void testNewAndDeletedFilesArePickedUp() throws Exception {
+        write("a.log", "first line\n");
+        classUnderTest.getListing(directory);
+
+        write("b.log", "first line\n");
+        new File(directory, "a.log").delete();
+
+        // watch events are delivered asynchronously
+        DirectoryListing listing = null;
+
+        for (int i = 0; i < 50; i++) {
+            listing = classUnderTest.getListing(directory);
+
+            if (listing.getNames().contains("b.log") && !listing.getNames().contains("a.log")) {
+                break;
+            }
+
+            Thread.sleep(100);
+        }
+
+        assertTrue(listing.getNames().contains("b.log"));
+        assertFalse(listing.getNames().contains("a.log"));
+    }
+
+    @Test
+    public void testSignalledKeysDoNotPileUpInWatchService() throws Exception {
+        WatchService watchService = FileSystems.getDefault().newWatchService();
+        classUnderTest = new DirectoryListingCache(watchService);
+
+        write("a.log", "first line\n");
+        classUnderTest.getListing(directory);
+
+        for (int i = 0; i < 5; i++) {
+            write("a.log", "line " + i + "\n");
+
+            // watch events are delivered asynchronously
+            Thread.sleep(300);
+            classUnderTest.getListing(directory);
+        }
+
+        assertNull(watchService.poll());
+    }
+
+    @Test
+    public void testListingNotUsedSinceLastEvictionIsEvicted() throws Exception {
+        write("a.log", "first line\n");
+
+        DirectoryListing listing = classUnderTest.getListing(directory);
+        classUnderTest.evictUnused();
+
+        assertSame(listing, classUnderTest.getListing(directory));
+        classUnderTest.evictUnused();
+        classUnderTest.evictUnused();
+
+        assertNotSame(listing, classUnderTest.getListing(directory));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void testMissingDirectory() throws Exception {
+        classUnderTest.getListing(new File(directory, "missing"));
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        classUnderTest.close();
+        FileUtils.deleteDirectory(directory);
+    }
+
+    private void write(String name, String content) throws Exception {
+        directory.mkdirs();
+        FileWriter fileWriter = new FileWriter(new File(directory, name));
+
+        try {
+            fileWriter.write(content);
+        } finally {
+            fileWriter.close();
+        }
+    }
+
+}
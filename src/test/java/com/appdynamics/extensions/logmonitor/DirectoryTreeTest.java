@@ -0,0 +1,109 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+
+public class DirectoryTreeTest {
+
+    private File baseDirectory = new File("./target/directory-tree-test");
+
+    private DirectoryListingCache directoryListingCache = new DirectoryListingCache();
+
+    @Test
+    public void testWildcardDirectories() throws Exception {
+        write("apps/a/instance-1/app.log");
+        write("apps/b/instance-2/app.log");
+        write("apps/c/other/app.log");
+
+        Log log = log(baseDirectory.getPath() + "/apps/*/instance-*", "app.log");
+        List<File> files = LogFileLocator.findMonitoredFiles(log, directoryListingCache);
+
+        assertTrue(DirectoryGlob.isGlob(log));
+        assertEquals(2, files.size());
+        assertTrue(files.contains(new File(baseDirectory, "apps/a/instance-1/app.log")));
+        assertTrue(files.contains(new File(baseDirectory, "apps/b/instance-2/app.log")));
+    }
+
+    @Test
+    public void testRecursiveWildcardInLogName() throws Exception {
+        write("app.log");
+        write("apps/a/app.log");
+        write("apps/b/instance-2/app.log");
+        write("apps/b/instance-2/other.log");
+
+        Log log = log(baseDirectory.getPath(), "**/app.log");
+        List<File> files = LogFileLocator.findMonitoredFiles(log, directoryListingCache);
+
+        assertEquals(3, files.size());
+        assertTrue(files.contains(new File(baseDirectory, "app.log")));
+    }
+
+    @Test
+    public void testMaxDirectoryDepth() throws Exception {
+        write("apps/a/app.log");
+        write("apps/a/b/c/app.log");
+
+        Log log = log(baseDirectory.getPath() + "/apps/**", "app.log");
+        log.setMaxDirectoryDepth(2);
+
+        List<File> files = LogFileLocator.findMonitoredFiles(log, directoryListingCache);
+
+        assertEquals(1, files.size());
+        assertTrue(files.contains(new File(baseDirectory, "apps/a/app.log")));
+    }
+
+    @Test
+    public void testNewDirectoryIsPickedUp() throws Exception {
+        write("apps/a/instance-1/app.log");
+
+        Log log = log(baseDirectory.getPath() + "/apps/*/instance-*", "app.log");
+        assertEquals(1, LogFileLocator.findMonitoredFiles(log, directoryListingCache).size());
+
+        write("apps/b/instance-1/app.log");
+        write("apps/a/instance-2/app.log");
+
+        assertEquals(3, LogFileLocator.findMonitoredFiles(log, directoryListingCache).size());
+    }
+
+    @Test
+    public void testFileIsNotDirectoryGlob() throws Exception {
+        assertFalse(DirectoryGlob.isGlob(log(baseDirectory.getPath(), "app-*.log")));
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        directoryListingCache.close();
+        FileUtils.deleteDirectory(baseDirectory);
+    }
+
+    private Log log(String logDirectory, String logName) {
+        Log log = new Log();
+        log.setLogDirectory(logDirectory);
+        log.setLogName(logName);
+        return log;
+    }
+
+    private void write(String path) throws Exception {
+        File file = new File(baseDirectory, path);
+        file.getParentFile().mkdirs();
+        FileWriter fileWriter = new FileWriter(file);
+
+        try {
+            fileWriter.write("first line\n");
+        } finally {
+            fileWriter.close();
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+public class LineSearcherCacheTest {
+
+    private LineSearcherCache classUnderTest = new LineSearcherCache();
+
+    @Test
+    public void testSameSearchStringsShareSearcher() {
+        LineSearcher lineSearcher = classUnderTest.get(createLog("error"), "TestLog|");
+
+        // the config is read again every run
+        assertSame(lineSearcher, classUnderTest.get(createLog("error"), "TestLog|"));
+    }
+
+    @Test
+    public void testChangedSearchStringsAreCompiledAgain() {
+        LineSearcher lineSearcher = classUnderTest.get(createLog("error"), "TestLog|");
+
+        assertNotSame(lineSearcher, classUnderTest.get(createLog("warn"), "TestLog|"));
+        assertNotSame(lineSearcher, classUnderTest.get(createLog("error"), "OtherLog|"));
+
+        Log log = createLog("error");
+        log.setPrefilterMetrics(true);
+        assertNotSame(lineSearcher, classUnderTest.get(log, "TestLog|"));
+    }
+
+    @Test
+    public void testSearchersOfOtherLogsAreDropped() {
+        LineSearcher errors = classUnderTest.get(createLog("error"), "TestLog|");
+        LineSearcher warnings = classUnderTest.get(createLog("warn"), "TestLog|");
+
+        // the config changed from error to warn
+        classUnderTest.retainAll(Lists.newArrayList(createLog("warn")));
+
+        assertSame(warnings, classUnderTest.get(createLog("warn"), "TestLog|"));
+        assertNotSame(errors, classUnderTest.get(createLog("error"), "TestLog|"));
+    }
+
+    private Log createLog(String pattern) {
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(false);
+        searchString.setMatchExactString(false);
+        searchString.setPattern(pattern + "\\w*");
+        searchString.setDisplayName("Errors");
+
+        Log log = new Log();
+        log.setDisplayName("TestLog");
+        log.setSearchStrings(Lists.newArrayList(searchString));
+        return log;
+    }
+
+}
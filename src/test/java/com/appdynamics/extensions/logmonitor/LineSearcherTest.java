@@ -0,0 +1,179 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.createPattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.reader.FileChannelLogReader;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+
+public class LineSearcherTest {
+
+    @Test
+    public void testOversizedLineIsMatchedInSegments() throws Exception {
+        // 100,000 matches in a single line of ~1 MB, many of them spanning segment boundaries
+        StringBuilder line = new StringBuilder();
+
+        for (int i = 0; i < 100000; i++) {
+            line.append(i % 2 == 0 ? "ERROR " : "ab ERROR");
+        }
+
+        File file = File.createTempFile("line-searcher-test", ".log");
+        file.deleteOnExit();
+
+        FileOutputStream outputStream = new FileOutputStream(file);
+
+        try {
+            outputStream.write(("first ERROR\n" + line + "\nlast ERROR\n").getBytes("UTF-8"));
+        } finally {
+            outputStream.close();
+        }
+
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(true);
+        searchString.setMatchExactString(false);
+        searchString.setPattern("ERROR");
+        searchString.setDisplayName("Error");
+
+        LineSearcher classUnderTest = new LineSearcher(
+                createPattern(Lists.newArrayList(searchString)), "TestLog|");
+        LogMetrics logMetrics = new LogMetrics();
+
+        FileChannelLogReader logReader = new FileChannelLogReader(file, 4096, Charset.forName("UTF-8"));
+        logReader.setMaxLineLength(32 * 1024);
+
+        try {
+            CharSequence currentLine = null;
+
+            while ((currentLine = logReader.readLineView()) != null) {
+                classUnderTest.incrementWordCountIfSearchStringMatched(currentLine, logMetrics);
+            }
+
+            assertEquals(file.length(), logReader.getFilePointer());
+
+        } finally {
+            logReader.close();
+        }
+
+        assertEquals(100002, logMetrics.getMetrics().get("TestLog|Search String|Error|ERROR").intValue());
+        assertEquals(1, logMetrics.getMetrics().get("TestLog|Oversized Lines").intValue());
+    }
+
+    @Test
+    public void testNoOversizedLinesMetricForRegularLines() throws Exception {
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(false);
+        searchString.setMatchExactString(true);
+        searchString.setPattern("error");
+        searchString.setDisplayName("Error");
+
+        LineSearcher classUnderTest = new LineSearcher(
+                createPattern(Lists.newArrayList(searchString)), "TestLog|");
+        LogMetrics logMetrics = new LogMetrics();
+
+        classUnderTest.incrementWordCountIfSearchStringMatched("an error and an Error", logMetrics);
+
+        assertEquals(2, logMetrics.getMetrics().get("TestLog|Search String|Error|Error").intValue());
+        assertNull(logMetrics.getMetrics().get("TestLog|Oversized Lines"));
+    }
+
+    @Test
+    public void testPrefilterCountsCandidateLines() throws Exception {
+        File file = File.createTempFile("line-searcher-test", ".log");
+        file.deleteOnExit();
+
+        FileOutputStream outputStream = new FileOutputStream(file);
+
+        try {
+            outputStream.write(("Timeout after 30 ms\nsystem1 up\nall good\n(a)a done\nTimeout pending\n")
+                    .getBytes("UTF-8"));
+        } finally {
+            outputStream.close();
+        }
+
+        LineSearcher classUnderTest = new LineSearcher(createPattern(Lists.newArrayList(
+                searchString("Timeout.*ms", "Timeout"), searchString("system\\w+", "System"),
+                searchString("\\((a)\\)\\1 done", "Repeat"))), "TestLog|");
+        classUnderTest.setReportPrefilterCounts(true);
+
+        FileChannelLogReader logReader = new FileChannelLogReader(file, 4096, Charset.forName("UTF-8"));
+        Map<String, BigInteger> metrics;
+
+        try {
+            metrics = classUnderTest.scan(logReader, Long.MAX_VALUE).getLogMetrics().getMetrics();
+        } finally {
+            logReader.close();
+        }
+
+        assertEquals(1, metrics.get("TestLog|Search String|Timeout|Timeout after 30 ms").intValue());
+        assertEquals(1, metrics.get("TestLog|Search String|System|system1").intValue());
+        assertEquals(1, metrics.get("TestLog|Search String|Repeat|(a)a done").intValue());
+
+        assertEquals(5, metrics.get("TestLog|Prefilter|Timeout|Lines Checked").intValue());
+        assertEquals(2, metrics.get("TestLog|Prefilter|Timeout|Candidate Lines").intValue());
+        assertEquals(5, metrics.get("TestLog|Prefilter|System|Lines Checked").intValue());
+        assertEquals(1, metrics.get("TestLog|Prefilter|System|Candidate Lines").intValue());
+        assertEquals(5, metrics.get("TestLog|Prefilter|Repeat|Lines Checked").intValue());
+        assertEquals(1, metrics.get("TestLog|Prefilter|Repeat|Candidate Lines").intValue());
+    }
+
+    @Test
+    public void testCaseInsensitivePatternsArePrefiltered() throws Exception {
+        List<SearchPattern> searchPatterns = createPattern(Lists.newArrayList(
+                searchString("timeout.*ms", "Timeout", false), searchString("system\\w+", "System", false)));
+
+        assertEquals("timeout", searchPatterns.get(0).getRequiredLiteral().getLiteral());
+        assertFalse(searchPatterns.get(0).getRequiredLiteral().isCaseSensitive());
+
+        File file = File.createTempFile("line-searcher-test", ".log");
+        file.deleteOnExit();
+
+        FileOutputStream outputStream = new FileOutputStream(file);
+
+        try {
+            outputStream.write("TIMEOUT after 30 ms\nSYSTEM1 up\nall good\nTimeout pending\n".getBytes("UTF-8"));
+        } finally {
+            outputStream.close();
+        }
+
+        LineSearcher classUnderTest = new LineSearcher(searchPatterns, "TestLog|");
+        classUnderTest.setReportPrefilterCounts(true);
+
+        FileChannelLogReader logReader = new FileChannelLogReader(file, 4096, Charset.forName("UTF-8"));
+        Map<String, BigInteger> metrics;
+
+        try {
+            metrics = classUnderTest.scan(logReader, Long.MAX_VALUE).getLogMetrics().getMetrics();
+        } finally {
+            logReader.close();
+        }
+
+        assertEquals(1, metrics.get("TestLog|Search String|Timeout|Timeout After 30 Ms").intValue());
+        assertEquals(1, metrics.get("TestLog|Search String|System|System1").intValue());
+        assertEquals(2, metrics.get("TestLog|Prefilter|Timeout|Candidate Lines").intValue());
+        assertEquals(1, metrics.get("TestLog|Prefilter|System|Candidate Lines").intValue());
+    }
+
+    private SearchString searchString(String pattern, String displayName) {
+        return searchString(pattern, displayName, true);
+    }
+
+    private SearchString searchString(String pattern, String displayName, boolean caseSensitive) {
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(caseSensitive);
+        searchString.setMatchExactString(false);
+        searchString.setPattern(pattern);
+        searchString.setDisplayName(displayName);
+        return searchString;
+    }
+}
@@ -0,0 +1,114 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.createPattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import org.apache.commons.lang.WordUtils;
+import org.junit.Test;
+
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.google.common.collect.Lists;
+
+public class LiteralSearcherTest {
+
+    private static final String PREFIX = "TestLog|Search String|";
+
+    @Test
+    public void testOverlappingLiterals() {
+        List<SearchPattern> searchPatterns = createPattern(Lists.newArrayList(
+                searchString("he", true, false), searchString("she", true, false),
+                searchString("hers", true, false), searchString("aa", true, false)));
+
+        LogMetrics logMetrics = new LogMetrics();
+        new LiteralSearcher(searchPatterns, PREFIX).search("ushers aaaaa", logMetrics);
+
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "he|he").intValue());
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "she|she").intValue());
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "hers|hers").intValue());
+        // occurrences of the same pattern do not overlap
+        assertEquals(2, logMetrics.getMetrics().get(PREFIX + "aa|aa").intValue());
+    }
+
+    @Test
+    public void testCaseAndExactString() {
+        List<SearchPattern> searchPatterns = createPattern(Lists.newArrayList(
+                searchString("Error", true, false), searchString("warn", false, true),
+                searchString("info", false, false)));
+
+        LogMetrics logMetrics = new LogMetrics();
+        new LiteralSearcher(searchPatterns, PREFIX).search("error Error ERROR WARNING WARN INFO\tinfo x", logMetrics);
+
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "Error|Error").intValue());
+        assertEquals(1, logMetrics.getMetrics().get(PREFIX + "warn|Warn").intValue());
+        assertEquals(2, logMetrics.getMetrics().get(PREFIX + "info|Info").intValue());
+        assertNull(logMetrics.getMetrics().get(PREFIX + "warn|Warning"));
+    }
+
+    @Test
+    public void testSameCountsAsRegex() {
+        Random random = new Random(42);
+        String alphabet = "abAB \t-\u00e9\u00c9";
+
+        for (int i = 0; i < 200; i++) {
+            List<SearchString> searchStrings = new ArrayList<SearchString>();
+
+            for (int j = 0; j < 5; j++) {
+                searchStrings.add(searchString(randomString(random, "abAB-\u00e9", 1 + random.nextInt(3)),
+                        random.nextBoolean(), random.nextBoolean()));
+            }
+
+            List<SearchPattern> searchPatterns = createPattern(searchStrings);
+            LiteralSearcher classUnderTest = new LiteralSearcher(searchPatterns, PREFIX);
+
+            for (int j = 0; j < 20; j++) {
+                String line = randomString(random, alphabet, random.nextInt(30));
+
+                LogMetrics expected = new LogMetrics();
+                searchWithRegex(searchPatterns, line, expected);
+
+                LogMetrics actual = new LogMetrics();
+                classUnderTest.search(line, actual);
+
+                assertEquals(expected.getMetrics(), actual.getMetrics());
+            }
+        }
+    }
+
+    private void searchWithRegex(List<SearchPattern> searchPatterns, String line, LogMetrics logMetrics) {
+        for (SearchPattern searchPattern : searchPatterns) {
+            Matcher matcher = searchPattern.getMatcher(line);
+
+            while (matcher.find()) {
+                String word = matcher.group().trim();
+                logMetrics.add(PREFIX + searchPattern.getDisplayName() + "|" +
+                        (searchPattern.getCaseSensitive() ? word : WordUtils.capitalizeFully(word)));
+            }
+        }
+    }
+
+    private String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+
+        return builder.toString();
+    }
+
+    private SearchString searchString(String pattern, boolean caseSensitive, boolean matchExactString) {
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(caseSensitive);
+        searchString.setMatchExactString(matchExactString);
+        searchString.setPattern(pattern);
+        searchString.setDisplayName(pattern);
+        return searchString;
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.Constants.CHUNK_FINISH_GRACE_IN_SECONDS;
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.createPattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.reader.FileChannelLogReader;
+import com.appdynamics.extensions.logmonitor.reader.LogReader;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+public class LogChunkScanTaskTest {
+
+    @Test
+    public void testChunkedScanMatchesSequentialScan() throws Exception {
+        Log log = createLog();
+        File file = new File(log.getLogDirectory() + log.getLogName());
+        LineSearcher lineSearcher = new LineSearcher(createPattern(log.getSearchStrings()),
+                "TestLog|");
+
+        LogMetrics expected = new LogMetrics();
+        LogReader logReader = new FileChannelLogReader(file, 1024, Charset.forName("UTF-8"));
+
+        try {
+            CharSequence line = null;
+
+            while ((line = logReader.readLineView()) != null) {
+                lineSearcher.incrementWordCountIfSearchStringMatched(line, expected);
+            }
+
+        } finally {
+            logReader.close();
+        }
+
+        ScanResult result = LogChunkScanTask.scan(file, log, lineSearcher, 0, file.length(), 100,
+                Long.MAX_VALUE);
+
+        assertTrue(result.isComplete());
+        assertEquals(file.length(), result.getPosition());
+        assertEquals(13, result.getLogMetrics().getMetrics().get("TestLog|Search String|Debug|Debug").intValue());
+        assertEquals(expected.getMetrics(), result.getLogMetrics().getMetrics());
+    }
+
+    @Test
+    public void testChunksFinishedAfterAnIncompleteOneAreKept() throws Exception {
+        Log log = createLog();
+        File file = new File(log.getLogDirectory() + log.getLogName());
+        LineSearcher lineSearcher = new LineSearcher(createPattern(log.getSearchStrings()),
+                "TestLog|");
+
+        ScanResult expected = LogChunkScanTask.scan(file, log, lineSearcher, 0, file.length(), 100,
+                Long.MAX_VALUE);
+
+        final long taskDeadline = System.currentTimeMillis() + 60000;
+        final List<Long> finishDeadlines = new CopyOnWriteArrayList<Long>();
+
+        // the first chunk runs out of time straight away, while the ones after it finish
+        LogChunkScanTask classUnderTest = new LogChunkScanTask(file, log, lineSearcher, 0, file.length(), 100,
+                taskDeadline) {
+            @Override
+            protected ScanResult scanChunk(long from, long to, long deadline) throws IOException {
+                if (deadline != taskDeadline) {
+                    finishDeadlines.add(deadline);
+                }
+
+                return super.scanChunk(from, to, from == 0 && deadline == taskDeadline ? 0 : deadline);
+            }
+        };
+
+        ScanResult result = new ForkJoinPool(4).invoke(classUnderTest);
+
+        // the first chunk is finished, but only up to the grace period past the deadline
+        assertEquals(Lists.newArrayList(taskDeadline + CHUNK_FINISH_GRACE_IN_SECONDS * 1000L), finishDeadlines);
+        assertTrue(result.isComplete());
+        assertEquals(file.length(), result.getPosition());
+        assertEquals(expected.getLogMetrics().getMetrics(), result.getLogMetrics().getMetrics());
+    }
+
+    @Test
+    public void testScanStopsAtStartWhenDeadlineHasPassed() throws Exception {
+        Log log = createLog();
+        File file = new File(log.getLogDirectory() + log.getLogName());
+        LineSearcher lineSearcher = new LineSearcher(createPattern(log.getSearchStrings()),
+                "TestLog|");
+
+        ScanResult result = LogChunkScanTask.scan(file, log, lineSearcher, 0, file.length(), 100,
+                System.currentTimeMillis() - 1);
+
+        assertFalse(result.isComplete());
+        assertEquals(0, result.getPosition());
+        assertTrue(result.getLogMetrics().getMetrics().isEmpty());
+    }
+
+    private Log createLog() {
+        Log log = new Log();
+        log.setDisplayName("TestLog");
+        log.setLogDirectory("src/test/resources/");
+        log.setLogName("test-log-1.log");
+
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(false);
+        searchString.setMatchExactString(true);
+        searchString.setPattern("debug");
+        searchString.setDisplayName("Debug");
+
+        SearchString searchString1 = new SearchString();
+        searchString1.setCaseSensitive(false);
+        searchString1.setMatchExactString(false);
+        searchString1.setPattern("(\\s|^)m\\w+(\\s|$)");
+        searchString1.setDisplayName("Words with m");
+
+        log.setSearchStrings(Lists.newArrayList(searchString, searchString1));
+
+        return log;
+    }
+}
@@ -2,17 +2,23 @@ package com.appdynamics.extensions.logmonitor;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.appdynamics.extensions.logmonitor.config.Log;
 import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.processors.FileFingerprint;
 import com.appdynamics.extensions.logmonitor.processors.FilePointer;
 import com.appdynamics.extensions.logmonitor.processors.FilePointerProcessor;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang.StringUtils;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
@@ -25,6 +31,7 @@ import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RunWith(MockitoJUnitRunner.class)
 public class LogMonitorTaskTest {
@@ -335,6 +342,329 @@ public class LogMonitorTaskTest {
         assertTrue("Rotated log should've been smaller", fileSizeAfterRotation < fileSizeBeforeRotation);
     }
 
+    @Test
+    public void testRotatedLogIsFinishedFromCompressedArchive() throws Exception {
+        String testFilename = "compressed-test-log.log";
+        String testFilepath = String.format("%s%s%s", getTargetDir().getPath(), File.separator, testFilename);
+
+        String firstLine = new Date() + "	TRACE	This is the first line";
+        String secondLine = new Date() + "	TRACE	This is the second line";
+        updateLogFile(testFilepath, Arrays.asList(firstLine, secondLine,
+                new Date() + "	INFO	This is the third line",
+                new Date() + "	TRACE	This is the fourth line"), false);
+
+        // rotated and compressed after the first two lines were read
+        File archive = new File(testFilepath + ".1.gz");
+        GZIPOutputStream outputStream = new GZIPOutputStream(new FileOutputStream(archive));
+
+        try {
+            outputStream.write(readFile(testFilepath));
+        } finally {
+            outputStream.close();
+        }
+
+        updateLogFile(testFilepath, Arrays.asList(
+                new Date() + "	TRACE	This is the first line after rotation"), false);
+
+        Log log = new Log();
+        log.setDisplayName("TestLog");
+        log.setLogDirectory(getTargetDir().getPath());
+        log.setLogName(testFilename);
+
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(false);
+        searchString.setMatchExactString(true);
+        searchString.setPattern("trace");
+        searchString.setDisplayName("Trace");
+
+        log.setSearchStrings(Lists.newArrayList(searchString));
+
+        FilePointer filePointer = new FilePointer();
+        filePointer.setFilename(log.getLogDirectory() + File.separator + log.getLogName());
+        filePointer.updateLastReadPosition(firstLine.length() + secondLine.length() +
+                2 * System.getProperty("line.separator").length());
+        when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
+
+        classUnderTest = new LogMonitorTask(mockFilePointerProcessor, log);
+
+        try {
+            LogMetrics result = classUnderTest.call();
+            assertEquals(2, result.getMetrics().get("TestLog|Search String|Trace|Trace").intValue());
+
+        } finally {
+            archive.delete();
+        }
+    }
+
+    @Test
+    public void testTruncatedLogWrittenPastPositionIsReadFromStart() throws Exception {
+        String testFilename = "truncated-test-log.log";
+        String testFilepath = String.format("%s%s%s", getTargetDir().getPath(), File.separator, testFilename);
+
+        updateLogFile(testFilepath, Arrays.asList(
+                new Date() + "	TRACE	This is the first line",
+                new Date() + "	INFO	This is the second line"), false);
+
+        long fileSizeBeforeTruncation = getFileSize(getTargetDir().getPath(), testFilename);
+
+        FilePointer filePointer = new FilePointer();
+        filePointer.setFilename(getTargetDir().getPath() + File.separator + testFilename);
+        filePointer.updateLastReadPosition(fileSizeBeforeTruncation);
+        filePointer.setFingerprint(FileFingerprint.create(new File(testFilepath), fileSizeBeforeTruncation));
+        when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
+
+        // copytruncate, then more written than before
+        updateLogFile(testFilepath, Arrays.asList(
+                new Date() + "	DEBUG	This is the first line after truncation",
+                new Date() + "	TRACE	This is the second line after truncation",
+                new Date() + "	TRACE	This is the third line after truncation"), false);
+
+        assertTrue(getFileSize(getTargetDir().getPath(), testFilename) > fileSizeBeforeTruncation);
+
+        classUnderTest = new LogMonitorTask(mockFilePointerProcessor, log(testFilename));
+
+        LogMetrics result = classUnderTest.call();
+        assertEquals(2, result.getMetrics().get("TestLog|Search String|Trace|Trace").intValue());
+    }
+
+    @Test
+    public void testRenamedLogIsResumed() throws Exception {
+        String testFilename = "renamed-test-log.log";
+        String testFilepath = String.format("%s%s%s", getTargetDir().getPath(), File.separator, testFilename);
+        String oldFilepath = testFilepath + ".old";
+
+        updateLogFile(oldFilepath, Arrays.asList(
+                new Date() + "	TRACE	This is the first line",
+                new Date() + "	INFO	This is the second line"), false);
+
+        long position = new File(oldFilepath).length();
+
+        FilePointer filePointer = new FilePointer();
+        filePointer.setFilename(oldFilepath);
+        filePointer.updateLastReadPosition(position);
+        filePointer.setFingerprint(FileFingerprint.create(new File(oldFilepath), position));
+        when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
+
+        new File(testFilepath).delete();
+        assertTrue(new File(oldFilepath).renameTo(new File(testFilepath)));
+        updateLogFile(testFilepath, Arrays.asList("",
+                new Date() + "	TRACE	This is the third line"), true);
+
+        classUnderTest = new LogMonitorTask(mockFilePointerProcessor, log(testFilename));
+
+        LogMetrics result = classUnderTest.call();
+        assertEquals(1, result.getMetrics().get("TestLog|Search String|Trace|Trace").intValue());
+    }
+
+    @Test
+    public void testRotatedLogIsFinishedBeforeNewLog() throws Exception {
+        String testFilename = "rotated-test-log.log";
+        String testFilepath = String.format("%s%s%s", getTargetDir().getPath(), File.separator, testFilename);
+
+        updateLogFile(testFilepath, Arrays.asList(
+                new Date() + "	TRACE	This is the first line",
+                new Date() + "	INFO	This is the second line"), false);
+
+        long position = new File(testFilepath).length();
+
+        FilePointer filePointer = new FilePointer();
+        filePointer.setFilename(testFilepath);
+        filePointer.updateLastReadPosition(position);
+        filePointer.setFingerprint(FileFingerprint.create(new File(testFilepath), position));
+        when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
+
+        updateLogFile(testFilepath, Arrays.asList("",
+                new Date() + "	TRACE	This is the third line"), true);
+
+        // an older rotation of a different log is not picked up
+        updateLogFile(testFilepath + ".2", Arrays.asList(
+                new Date() + "	TRACE	This is an older line",
+                new Date() + "	TRACE	This is an older line",
+                new Date() + "	TRACE	This is an older line"), false);
+
+        new File(testFilepath + ".1").delete();
+        assertTrue(new File(testFilepath).renameTo(new File(testFilepath + ".1")));
+        updateLogFile(testFilepath, Arrays.asList(
+                new Date() + "	TRACE	This is the first line after rotation"), false);
+
+        classUnderTest = new LogMonitorTask(mockFilePointerProcessor, log(testFilename));
+
+        LogMetrics result = classUnderTest.call();
+        assertEquals(2, result.getMetrics().get("TestLog|Search String|Trace|Trace").intValue());
+        verify(mockFilePointerProcessor).updateFilePointer(anyString(), eq(testFilepath),
+                eq(new File(testFilepath).length()), eq(0L), eq(0L), any(FileFingerprint.class));
+    }
+
+    @Test
+    public void testUnfinishedRotatedLogIsFoundByItsOwnFingerprint() throws Exception {
+        String testFilename = "unfinished-rotated-test-log.log";
+        String testFilepath = String.format("%s%s%s", getTargetDir().getPath(), File.separator, testFilename);
+        FilePointerProcessor filePointerProcessor = new FilePointerProcessor();
+
+        updateLogFile(testFilepath, Arrays.asList(
+                new Date() + "	TRACE	This is the first line",
+                new Date() + "	INFO	This is the second line"), false);
+
+        LogMetrics result = new LogMonitorTask(filePointerProcessor, log(testFilename)).call();
+        assertEquals(1, result.getMetrics().get("TestLog|Search String|Trace|Trace").intValue());
+
+        updateLogFile(testFilepath, Arrays.asList("",
+                new Date() + "	TRACE	This is the third line"), true);
+
+        // copytruncate
+        copyFile(testFilepath, testFilepath + ".1");
+        updateLogFile(testFilepath, Arrays.asList(
+                new Date() + "	TRACE	This is the first line after rotation"), false);
+
+        // out of time before anything of the rotated log is read
+        classUnderTest = new LogMonitorTask(filePointerProcessor, log(testFilename));
+        classUnderTest.setDeadline(1);
+        classUnderTest.call();
+
+        String dynamicLogPath = LogFileLocator.resolveDirPath(log(testFilename)) + testFilename;
+        FileFingerprint fingerprint = filePointerProcessor.getFilePointer(dynamicLogPath, testFilepath).getFingerprint();
+        assertEquals(FileFingerprint.readFileKey(new File(testFilepath + ".1")), fingerprint.getFileKey());
+
+        result = new LogMonitorTask(filePointerProcessor, log(testFilename)).call();
+        assertEquals(2, result.getMetrics().get("TestLog|Search String|Trace|Trace").intValue());
+    }
+
+    @Test
+    public void testAllMatchingFilesAreMonitored() throws Exception {
+        File testDir = new File(getTargetDir(), "all-matching-files");
+        testDir.mkdirs();
+
+        updateLogFile(new File(testDir, "worker-1.log").getPath(), Arrays.asList(
+                new Date() + "	TRACE	This is the first line",
+                new Date() + "	TRACE	This is the second line"), false);
+        updateLogFile(new File(testDir, "worker-2.log").getPath(), Arrays.asList(
+                new Date() + "	INFO	This is the first line",
+                new Date() + "	TRACE	This is the second line"), false);
+
+        when(mockFilePointerProcessor.getFilePointer(anyString(), anyString()))
+                .thenReturn(new FilePointer(), new FilePointer());
+
+        Log log = log("worker-*.log");
+        log.setLogDirectory(testDir.getPath());
+        log.setMonitorAllMatchingFiles(true);
+        log.setPerFileMetrics(true);
+
+        classUnderTest = new LogMonitorTask(mockFilePointerProcessor, log);
+
+        LogMetrics result = classUnderTest.call();
+        assertEquals(3, result.getMetrics().get("TestLog|Search String|Trace|Trace").intValue());
+        assertEquals(2, result.getMetrics().get("TestLog|File|worker-1.log|Search String|Trace|Trace").intValue());
+        assertEquals(1, result.getMetrics().get("TestLog|File|worker-2.log|Search String|Trace|Trace").intValue());
+
+        long totalSize = new File(testDir, "worker-1.log").length() + new File(testDir, "worker-2.log").length();
+        assertEquals(totalSize, result.getMetrics().get("TestLog|File size (Bytes)").longValue());
+
+        verify(mockFilePointerProcessor).updateFilePointer(eq(new File(testDir, "worker-1.log").getPath()),
+                anyString(), anyLong(), anyLong(), anyLong(), any(FileFingerprint.class));
+        verify(mockFilePointerProcessor).updateFilePointer(eq(new File(testDir, "worker-2.log").getPath()),
+                anyString(), anyLong(), anyLong(), anyLong(), any(FileFingerprint.class));
+    }
+
+    @Test
+    public void testLogsOfSameFileAreSearchedInOneScan() throws Exception {
+        File testDir = new File(getTargetDir(), "shared-file");
+        testDir.mkdirs();
+        String testFilepath = new File(testDir, "shared.log").getPath();
+        FilePointerProcessor filePointerProcessor = new FilePointerProcessor();
+
+        updateLogFile(testFilepath, Arrays.asList("TRACE one", "INFO two", "TRACE three", ""), false);
+
+        LogMetrics result = new LogMonitorTask(filePointerProcessor, sharedFileLog(testDir.getPath(), "Trace")).call();
+        assertEquals(2, result.getMetrics().get("TraceLog|Search String|Trace|Trace").intValue());
+
+        // the trace log resumes from its own file pointer, the info log reads from the start
+        updateLogFile(testFilepath, Arrays.asList("INFO four", ""), true);
+        result = sharedFileTask(filePointerProcessor, testDir).call();
+
+        assertEquals(null, result.getMetrics().get("TraceLog|Search String|Trace|Trace"));
+        assertEquals(2, result.getMetrics().get("InfoLog|Search String|Info|Info").intValue());
+        assertEquals(new File(testFilepath).length(), result.getMetrics().get("InfoLog|File size (Bytes)").longValue());
+
+        updateLogFile(testFilepath, Arrays.asList("TRACE five", "INFO six", ""), true);
+        result = sharedFileTask(filePointerProcessor, testDir).call();
+
+        assertEquals(1, result.getMetrics().get("TraceLog|Search String|Trace|Trace").intValue());
+        assertEquals(1, result.getMetrics().get("InfoLog|Search String|Info|Info").intValue());
+    }
+
+    @Test
+    public void testLogsSharingFilePointerFinishRotatedLogTogether() throws Exception {
+        File testDir = new File(getTargetDir(), "shared-file-pointer");
+        testDir.mkdirs();
+        String testFilepath = new File(testDir, "shared.log").getPath();
+        FilePointerProcessor filePointerProcessor = new FilePointerProcessor();
+
+        updateLogFile(testFilepath, Arrays.asList("TRACE one", "INFO two", ""), false);
+
+        LogMonitorTask task = new LogMonitorTask(filePointerProcessor, sharedFileLog(testDir.getPath(), "Trace"));
+        // same directory and log name, so the same file pointer
+        task.addSharingTask(new LogMonitorTask(filePointerProcessor, sharedFileLog(testDir.getPath(), "Info")));
+
+        LogMetrics result = task.call();
+        assertEquals(1, result.getMetrics().get("TraceLog|Search String|Trace|Trace").intValue());
+        assertEquals(1, result.getMetrics().get("InfoLog|Search String|Info|Info").intValue());
+
+        updateLogFile(testFilepath, Arrays.asList("TRACE three", "INFO four", ""), true);
+
+        new File(testFilepath + ".1").delete();
+        assertTrue(new File(testFilepath).renameTo(new File(testFilepath + ".1")));
+        updateLogFile(testFilepath, Arrays.asList("TRACE five", "INFO six", ""), false);
+
+        task = new LogMonitorTask(filePointerProcessor, sharedFileLog(testDir.getPath(), "Trace"));
+        task.addSharingTask(new LogMonitorTask(filePointerProcessor, sharedFileLog(testDir.getPath(), "Info")));
+
+        result = task.call();
+        assertEquals(2, result.getMetrics().get("TraceLog|Search String|Trace|Trace").intValue());
+        assertEquals(2, result.getMetrics().get("InfoLog|Search String|Info|Info").intValue());
+        assertEquals(new File(testFilepath).length(), result.getMetrics().get("InfoLog|File size (Bytes)").longValue());
+    }
+
+    private LogMonitorTask sharedFileTask(FilePointerProcessor filePointerProcessor, File testDir) {
+        LogMonitorTask task = new LogMonitorTask(filePointerProcessor, sharedFileLog(testDir.getPath(), "Trace"));
+        // another path to the same file
+        task.addSharingTask(new LogMonitorTask(filePointerProcessor,
+                sharedFileLog(testDir.getPath() + "/../shared-file", "Info")));
+
+        return task;
+    }
+
+    private Log sharedFileLog(String logDirectory, String searchFor) {
+        Log log = new Log();
+        log.setDisplayName(searchFor + "Log");
+        log.setLogDirectory(logDirectory);
+        log.setLogName("shared.log");
+
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(false);
+        searchString.setMatchExactString(true);
+        searchString.setPattern(searchFor.toLowerCase());
+        searchString.setDisplayName(searchFor);
+
+        log.setSearchStrings(Lists.newArrayList(searchString));
+        return log;
+    }
+
+    private Log log(String testFilename) {
+        Log log = new Log();
+        log.setDisplayName("TestLog");
+        log.setLogDirectory(getTargetDir().getPath());
+        log.setLogName(testFilename);
+
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(false);
+        searchString.setMatchExactString(true);
+        searchString.setPattern("trace");
+        searchString.setDisplayName("Trace");
+
+        log.setSearchStrings(Lists.newArrayList(searchString));
+        return log;
+    }
+
     @Test
     public void testDynamicLogFileName() throws Exception {
         String dynamicLog1 = this.getClass().getClassLoader().getResource("dynamic-log-1.log").getPath();
@@ -397,6 +727,77 @@ public class LogMonitorTaskTest {
         assertEquals(filesize, result.getMetrics().get("active-dynamic-*|File size (Bytes)").intValue());
     }
 
+    @Test
+    public void testLargeBacklogIsSkippedToScanEndOfFileFirst() throws Exception {
+        Log log = createCatchUpLog();
+        long filesize = getFileSize(log.getLogDirectory(), log.getLogName());
+
+        FilePointer filePointer = new FilePointer();
+        filePointer.setFilename(log.getLogDirectory() + File.separator + log.getLogName());
+        when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
+
+        classUnderTest = new LogMonitorTask(mockFilePointerProcessor, log);
+        // no time left, so only the positions are worked out
+        classUnderTest.setDeadline(System.currentTimeMillis() - 1);
+
+        LogMetrics result = classUnderTest.call();
+        assertEquals(1, result.getMetrics().size());
+
+        ArgumentCaptor<Long> tailStart = ArgumentCaptor.forClass(Long.class);
+        verify(mockFilePointerProcessor).updateFilePointer(anyString(), anyString(),
+                tailStart.capture(), eq(0L), anyLong(), any(FileFingerprint.class));
+
+        assertTrue(tailStart.getValue() >= filesize - 1024 * 1024);
+        assertTrue(tailStart.getValue() < filesize);
+        verify(mockFilePointerProcessor).updateFilePointer(anyString(), anyString(),
+                eq(tailStart.getValue()), eq(0L), eq(tailStart.getValue()), any(FileFingerprint.class));
+    }
+
+    @Test
+    public void testBacklogIsScannedOnceEndOfFileIsRead() throws Exception {
+        Log log = createCatchUpLog();
+        long filesize = getFileSize(log.getLogDirectory(), log.getLogName());
+
+        FilePointer filePointer = new FilePointer();
+        filePointer.setFilename(log.getLogDirectory() + File.separator + log.getLogName());
+        filePointer.updateLastReadPosition(filesize);
+        filePointer.updateBacklogPositions(0, filesize);
+        when(mockFilePointerProcessor.getFilePointer(anyString(), anyString())).thenReturn(filePointer);
+
+        classUnderTest = new LogMonitorTask(mockFilePointerProcessor, log);
+
+        LogMetrics result = classUnderTest.call();
+        assertEquals(13 * 500, result.getMetrics().get("TestLog|Search String|Debug|Debug").intValue());
+
+        verify(mockFilePointerProcessor).updateFilePointer(anyString(), anyString(),
+                eq(filesize), eq(0L), eq(0L), any(FileFingerprint.class));
+    }
+
+    private Log createCatchUpLog() throws Exception {
+        String originalFilePath = this.getClass().getClassLoader().getResource("test-log-1.log").getPath();
+
+        String testFilename = "catch-up-test-log.log";
+        String testFilepath = String.format("%s%s%s", getTargetDir().getPath(), File.separator, testFilename);
+        copyFile(originalFilePath, testFilepath, 500);
+
+        Log log = new Log();
+        log.setDisplayName("TestLog");
+        log.setLogDirectory(getTargetDir().getPath());
+        log.setLogName(testFilename);
+        log.setCatchUpThresholdInMB(1);
+        log.setCatchUpTailInMB(1);
+
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(false);
+        searchString.setMatchExactString(true);
+        searchString.setPattern("debug");
+        searchString.setDisplayName("Debug");
+
+        log.setSearchStrings(Lists.newArrayList(searchString));
+
+        return log;
+    }
+
     private long getFileSize(String logDir, String logName) throws Exception {
         String fullPath = String.format("%s%s%s", logDir, File.separator, logName);
         RandomAccessFile file = new RandomAccessFile(fullPath, "r");
@@ -420,6 +821,38 @@ public class LogMonitorTaskTest {
         }
     }
 
+    private void copyFile(String sourceFilePath, String destFilePath, int times) throws Exception {
+        FileChannel sourceChannel = null;
+        FileChannel destChannel = null;
+
+        try {
+            sourceChannel = new FileInputStream(new File(sourceFilePath)).getChannel();
+            destChannel = new FileOutputStream(new File(destFilePath)).getChannel();
+
+            for (int i = 0; i < times; i++) {
+                destChannel.transferFrom(sourceChannel, destChannel.size(), sourceChannel.size());
+                sourceChannel.position(0);
+            }
+
+        } finally {
+            sourceChannel.close();
+            destChannel.close();
+        }
+    }
+
+    private byte[] readFile(String filepath) throws Exception {
+        RandomAccessFile file = new RandomAccessFile(filepath, "r");
+
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+            return bytes;
+
+        } finally {
+            file.close();
+        }
+    }
+
     private void updateLogFile(String filepath, List<String> stringList, boolean append) throws Exception {
         File file = new File(filepath);
         FileWriter fileWriter = null;
@@ -0,0 +1,66 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static com.appdynamics.extensions.logmonitor.Constants.TAIL_MAX_INTERVAL_IN_MILLIS;
+import static com.appdynamics.extensions.logmonitor.Constants.TAIL_MIN_INTERVAL_IN_MILLIS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LogScheduleTest {
+
+    private LogSchedule classUnderTest = new LogSchedule();
+
+    @Test
+    public void testIdleLogIsCheckedAtMaxInterval() {
+        classUnderTest.record(1000, 0);
+        classUnderTest.record(1000, 1000);
+
+        assertEquals(TAIL_MAX_INTERVAL_IN_MILLIS, classUnderTest.getInterval());
+        assertEquals(1000 + TAIL_MAX_INTERVAL_IN_MILLIS, classUnderTest.getNextPassAt());
+        assertFalse(classUnderTest.isDue(1000 + TAIL_MAX_INTERVAL_IN_MILLIS - 1));
+    }
+
+    @Test
+    public void testFastGrowingLogIsReadAtMinInterval() {
+        classUnderTest.record(0, 0);
+
+        for (int i = 1; i <= 10; i++) {
+            classUnderTest.record(i * 100L * 1024 * 1024, i * 1000L);
+        }
+
+        assertEquals(TAIL_MIN_INTERVAL_IN_MILLIS, classUnderTest.getInterval());
+        assertTrue(classUnderTest.isDue(10000 + TAIL_MIN_INTERVAL_IN_MILLIS));
+    }
+
+    @Test
+    public void testIntervalShrinksAsGrowthRateIncreases() {
+        classUnderTest.record(0, 0);
+        classUnderTest.record(100 * 1024, 1000);
+        long slowInterval = classUnderTest.getInterval();
+
+        classUnderTest.record(100 * 1024 + 1024 * 1024, 2000);
+
+        assertTrue(slowInterval > classUnderTest.getInterval());
+    }
+
+    @Test
+    public void testRotatedLogCountsAsGrowth() {
+        classUnderTest.record(10 * 1024 * 1024, 0);
+        classUnderTest.record(1024 * 1024, 1000);
+
+        assertTrue(classUnderTest.getBytesPerSecond() > 0);
+    }
+
+    @Test
+    public void testMultiFileLogWithFileRemovedDoesNotCountAsGrowth() {
+        classUnderTest.setMultiFile(true);
+        classUnderTest.record(10 * 1024 * 1024, 0);
+        classUnderTest.record(1024 * 1024, 1000);
+
+        assertEquals(0, classUnderTest.getBytesPerSecond(), 0);
+        assertEquals(TAIL_MAX_INTERVAL_IN_MILLIS, classUnderTest.getInterval());
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.math.BigInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.appdynamics.extensions.logmonitor.processors.FilePointerProcessor;
+import com.google.common.collect.Lists;
+
+public class LogTailerTest {
+
+    private static final String ERROR_METRIC = "TailLog|Search String|Error|Error";
+
+    private File directory = new File("./target/log-tailer-test");
+
+    private DirectoryListingCache directoryListingCache = new DirectoryListingCache();
+
+    private LogTailer classUnderTest;
+
+    @Test
+    public void testAppendedLinesAreCountedBetweenSnapshots() throws Exception {
+        write("error one\ninfo two\n", false);
+
+        classUnderTest = new LogTailer(Lists.newArrayList(log()), 1,
+                new FilePointerProcessor(), directoryListingCache);
+        classUnderTest.start();
+
+        assertEquals(BigInteger.ONE, waitForErrors(new LogMetrics(), 1));
+
+        write("error three\nerror four\n", true);
+
+        LogMetrics logMetrics = new LogMetrics();
+        assertEquals(BigInteger.valueOf(2), waitForErrors(logMetrics, 2));
+        assertEquals(BigInteger.valueOf(new File(directory, "app.log").length()),
+                logMetrics.getMetrics().get("TailLog|File size (Bytes)"));
+    }
+
+    @After
+    public void cleanUp() throws Exception {
+        if (classUnderTest != null) {
+            classUnderTest.stop();
+        }
+
+        directoryListingCache.close();
+        FileUtils.deleteDirectory(directory);
+    }
+
+    /**
+     * Takes snapshots until the expected no of errors was counted, or a timeout
+     */
+    private BigInteger waitForErrors(LogMetrics logMetrics, int expected) throws Exception {
+        for (int i = 0; i < 100; i++) {
+            logMetrics.accumulate(classUnderTest.snapshot());
+            BigInteger errors = logMetrics.getMetrics().get(ERROR_METRIC);
+
+            if (errors != null && errors.intValue() >= expected) {
+                return errors;
+            }
+
+            Thread.sleep(100);
+        }
+
+        return logMetrics.getMetrics().get(ERROR_METRIC);
+    }
+
+    private Log log() {
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(false);
+        searchString.setMatchExactString(false);
+        searchString.setPattern("error");
+        searchString.setDisplayName("Error");
+
+        Log log = new Log();
+        log.setDisplayName("TailLog");
+        log.setLogDirectory(directory.getPath());
+        log.setLogName("app.log");
+        log.setSearchStrings(Lists.newArrayList(searchString));
+        return log;
+    }
+
+    private void write(String content, boolean append) throws Exception {
+        directory.mkdirs();
+        FileWriter fileWriter = new FileWriter(new File(directory, "app.log"), append);
+
+        try {
+            fileWriter.write(content);
+        } finally {
+            fileWriter.close();
+        }
+    }
+
+}
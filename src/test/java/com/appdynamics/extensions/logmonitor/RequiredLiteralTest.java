@@ -0,0 +1,106 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class RequiredLiteralTest {
+
+    private static final String[] TOKENS = {"a", "B", "ab", "a+", "b?", "c*", "[ab]", "\\s", "(a|b)", "\\.",
+            ".", "a{2}", "b{0,2}", "\\Qa.b\\E", "\\d", "(?:ab)?", "\\x61", "(?=a)", "^", "$"};
+
+    @Test
+    public void testLongestRequiredRun() {
+        assertLiteral("system", true, "system\\w+");
+        assertLiteral("Timeout", true, "Timeout.*ms");
+        assertLiteral("error: ", false, "(?i)error: \\d+");
+        assertLiteral(" Connection refused", true, "(?-i)\\d+ Connection refused");
+        assertLiteral("a.b", true, "x?\\Qa.b\\E");
+        assertLiteral(" fail", true, "[A-Z]+ failX?");
+        assertLiteral("ab", true, "ab+c");
+        assertLiteral(" timed out", true, "(GET|POST) timed out");
+    }
+
+    @Test
+    public void testNoRequiredLiteral() {
+        assertNull(RequiredLiteral.find("error|warn"));
+        assertNull(RequiredLiteral.find("\\d+\\s*"));
+        assertNull(RequiredLiteral.find("a(?i)b"));
+        assertNull(RequiredLiteral.find("(?x)a b"));
+        assertNull(RequiredLiteral.find("x?"));
+    }
+
+    @Test
+    public void testEscapesAreNotLiterals() {
+        assertLiteral("zz", true, "\\x41zz");
+        assertLiteral("zz", true, "\\u0041zz");
+        assertLiteral("zz", true, "\\cAzz");
+        assertLiteral("zz", true, "\\p{Alpha}zz");
+        assertLiteral("zz", true, "\\pLzz");
+        assertLiteral("zz", true, "\\012zz");
+    }
+
+    @Test
+    public void testCaseInsensitiveIsAsciiOnly() {
+        RequiredLiteral requiredLiteral = new RequiredLiteral("Error \u00C9", false);
+
+        assertTrue(requiredLiteral.isContainedIn("an ERROR \u00C9 here"));
+        assertFalse(requiredLiteral.isContainedIn("an ERROR \u00E9 here"));
+        assertFalse(requiredLiteral.isContainedIn("Erro"));
+    }
+
+    @Test
+    public void testMatchingLinesContainTheLiteral() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 1000; i++) {
+            StringBuilder regex = new StringBuilder(random.nextBoolean() ? "(?i)" : "(?-i)");
+
+            for (int j = 0; j < 1 + random.nextInt(5); j++) {
+                regex.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+
+            RequiredLiteral requiredLiteral = RequiredLiteral.find(regex.toString());
+
+            if (requiredLiteral == null) {
+                continue;
+            }
+
+            Matcher matcher = Pattern.compile(regex.toString()).matcher("");
+
+            for (int j = 0; j < 50; j++) {
+                String line = randomString(random, "abAB c.1", random.nextInt(12));
+
+                if (matcher.reset(line).find()) {
+                    assertTrue(regex + " with [" + requiredLiteral.getLiteral() + "] in [" + line + "]",
+                            requiredLiteral.isContainedIn(line));
+                }
+            }
+        }
+    }
+
+    private void assertLiteral(String expected, boolean caseSensitive, String regex) {
+        RequiredLiteral requiredLiteral = RequiredLiteral.find(regex);
+
+        assertEquals(expected, requiredLiteral.getLiteral());
+        assertEquals(caseSensitive, requiredLiteral.isCaseSensitive());
+    }
+
+    private String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+
+        return builder.toString();
+    }
+
+}
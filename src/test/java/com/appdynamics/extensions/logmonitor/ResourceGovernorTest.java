@@ -0,0 +1,57 @@
+package com.appdynamics.extensions.logmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+
+public class ResourceGovernorTest {
+
+    private static final long MB = 1024 * 1024;
+
+    private ResourceGovernor classUnderTest = new ResourceGovernor();
+
+    @Test
+    public void testNotLimitedByDefault() {
+        assertFalse(classUnderTest.isLimited());
+        assertFalse(classUnderTest.newLogGovernor(new Log()).isLimited());
+        assertEquals(0, classUnderTest.throttle(100 * MB, 0, System.currentTimeMillis() + 1000));
+    }
+
+    @Test
+    public void testReadsWithinBurstAreNotThrottled() {
+        classUnderTest.setLimits(1, 0);
+
+        assertTrue(classUnderTest.isLimited());
+        assertEquals(0, classUnderTest.throttle(MB / 2, 0, System.currentTimeMillis() + 1000));
+    }
+
+    @Test
+    public void testOverdrawnReadsSleepUntilDeadline() {
+        classUnderTest.setLimits(1, 0);
+
+        // 2 MB over the burst would take 2 seconds to refill
+        long throttled = classUnderTest.throttle(3 * MB, 0, System.currentTimeMillis() + 300);
+
+        assertTrue(throttled >= 250);
+        assertTrue(throttled < 1000);
+    }
+
+    @Test
+    public void testLogGovernorIsBoundByGlobalLimits() {
+        Log log = new Log();
+        log.setMaxReadMBPerSecond(100);
+
+        ResourceGovernor logGovernor = classUnderTest.newLogGovernor(log);
+        assertTrue(logGovernor.isLimited());
+        assertEquals(0, logGovernor.throttle(2 * MB, 0, System.currentTimeMillis() + 1000));
+
+        // limits changed afterwards apply to the existing log governors
+        classUnderTest.setLimits(1, 0);
+        assertTrue(logGovernor.throttle(3 * MB, 0, System.currentTimeMillis() + 300) >= 250);
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.appdynamics.extensions.logmonitor.processors;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class FileFingerprintTest {
+	
+	private File file = new File("./target/fingerprint-test-log.log");
+	
+	@Test
+	public void testFileMatchesAfterAppend() throws Exception {
+		write("first line\nsecond line\n", false);
+		FileFingerprint classUnderTest = FileFingerprint.create(file, file.length());
+		long position = file.length();
+		
+		write("third line\n", true);
+		
+		assertTrue(classUnderTest.matches(file, file.length(), position));
+	}
+	
+	@Test
+	public void testFileDoesNotMatchAfterTruncateAndRewrite() throws Exception {
+		write("first line\nsecond line\n", false);
+		FileFingerprint classUnderTest = FileFingerprint.create(file, file.length());
+		long position = file.length();
+		
+		write("first line\nanother line\nand another one\n", false);
+		
+		assertTrue(file.length() > position);
+		assertFalse(classUnderTest.matches(file, file.length(), position));
+	}
+	
+	@Test
+	public void testFileDoesNotMatchWhenSmallerThanPosition() throws Exception {
+		write("first line\nsecond line\n", false);
+		FileFingerprint classUnderTest = FileFingerprint.create(file, file.length());
+		long position = file.length();
+		
+		write("first line\n", false);
+		
+		assertFalse(classUnderTest.matches(file, file.length(), position));
+	}
+	
+	@Test
+	public void testFileIsUnchangedWhenReadToEnd() throws Exception {
+		write("first line\nsecond line\n", false);
+		FileFingerprint classUnderTest = FileFingerprint.create(file, file.length());
+		
+		assertTrue(classUnderTest.isUnchanged(file));
+	}
+	
+	@Test
+	public void testFileIsChangedAfterAppend() throws Exception {
+		write("first line\nsecond line\n", false);
+		FileFingerprint classUnderTest = FileFingerprint.create(file, file.length());
+		
+		write("third line\n", true);
+		
+		assertFalse(classUnderTest.isUnchanged(file));
+	}
+	
+	@Test
+	public void testFileIsChangedWhenNotReadToEnd() throws Exception {
+		write("first line\nsecond line\n", false);
+		FileFingerprint classUnderTest = FileFingerprint.create(file, 11);
+		
+		assertFalse(classUnderTest.isUnchanged(file));
+	}
+	
+	@After
+	public void deleteFile() {
+		file.delete();
+	}
+	
+	private void write(String content, boolean append) throws Exception {
+		FileWriter fileWriter = new FileWriter(file, append);
+		
+		try {
+			fileWriter.write(content);
+		} finally {
+			fileWriter.close();
+		}
+	}
+}
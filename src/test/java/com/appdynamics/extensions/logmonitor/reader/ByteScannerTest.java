@@ -0,0 +1,63 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ByteScannerTest {
+
+    @Test
+    public void testLineTerminatorFoundInBothByteOrders() {
+        Random random = new Random(7);
+
+        for (int run = 0; run < 1000; run++) {
+            byte[] bytes = new byte[random.nextInt(40)];
+
+            for (int i = 0; i < bytes.length; i++) {
+                int type = random.nextInt(20);
+                bytes[i] = (byte) (type == 0 ? '\n' : type == 1 ? '\r' : random.nextInt(256));
+            }
+
+            int from = bytes.length > 0 ? random.nextInt(bytes.length) : 0;
+            int expected = naiveIndexOf(bytes, from, (byte) '\n', (byte) '\r');
+
+            assertEquals(expected, ByteScanner.indexOfLineTerminator(
+                    ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN), from, bytes.length));
+            assertEquals(expected, ByteScanner.indexOfLineTerminator(
+                    ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), from, bytes.length));
+        }
+    }
+
+    @Test
+    public void testNoFalsePositiveNextToMatchingByte() {
+        // 0x0B right after a '\n' must not be reported before it
+        byte[] bytes = new byte[] {'a', 'b', 0x0B, '\n', 'c', 'd', 'e', 'f', 'g'};
+
+        assertEquals(3, ByteScanner.indexOfLineTerminator(
+                ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN), 0, bytes.length));
+        assertEquals(3, ByteScanner.indexOfLineTerminator(
+                ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN), 0, bytes.length));
+    }
+
+    @Test
+    public void testEitherByteForCaseInsensitiveFirstChar() {
+        byte[] bytes = "INFO ok, Error later".getBytes();
+
+        assertEquals(9, ByteScanner.indexOfEither(ByteBuffer.wrap(bytes), 0, bytes.length,
+                ByteScanner.broadcast((byte) 'e'), ByteScanner.broadcast((byte) 'E')));
+    }
+
+    private int naiveIndexOf(byte[] bytes, int from, byte first, byte second) {
+        for (int i = from; i < bytes.length; i++) {
+            if (bytes[i] == first || bytes[i] == second) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+}
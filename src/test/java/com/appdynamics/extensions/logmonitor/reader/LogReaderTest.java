@@ -0,0 +1,293 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import static com.appdynamics.extensions.logmonitor.Constants.MEMORY_MAPPED_THRESHOLD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+
+public class LogReaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final File LOG_FILE = new File("src/test/resources/test-log-1.log");
+
+    @Test
+    public void testFileChannelReaderMatchesRandomAccessFileReader() throws Exception {
+        assertSameLinesAndPositions(new FileChannelLogReader(LOG_FILE, 64, UTF_8));
+    }
+
+    @Test
+    public void testFileChannelReaderWithHeapBufferMatchesRandomAccessFileReader() throws Exception {
+        // smaller than most lines, so the buffer is grown as well
+        assertSameLinesAndPositions(new FileChannelLogReader(LOG_FILE, 4, UTF_8, false));
+    }
+
+    @Test
+    public void testAlignToLineStart() throws Exception {
+        List<String> lines = new ArrayList<String>();
+        List<Long> lineEnds = new ArrayList<Long>();
+        LogReader reader = new RandomAccessFileLogReader(LOG_FILE, UTF_8);
+
+        try {
+            readAll(reader, lines, lineEnds);
+
+        } finally {
+            reader.close();
+        }
+
+        Log log = new Log();
+        long lineStart = 0;
+
+        for (long lineEnd : lineEnds) {
+            assertEquals(lineStart, LogReaderFactory.alignToLineStart(LOG_FILE, log, lineStart));
+            assertEquals(lineEnd, LogReaderFactory.alignToLineStart(LOG_FILE, log, lineStart + 1));
+            lineStart = lineEnd;
+        }
+    }
+
+    @Test
+    public void testMappedReaderMatchesRandomAccessFileReader() throws Exception {
+        assertSameLinesAndPositions(new MappedLogReader(LOG_FILE, 128, UTF_8));
+    }
+
+    @Test
+    public void testMappedReaderFallsBackWhenFileIsTruncated() throws Exception {
+        File file = File.createTempFile("log-reader-test", ".log");
+        file.deleteOnExit();
+
+        FileOutputStream outputStream = new FileOutputStream(file);
+
+        try {
+            for (int i = 0; i < 10000; i++) {
+                outputStream.write(("line " + i + "\n").getBytes(UTF_8));
+            }
+
+        } finally {
+            outputStream.close();
+        }
+
+        MappedLogReader reader = new MappedLogReader(file, file.length(), UTF_8);
+
+        try {
+            assertEquals("line 0", reader.readLine());
+
+            RandomAccessFile truncated = new RandomAccessFile(file, "rw");
+
+            try {
+                truncated.setLength(0);
+                truncated.write("new line\n".getBytes(UTF_8));
+
+            } finally {
+                truncated.close();
+            }
+
+            // the rest of the mapped page is read, the bytes past it are read from the file channel
+            while (reader.readLine() != null) {
+            }
+
+            assertEquals(file.length(), reader.getFilePointer());
+
+            reader.seek(0);
+            assertEquals("new line", reader.readLine());
+
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testGzipReaderMatchesRandomAccessFileReader() throws Exception {
+        File file = File.createTempFile("log-reader-test", ".log.gz");
+        file.deleteOnExit();
+
+        GZIPOutputStream outputStream = new GZIPOutputStream(new FileOutputStream(file));
+
+        try {
+            outputStream.write(readLogFile());
+        } finally {
+            outputStream.close();
+        }
+
+        assertSameLinesAndPositions(new CompressedLogReader(file, 64, UTF_8));
+    }
+
+    @Test
+    public void testZipReaderSkipsToGivenPosition() throws Exception {
+        File file = File.createTempFile("log-reader-test", ".zip");
+        file.deleteOnExit();
+
+        ZipOutputStream outputStream = new ZipOutputStream(new FileOutputStream(file));
+
+        try {
+            outputStream.putNextEntry(new ZipEntry(LOG_FILE.getName()));
+            outputStream.write(readLogFile());
+            outputStream.closeEntry();
+        } finally {
+            outputStream.close();
+        }
+
+        LogReader expectedReader = new RandomAccessFileLogReader(LOG_FILE, UTF_8);
+        LogReader reader = new CompressedLogReader(file, 64, UTF_8);
+
+        try {
+            expectedReader.readLine();
+            expectedReader.readLine();
+            long position = expectedReader.getFilePointer();
+
+            reader.seek(position);
+            assertEquals(expectedReader.readLine(), reader.readLine());
+            assertEquals(expectedReader.getFilePointer(), reader.getFilePointer());
+
+        } finally {
+            expectedReader.close();
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testSeekResumesFromGivenPosition() throws Exception {
+        LogReader reader = new FileChannelLogReader(LOG_FILE, 64, UTF_8);
+
+        try {
+            reader.readLine();
+            long position = reader.getFilePointer();
+            String secondLine = reader.readLine();
+
+            reader.seek(position);
+            assertEquals(secondLine, reader.readLine());
+
+            reader.seek(reader.length());
+            assertNull(reader.readLine());
+
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testLineViewIsReused() throws Exception {
+        LogReader reader = new FileChannelLogReader(LOG_FILE, 64, UTF_8);
+        LogReader expectedReader = new RandomAccessFileLogReader(LOG_FILE, UTF_8);
+
+        try {
+            CharSequence firstLine = reader.readLineView();
+            assertEquals(expectedReader.readLine(), firstLine.toString());
+
+            CharSequence secondLine = reader.readLineView();
+            assertSame(firstLine, secondLine);
+            assertEquals(expectedReader.readLine(), secondLine.toString());
+
+        } finally {
+            expectedReader.close();
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testAutoReaderTypeIsResolvedFromUnreadBytes() {
+        assertEquals(ReaderType.FILE_CHANNEL,
+                LogReaderFactory.resolveReaderType(ReaderType.AUTO, MEMORY_MAPPED_THRESHOLD - 1));
+        assertEquals(ReaderType.MEMORY_MAPPED,
+                LogReaderFactory.resolveReaderType(ReaderType.AUTO, MEMORY_MAPPED_THRESHOLD));
+        assertEquals(ReaderType.RANDOM_ACCESS_FILE,
+                LogReaderFactory.resolveReaderType(ReaderType.RANDOM_ACCESS_FILE, MEMORY_MAPPED_THRESHOLD));
+    }
+
+    @Test
+    public void testMultiByteCharsAcrossBufferRefills() throws Exception {
+        String firstLine = "caf\u00e9 \u65e5\u672c\u8a9e ERROR";
+        String secondLine = "plain ascii line";
+
+        File file = File.createTempFile("log-reader-test", ".log");
+        file.deleteOnExit();
+
+        FileOutputStream outputStream = new FileOutputStream(file);
+
+        try {
+            outputStream.write((firstLine + "\r\n" + secondLine + "\n").getBytes("UTF-8"));
+        } finally {
+            outputStream.close();
+        }
+
+        LogReader reader = new FileChannelLogReader(file, 4, UTF_8);
+
+        try {
+            assertEquals(firstLine, reader.readLine());
+            assertEquals(firstLine.getBytes("UTF-8").length + 2, reader.getFilePointer());
+            assertEquals(secondLine, reader.readLine());
+            assertNull(reader.readLine());
+
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonAsciiCompatibleEncodingIsRejected() {
+        LineDecoder.resolveCharset("UTF-16");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownReaderTypeIsRejected() {
+        ReaderType.fromConfigName("unknown");
+    }
+
+    private void assertSameLinesAndPositions(LogReader classUnderTest) throws Exception {
+        LogReader expectedReader = new RandomAccessFileLogReader(LOG_FILE, UTF_8);
+
+        try {
+            List<String> expectedLines = new ArrayList<String>();
+            List<Long> expectedPositions = new ArrayList<Long>();
+            readAll(expectedReader, expectedLines, expectedPositions);
+
+            List<String> lines = new ArrayList<String>();
+            List<Long> positions = new ArrayList<Long>();
+            readAll(classUnderTest, lines, positions);
+
+            assertEquals(expectedLines, lines);
+            assertEquals(expectedPositions, positions);
+            assertEquals(LOG_FILE.length(), classUnderTest.getFilePointer());
+
+        } finally {
+            expectedReader.close();
+            classUnderTest.close();
+        }
+    }
+
+    private byte[] readLogFile() throws Exception {
+        RandomAccessFile file = new RandomAccessFile(LOG_FILE, "r");
+
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+            return bytes;
+
+        } finally {
+            file.close();
+        }
+    }
+
+    private void readAll(LogReader reader, List<String> lines, List<Long> positions) throws Exception {
+        reader.seek(0);
+        String line = null;
+
+        while ((line = reader.readLine()) != null) {
+            lines.add(line);
+            positions.add(reader.getFilePointer());
+        }
+    }
+}
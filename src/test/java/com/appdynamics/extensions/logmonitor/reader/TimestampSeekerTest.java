@@ -0,0 +1,120 @@
+package com.appdynamics.extensions.logmonitor.reader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.text.SimpleDateFormat;
+
+import org.junit.Test;
+
+import com.appdynamics.extensions.logmonitor.config.Log;
+
+public class TimestampSeekerTest {
+
+    private static final File LOG_FILE = new File("src/test/resources/test-log-1.log");
+
+    private static final String TIMESTAMP_FORMAT = "dd MMM yyyy HH:mm:ss,SSS";
+
+    @Test
+    public void testSeekFindsFirstLineAtOrAfterTimestamp() throws Exception {
+        TimestampSeeker classUnderTest = new TimestampSeeker(LOG_FILE, createLog(null));
+
+        long position = classUnderTest.seek(parse("29 Apr 2014 12:31:18,866"), LOG_FILE.length());
+
+        String previousLine = readLineBefore(position);
+        assertTrue(previousLine.contains("12:31:18,787"));
+        assertTrue(readLineAt(position).contains("12:31:18,866"));
+    }
+
+    @Test
+    public void testSeekWithTimestampPattern() throws Exception {
+        TimestampSeeker classUnderTest = new TimestampSeeker(LOG_FILE,
+                createLog("\\] (\\d{2} \\w{3} \\d{4} [\\d:,]+)"));
+
+        long position = classUnderTest.seek(parse("29 Apr 2014 12:31:18,866"), LOG_FILE.length());
+
+        assertTrue(readLineAt(position).contains("12:31:18,866"));
+    }
+
+    @Test
+    public void testSeekBeforeAndAfterAllLines() throws Exception {
+        TimestampSeeker classUnderTest = new TimestampSeeker(LOG_FILE, createLog(null));
+
+        assertEquals(0, classUnderTest.seek(parse("28 Apr 2014 00:00:00,000"), LOG_FILE.length()));
+        assertEquals(LOG_FILE.length(),
+                classUnderTest.seek(parse("30 Apr 2014 00:00:00,000"), LOG_FILE.length()));
+    }
+
+    @Test
+    public void testParseTimestampReturnsNullWithoutTimestamp() {
+        TimestampSeeker classUnderTest = new TimestampSeeker(LOG_FILE, createLog(null));
+
+        assertNull(classUnderTest.parseTimestamp("\tat com.appdynamics.Test.run(Test.java:10)"));
+    }
+
+    @Test
+    public void testParseStartFrom() {
+        long now = 100000000;
+
+        assertEquals(now, TimestampSeeker.parseStartFrom("now", now));
+        assertEquals(now - 30 * 1000, TimestampSeeker.parseStartFrom("now-30s", now));
+        assertEquals(now - 15 * 60 * 1000, TimestampSeeker.parseStartFrom("now-15m", now));
+        assertEquals(now - 2 * 60 * 60 * 1000, TimestampSeeker.parseStartFrom(" now-2h ", now));
+        assertEquals(now - 24 * 60 * 60 * 1000, TimestampSeeker.parseStartFrom("now-1d", now));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseStartFromRejectsUnknownUnit() {
+        TimestampSeeker.parseStartFrom("now-15w", 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTimestampFormatIsRequired() {
+        new TimestampSeeker(LOG_FILE, new Log());
+    }
+
+    private Log createLog(String timestampPattern) {
+        Log log = new Log();
+        log.setStartFrom("now-15m");
+        log.setTimestampFormat(TIMESTAMP_FORMAT);
+        log.setTimestampPattern(timestampPattern);
+        return log;
+    }
+
+    private long parse(String timestamp) throws Exception {
+        return new SimpleDateFormat(TIMESTAMP_FORMAT).parse(timestamp).getTime();
+    }
+
+    private String readLineAt(long position) throws Exception {
+        RandomAccessFile file = new RandomAccessFile(LOG_FILE, "r");
+
+        try {
+            file.seek(position);
+            return file.readLine();
+
+        } finally {
+            file.close();
+        }
+    }
+
+    private String readLineBefore(long position) throws Exception {
+        RandomAccessFile file = new RandomAccessFile(LOG_FILE, "r");
+
+        try {
+            String previousLine = null;
+            String line = null;
+
+            while (file.getFilePointer() < position && (line = file.readLine()) != null) {
+                previousLine = line;
+            }
+
+            return previousLine;
+
+        } finally {
+            file.close();
+        }
+    }
+}
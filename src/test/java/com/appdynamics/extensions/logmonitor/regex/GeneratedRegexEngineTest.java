@@ -0,0 +1,195 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.createPattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+import com.appdynamics.extensions.logmonitor.SearchPattern;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.google.common.collect.Lists;
+
+public class GeneratedRegexEngineTest {
+
+    private static final String[] TOKENS = {"a", "B", "b", "c", "-", ".", "\\s", "\\d", "\\W", "[ab]", "[^a]",
+            "[a-cA]", "*", "+", "?", "{2}", "{1,3}", "{0,}", "{10}", "(?i)", "\\Qa.\\E", "\\x41", "\\.", "(b)"};
+
+    private final GeneratedRegexEngine classUnderTest = new GeneratedRegexEngine();
+
+    @Test
+    public void testUnsupportedPatterns() {
+        assertNull(compile("\\w+\\d"));
+        assertNull(compile("a*b?a"));
+        assertNull(compile("error|warn"));
+        assertNull(compile("(?:ab)+"));
+        assertNull(compile("a+?"));
+        assertNull(compile("^error"));
+        assertNull(compile("[a\u00e9]"));
+        assertNull(compile("\\berror"));
+        assertNull(classUnderTest.compile(Pattern.compile("a", Pattern.CASE_INSENSITIVE)));
+    }
+
+    @Test
+    public void testSupportedPatterns() {
+        assertNotNull(compile("(?i)error"));
+        assertNotNull(compile("[A-Z][a-z]+Exception"));
+        assertNotNull(compile("\\d{3}-\\d{4}"));
+        assertNotNull(compile("user=\\S+"));
+        assertNotNull(compile("a*b?c"));
+        assertNotNull(compile("(?-i)Timeout.*"));
+    }
+
+    @Test
+    public void testOnlyShapesFasterThanJdkAreCompiled() {
+        assertNotNull(classUnderTest.compile(Pattern.compile("[A-Z][a-z]+Exception")));
+        assertNotNull(classUnderTest.compile(Pattern.compile("\\d{3}-\\d{4}")));
+        assertNotNull(classUnderTest.compile(Pattern.compile("[EW][A-Z]{4}")));
+
+        assertNull(classUnderTest.compile(Pattern.compile("(?-i)ERROR")));
+        assertNull(classUnderTest.compile(Pattern.compile("(?i)sess\\w+")));
+        assertNull(classUnderTest.compile(Pattern.compile("user=\\S+")));
+        assertNull(classUnderTest.compile(Pattern.compile("\\w+@\\w+")));
+        assertNull(classUnderTest.compile(Pattern.compile("[a-z]+\\d")));
+        assertNull(classUnderTest.compile(Pattern.compile("\\d?-\\d")));
+    }
+
+    @Test
+    public void testFindsMatches() {
+        RegexMatcher matcher = compile("(?i)code=\\d{3,}").matcher().reset("Code=12 CODE=404, code=5000");
+
+        assertTrue(matcher.find());
+        assertEquals("CODE=404", matcher.group());
+        assertEquals(8, matcher.start());
+        assertTrue(matcher.find());
+        assertEquals("code=5000", matcher.group());
+        assertFalse(matcher.find());
+
+        assertTrue(matcher.find(9));
+        assertEquals("code=5000", matcher.group());
+    }
+
+    @Test
+    public void testSameMatchesAsJdk() {
+        Random random = new Random(42);
+        int compared = 0;
+
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder regex = new StringBuilder();
+
+            for (int j = 0; j < 1 + random.nextInt(6); j++) {
+                regex.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+
+            Pattern pattern;
+
+            try {
+                pattern = Pattern.compile(regex.toString());
+
+            } catch (PatternSyntaxException ex) {
+                continue;
+            }
+
+            CompiledRegex compiledRegex = classUnderTest.compile(pattern, true);
+
+            if (compiledRegex == null) {
+                continue;
+            }
+
+            compared++;
+            RegexMatcher matcher = compiledRegex.matcher();
+
+            for (int j = 0; j < 20; j++) {
+                String line = randomString(random, "aaabAB c-.1\n\u2028", random.nextInt(16));
+                int from = random.nextInt(line.length() + 1);
+
+                assertEquals(regex + " in [" + line + "]", findWithJdk(pattern, line, 0),
+                        find(matcher.reset(line), 0));
+                assertEquals(regex + " in [" + line + "] from " + from, findWithJdk(pattern, line, from),
+                        find(matcher.reset(line), from));
+            }
+        }
+
+        assertTrue(compared > 1000);
+    }
+
+    @Test
+    public void testLineWithSurrogatesIsSearchedByJdk() {
+        RegexMatcher matcher = compile("a.b").matcher().reset("a\uD83D\uDE00b a-b");
+
+        assertTrue(matcher.find());
+        assertEquals("a\uD83D\uDE00b", matcher.group());
+        assertTrue(matcher.find());
+        assertEquals("a-b", matcher.group());
+    }
+
+    @Test
+    public void testSearchStringSelectsEngine() {
+        List<SearchPattern> searchPatterns = createPattern(Lists.newArrayList(
+                searchString("\\d{3}-\\d{4}", "generated"), searchString("\\w+\\d", "generated"),
+                searchString("error \\d+", "generated")));
+
+        assertEquals(GeneratedRegexEngine.NAME, searchPatterns.get(0).getCompiledRegex().getEngineName());
+        assertEquals(JdkRegexEngine.NAME, searchPatterns.get(1).getCompiledRegex().getEngineName());
+        assertEquals(JdkRegexEngine.NAME, searchPatterns.get(2).getCompiledRegex().getEngineName());
+    }
+
+    private CompiledRegex compile(String regex) {
+        return classUnderTest.compile(Pattern.compile(regex), true);
+    }
+
+    private List<String> find(RegexMatcher matcher, int from) {
+        List<String> matches = new ArrayList<String>();
+        boolean found = matcher.find(from);
+
+        while (found) {
+            matches.add(matcher.start() + "-" + matcher.end() + ":" + matcher.group());
+            found = matcher.find();
+        }
+
+        return matches;
+    }
+
+    private List<String> findWithJdk(Pattern pattern, String line, int from) {
+        List<String> matches = new ArrayList<String>();
+        Matcher matcher = pattern.matcher(line).useTransparentBounds(true).useAnchoringBounds(false);
+        matcher.region(from, line.length());
+
+        while (matcher.find()) {
+            matches.add(matcher.start() + "-" + matcher.end() + ":" + matcher.group());
+        }
+
+        return matches;
+    }
+
+    private String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+
+        return builder.toString();
+    }
+
+    private SearchString searchString(String pattern, String engine) {
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(true);
+        searchString.setMatchExactString(false);
+        searchString.setPattern(pattern);
+        searchString.setDisplayName(pattern);
+        searchString.setEngine(engine);
+        return searchString;
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import static com.appdynamics.extensions.logmonitor.util.LogMonitorUtil.createPattern;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+
+import com.appdynamics.extensions.logmonitor.SearchPattern;
+import com.appdynamics.extensions.logmonitor.config.SearchString;
+import com.google.common.collect.Lists;
+
+public class LinearRegexEngineTest {
+
+    private static final String[] TOKENS = {"a", "B", "b", "c", ".", "\\s", "\\d", "\\W", "[ab]", "[^a]", "[a-cA]",
+            "(", ")", "(?:", "|", "*", "+", "?", "*?", "+?", "??", "{2}", "{1,2}", "{0,}", "^", "$", "(?i)",
+            "(?i:", "\\Qa.\\E", "\\x41", "\\.", "[\\d.]", "\\z"};
+
+    private final LinearRegexEngine classUnderTest = new LinearRegexEngine();
+
+    @Test
+    public void testUnsupportedPatterns() {
+        assertNull(compile("(a)\\1"));
+        assertNull(compile("a(?=b)"));
+        assertNull(compile("(?<=a)b"));
+        assertNull(compile("\\berror\\b"));
+        assertNull(compile("a++"));
+        assertNull(compile("(a*)*b"));
+        assertNull(compile("(?s)a.b"));
+        assertNull(compile("[a[b]]"));
+        assertNull(compile("\\p{Alpha}"));
+        assertNull(classUnderTest.compile(Pattern.compile("a", Pattern.CASE_INSENSITIVE)));
+    }
+
+    @Test
+    public void testSupportedPatterns() {
+        assertNotNull(compile("(?i)system\\w+"));
+        assertNotNull(compile("(?-i)Timeout.*ms"));
+        assertNotNull(compile("(?<name>a|b)+[^\\s,]{2,5}?$"));
+    }
+
+    @Test
+    public void testPathologicalPatternTakesLinearTime() {
+        StringBuilder line = new StringBuilder();
+
+        for (int i = 0; i < 100000; i++) {
+            line.append('a');
+        }
+
+        RegexMatcher matcher = compile("(a|aa)*c").matcher().reset(line);
+        long start = System.currentTimeMillis();
+
+        assertFalse(matcher.find());
+        assertTrue(System.currentTimeMillis() - start < 10000);
+    }
+
+    @Test
+    public void testSameMatchesAsJdk() {
+        Random random = new Random(42);
+        int compared = 0;
+
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder regex = new StringBuilder();
+
+            for (int j = 0; j < 1 + random.nextInt(6); j++) {
+                regex.append(TOKENS[random.nextInt(TOKENS.length)]);
+            }
+
+            Pattern pattern;
+
+            try {
+                pattern = Pattern.compile(regex.toString());
+
+            } catch (PatternSyntaxException ex) {
+                continue;
+            }
+
+            CompiledRegex compiledRegex = classUnderTest.compile(pattern);
+
+            if (compiledRegex == null) {
+                continue;
+            }
+
+            compared++;
+            RegexMatcher matcher = compiledRegex.matcher();
+
+            for (int j = 0; j < 20; j++) {
+                String line = randomString(random, "abAB c.1\n", random.nextInt(10));
+                int from = random.nextInt(line.length() + 1);
+
+                assertEquals(regex + " in [" + line + "]", findWithJdk(pattern, line, 0),
+                        find(matcher.reset(line), 0));
+                assertEquals(regex + " in [" + line + "] from " + from, findWithJdk(pattern, line, from),
+                        find(matcher.reset(line), from));
+            }
+        }
+
+        assertTrue(compared > 1000);
+    }
+
+    @Test
+    public void testLineWithSurrogatesIsSearchedByJdk() {
+        RegexMatcher matcher = compile("a.b").matcher().reset("a\uD83D\uDE00b a-b");
+
+        assertTrue(matcher.find());
+        assertEquals("a\uD83D\uDE00b", matcher.group());
+        assertTrue(matcher.find());
+        assertEquals("a-b", matcher.group());
+    }
+
+    @Test
+    public void testSearchStringSelectsEngine() {
+        List<SearchPattern> searchPatterns = createPattern(Lists.newArrayList(
+                searchString("error \\d+", "linear"), searchString("(a)\\1", "linear"), searchString("b+", null)));
+
+        assertEquals(LinearRegexEngine.NAME, searchPatterns.get(0).getCompiledRegex().getEngineName());
+        assertEquals(JdkRegexEngine.NAME, searchPatterns.get(1).getCompiledRegex().getEngineName());
+        assertEquals(JdkRegexEngine.NAME, searchPatterns.get(2).getCompiledRegex().getEngineName());
+
+        assertEquals(LinearRegexEngine.NAME, RegexEngines.get(" Linear ").getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEngine() {
+        RegexEngines.get("re2");
+    }
+
+    private CompiledRegex compile(String regex) {
+        return classUnderTest.compile(Pattern.compile(regex));
+    }
+
+    private List<String> find(RegexMatcher matcher, int from) {
+        List<String> matches = new ArrayList<String>();
+        boolean found = matcher.find(from);
+
+        while (found) {
+            matches.add(matcher.start() + "-" + matcher.end() + ":" + matcher.group());
+            found = matcher.find();
+        }
+
+        return matches;
+    }
+
+    private List<String> findWithJdk(Pattern pattern, String line, int from) {
+        List<String> matches = new ArrayList<String>();
+        Matcher matcher = pattern.matcher(line).useTransparentBounds(true).useAnchoringBounds(false);
+        matcher.region(from, line.length());
+
+        while (matcher.find()) {
+            matches.add(matcher.start() + "-" + matcher.end() + ":" + matcher.group());
+        }
+
+        return matches;
+    }
+
+    private String randomString(Random random, String alphabet, int length) {
+        StringBuilder builder = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+
+        return builder.toString();
+    }
+
+    private SearchString searchString(String pattern, String engine) {
+        SearchString searchString = new SearchString();
+        searchString.setCaseSensitive(true);
+        searchString.setMatchExactString(false);
+        searchString.setPattern(pattern);
+        searchString.setDisplayName(pattern);
+        searchString.setEngine(engine);
+        return searchString;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.appdynamics.extensions.logmonitor.regex;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Prints the time each regex engine takes to search a line, for patterns of the shapes
+ * the {@link GeneratedRegexEngine} compiles and the ones it leaves to java.util.regex.
+ * The generated engine is measured for every shape, the "selected" column shows whether
+ * it compiles the pattern when chosen by a search string.
+ * <p>
+ * Run with <code>java -cp target/classes:target/test-classes:&lt;log4j&gt;
+ * com.appdynamics.extensions.logmonitor.regex.RegexEngineBenchmark</code>
+ *
+ * @author Satish Muddam
+ */
+public class RegexEngineBenchmark {
+
+    private static final String[] PATTERNS = {"(?-i)ERROR", "(?i)sess\\w+", "user=\\S+", "[A-Z][a-z]+Exception",
+            "\\d{3}-\\d{4}", "[EW][A-Z]{4}", "\\w+@\\w+"};
+
+    private static final int LINES = 2000;
+
+    private static final int LONG_LINE_LENGTH = 20000;
+
+    private static final int ROUNDS = 10;
+
+    private static final long ROUND_NANOS = 200000000L;
+
+    public static void main(String[] args) {
+        String[] lines = createLines(new Random(42));
+        String[] longLines = {createLongLine(new Random(42))};
+
+        System.out.println(String.format("%-22s %-10s %12s %12s %12s %12s", "pattern", "lines",
+                "jdk ns", "linear ns", "generated ns", "selected"));
+
+        for (String regex : PATTERNS) {
+            print(regex, "log", lines);
+        }
+
+        print("\\w+@\\w+", "20k chars", longLines);
+    }
+
+    private static void print(String regex, String linesName, String[] lines) {
+        Pattern pattern = Pattern.compile(regex);
+        GeneratedRegexEngine generatedEngine = new GeneratedRegexEngine();
+
+        System.out.println(String.format("%-22s %-10s %12d %12d %12d %12s", regex, linesName,
+                nanosPerLine(new JdkRegexEngine().compile(pattern), lines),
+                nanosPerLine(new LinearRegexEngine().compile(pattern), lines),
+                nanosPerLine(generatedEngine.compile(pattern, true), lines),
+                generatedEngine.compile(pattern) != null));
+    }
+
+    /**
+     * @return the best time of the rounds to find all matches in a line, -1 if the engine
+     * does not support the pattern
+     */
+    private static long nanosPerLine(CompiledRegex compiledRegex, String[] lines) {
+        if (compiledRegex == null) {
+            return -1;
+        }
+
+        RegexMatcher matcher = compiledRegex.matcher();
+        long best = Long.MAX_VALUE;
+        int matches = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            long searched = 0;
+
+            while (System.nanoTime() - start < ROUND_NANOS) {
+                for (String line : lines) {
+                    matcher.reset(line);
+
+                    while (matcher.find()) {
+                        matches++;
+                    }
+                }
+
+                searched += lines.length;
+            }
+
+            best = Math.min(best, (System.nanoTime() - start) / searched);
+        }
+
+        // keeps the JIT from dropping the searches
+        if (matches == -1) {
+            System.out.println(matches);
+        }
+
+        return best;
+    }
+
+    private static String[] createLines(Random random) {
+        String[] levels = {"INFO", "DEBUG", "WARN", "ERROR"};
+        String[] lines = new String[LINES];
+
+        for (int i = 0; i < lines.length; i++) {
+            StringBuilder line = new StringBuilder();
+            line.append(String.format("2016-03-%02d 12:%02d:%02d,%03d ", 1 + random.nextInt(28), random.nextInt(60),
+                    random.nextInt(60), random.nextInt(1000)));
+            line.append(levels[random.nextInt(levels.length)]);
+            line.append(" [worker-").append(random.nextInt(16)).append("] request ").append(random.nextInt(100000));
+            line.append(" handled in ").append(random.nextInt(1000)).append(" ms user=u").append(random.nextInt(500));
+
+            if (random.nextInt(20) == 0) {
+                line.append(" session=").append(Long.toHexString(random.nextLong()));
+            }
+
+            if (random.nextInt(50) == 0) {
+                line.append(" java.lang.IllegalStateException: call 555-").append(1000 + random.nextInt(9000));
+            }
+
+            if (random.nextInt(100) == 0) {
+                line.append(" mail to admin@example");
+            }
+
+            lines[i] = line.toString();
+        }
+
+        return lines;
+    }
+
+    private static String createLongLine(Random random) {
+        StringBuilder line = new StringBuilder();
+
+        while (line.length() < LONG_LINE_LENGTH) {
+            line.append((char) ('a' + random.nextInt(26)));
+        }
+
+        return line.toString();
+    }
+
+}